@@ -5,6 +5,12 @@ Run JPF symbolic execution via ./tools/run-jpf.sh.
   python run_jpf.py --help       List available .jpf configs
   python run_jpf.py <config>     Run JPF with the given config (e.g. AccountTestSymbolic.jpf)
   python run_jpf.py <config> --  Pass extra args to JPF
+  python run_jpf.py <config> --json
+                                 Print the witup-result document instead of the conditions
+  python run_jpf.py --batch [dir|manifest.jsonl|config...]
+                                 Run many configs in one warm JVM (default: all configs)
+  python run_jpf.py --parallel [-j N] [--timeout S] [dir|manifest.jsonl|config...]
+                                 Run configs in parallel worker JVMs (default: all configs)
 
 Examples:
   python run_jpf.py AccountTestSymbolic.jpf
@@ -12,14 +18,22 @@ Examples:
 """
 
 import argparse
+import json
 import os
 import re
 import subprocess
 import sys
+import tempfile
 
 SCRIPT_DIR = os.path.dirname(os.path.abspath(__file__))
 JPF_DIR = os.path.join(SCRIPT_DIR, "src", "test", "resources", "jpf")
 RUN_JPF = os.path.join(SCRIPT_DIR, "tools", "run-jpf.sh")
+RUN_JPF_BATCH = os.path.join(SCRIPT_DIR, "tools", "run-jpf-batch.sh")
+RUN_JPF_PARALLEL = os.path.join(SCRIPT_DIR, "tools", "run-jpf-parallel.sh")
+
+# witup-result document written by the listener (see ResultFile.java)
+RESULT_FORMAT = "witup-result"
+RESULT_VERSION = 1
 
 # Fallback descriptions (used if first comment line can't be parsed)
 DEFAULT_DESCRIPTIONS = {
@@ -88,11 +102,65 @@ def print_help(configs):
     print("Examples:")
     print("  python run_jpf.py AccountTestSymbolic.jpf")
     print("  python run_jpf.py MathTestSymbolic.jpf")
+    print("  python run_jpf.py --batch                 # all configs, one JVM")
+    print("  python run_jpf.py --parallel -j 8         # all configs, 8 worker JVMs")
     print()
     print("Prereqs: mvn test-compile")
     print("Uses: ./tools/run-jpf.sh (requires Java 8)")
 
 
+def read_result(path):
+    """Load a witup-result document; raise ValueError for another format or version."""
+    with open(path, "r", encoding="utf-8") as f:
+        doc = json.load(f)
+    if not isinstance(doc, dict) or doc.get("format") != RESULT_FORMAT:
+        raise ValueError(f"{path}: not a {RESULT_FORMAT} document")
+    if doc.get("version") != RESULT_VERSION:
+        raise ValueError(f"{path}: unsupported {RESULT_FORMAT} version {doc.get('version')} "
+                         f"(expected {RESULT_VERSION})")
+    return doc
+
+
+def print_conditions(doc):
+    """Print the sites of a result document as the EXCEPTION CONDITIONS block."""
+    print()
+    print("=" * 40)
+    print("EXCEPTION CONDITIONS (symbolic path conditions):")
+    print(json.dumps(doc.get("sites", []), indent=2, ensure_ascii=False))
+    for line in doc.get("summary", []):
+        print(line)
+    if doc.get("cached"):
+        print("(from the analysis cache)")
+    print("=" * 40)
+    print()
+
+
+def run_config(config, rest, as_json):
+    """Run one config through run-jpf.sh and read its sites from the result file."""
+    fd, result = tempfile.mkstemp(prefix="witup-result-", suffix=".json")
+    os.close(fd)
+    try:
+        os.unlink(result)
+        status = subprocess.call([RUN_JPF, "--result", result, config] + rest)
+        if not os.path.exists(result):
+            print(f"No result written (exit status {status})", file=sys.stderr)
+            return status or 1
+        try:
+            doc = read_result(result)
+        except ValueError as e:
+            print(e, file=sys.stderr)
+            return 1
+        if as_json:
+            json.dump(doc, sys.stdout, indent=2, ensure_ascii=False)
+            print()
+        else:
+            print_conditions(doc)
+        return status
+    finally:
+        if os.path.exists(result):
+            os.unlink(result)
+
+
 def main():
     configs = list_jpf_configs()
 
@@ -101,8 +169,16 @@ def main():
         print_help(configs)
         return 0
 
+    if "--batch" in sys.argv:
+        rest = [a for a in sys.argv[1:] if a != "--batch"]
+        return subprocess.call([RUN_JPF_BATCH] + rest)
+    if "--parallel" in sys.argv:
+        rest = [a for a in sys.argv[1:] if a != "--parallel"]
+        return subprocess.call([RUN_JPF_PARALLEL] + rest)
+
     parser = argparse.ArgumentParser(description="Run JPF via ./tools/run-jpf.sh")
     parser.add_argument("config", nargs="?")
+    parser.add_argument("--json", action="store_true", help="print the witup-result document")
     args, rest = parser.parse_known_args()
 
     if not args.config:
@@ -124,8 +200,9 @@ def main():
             print("Use --list to see available configs.", file=sys.stderr)
             return 1
 
-    cmd = [RUN_JPF, config] + rest
-    return subprocess.call(cmd)
+    if "--verbose" in rest or "-V" in rest:
+        return subprocess.call([RUN_JPF, config] + rest)
+    return run_config(config, [a for a in rest if a != "--"], args.json)
 
 
 if __name__ == "__main__":
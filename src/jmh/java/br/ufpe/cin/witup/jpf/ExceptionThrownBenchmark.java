@@ -0,0 +1,50 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.BatchRunner.ConfigResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of exceptionThrown: small symbolic JPF runs of the test configs, in one warm
+ * JVM as BatchRunner does. Run from the project root (the configs' paths are relative to it);
+ * the analysis cache is off so every invocation explores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExceptionThrownBenchmark {
+
+    @Param({"MathTestSymbolic.jpf", "AccountTestSymbolic.jpf", "StringUtilsTestSymbolic.jpf"})
+    String config;
+
+    /** Eager formatting at each throw, or lazy formatting at search end. */
+    @Param({"false", "true"})
+    boolean lazy;
+
+    @Benchmark
+    public int run() {
+        List<String> overrides = Arrays.asList("+witup.cache.dir=", "+witup.lazy_conditions=" + lazy);
+        BatchRunner.Job job = new BatchRunner.Job("src/test/resources/jpf/" + config, Collections.<String>emptyList());
+        ConfigResult result = BatchRunner.runConfig(job, overrides);
+        if (!"ok".equals(result.status)) {
+            throw new IllegalStateException(config + ": " + result.error);
+        }
+        return result.sites.size();
+    }
+}
@@ -0,0 +1,149 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.MethodFormatInfo;
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.LocalVarInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-throw formatting work of the listener: turning a jpf-symbc path condition into the user
+ * condition, and building the per-method format info, which walks the receiver's class hierarchy
+ * for instance field names. The receiver is a synthetic ClassInfo chain, so no VM is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+
+    /** Conjuncts in the raw path condition: a typical branch depth and a very deep path. */
+    @Param({"3", "2000"})
+    int conjuncts;
+
+    /** Inheritance depth of the receiver class, each level declaring FIELDS_PER_LEVEL fields. */
+    @Param({"1", "8"})
+    int hierarchyDepth;
+
+    private static final int FIELDS_PER_LEVEL = 50;
+
+    /** A loaded class without a VM: name, superclass and declared instance fields only. */
+    private static final class SyntheticClassInfo extends ClassInfo {
+        SyntheticClassInfo(String name, ClassInfo superClass, FieldInfo[] fields) {
+            this.name = name;
+            this.superClass = superClass;
+            this.iFields = fields;
+        }
+    }
+
+    private MethodInfo method;
+    private PathCondition pc;
+    private String raw;
+    private String unqualified;
+    private MethodFormatInfo info;
+    private final PathConditionFormatter formatter = new PathConditionFormatter();
+
+    @Setup
+    public void setup() {
+        ClassInfo receiver = null;
+        for (int level = 0; level < hierarchyDepth; level++) {
+            int count = level == hierarchyDepth - 1 ? FIELDS_PER_LEVEL + 1 : FIELDS_PER_LEVEL;
+            FieldInfo[] fields = new FieldInfo[count];
+            for (int i = 0; i < FIELDS_PER_LEVEL; i++) {
+                fields[i] = FieldInfo.create("f" + level + "_" + i, "I", Modifier.PRIVATE);
+            }
+            if (count > FIELDS_PER_LEVEL) fields[FIELDS_PER_LEVEL] = FieldInfo.create("balance", "D", Modifier.PRIVATE);
+            receiver = new SyntheticClassInfo("bench.Level" + level, receiver, fields);
+        }
+        method = new MethodInfo(receiver, "debit", "(DI)V", Modifier.PUBLIC, 4, 4);
+        method.setLocalVarTable(new LocalVarInfo[] {
+            new LocalVarInfo("this", "Lbench/Level" + (hierarchyDepth - 1) + ";", null, 0, 10, 0),
+            new LocalVarInfo("value", "D", null, 0, 10, 1),
+            new LocalVarInfo("limit", "I", null, 0, 10, 3)
+        });
+        info = ExceptionConditionListener.getFormatInfo(method);
+
+        SymbolicReal value = new SymbolicReal("value_1_SYMREAL", -1000, 1000);
+        SymbolicReal balance = new SymbolicReal("balance_2_SYMREAL", -1000, 1000);
+        SymbolicInteger limit = new SymbolicInteger("limit_3_SYMINT", -100, 100);
+        Constraint last = null;
+        pc = new PathCondition();
+        for (int i = 0; i < conjuncts; i++) {
+            int level = i % hierarchyDepth;
+            Constraint c;
+            switch (i % 3) {
+                case 0:
+                    c = new RealConstraint(value, Comparator.GT, balance);
+                    break;
+                case 1:
+                    c = new LinearIntegerConstraint(new BinaryLinearIntegerExpression(limit, Operator.PLUS, new IntegerConstant(i)),
+                        Comparator.LE, new SymbolicInteger("f" + level + "_" + (i % FIELDS_PER_LEVEL) + "_4_SYMINT", -100, 100));
+                    break;
+                default:
+                    c = new RealConstraint(new BinaryRealExpression(value, Operator.MUL, new RealConstant(2.5)), Comparator.NE,
+                        new RealConstant(-1.0E-3));
+                    break;
+            }
+            if (last == null) pc.header = c;
+            else last.and = c;
+            last = c;
+        }
+        raw = pc.toString();
+        unqualified = ExceptionConditionListener.formatCondition(raw, null);
+    }
+
+    @Benchmark
+    public String formatConditionForUser() {
+        return ExceptionConditionListener.formatCondition(raw, info);
+    }
+
+    @Benchmark
+    public String formatPathCondition() {
+        return formatter.format(pc, info);
+    }
+
+    @Benchmark
+    public String qualifyInstanceFields() {
+        return ExceptionConditionListener.qualifyInstanceFields(unqualified, info);
+    }
+
+    /** Cold path of getFormatInfo: hierarchy walk plus matcher compilation, once per method. */
+    @Benchmark
+    public MethodFormatInfo computeFormatInfo() {
+        return ExceptionConditionListener.computeFormatInfo(method);
+    }
+
+    /** Warm path: the cached lookup done on every throw. */
+    @Benchmark
+    public MethodFormatInfo getFormatInfo() {
+        return ExceptionConditionListener.getFormatInfo(method);
+    }
+}
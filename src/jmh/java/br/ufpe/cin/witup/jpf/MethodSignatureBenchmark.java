@@ -0,0 +1,38 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.vm.MethodInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Rendering of the readable method signature reported with every site. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodSignatureBenchmark {
+
+    private final MethodInfo shortSignature = new MethodInfo("debit", "(D)V", 1);
+    private final MethodInfo longSignature = new MethodInfo("transfer",
+        "(Ljava/util/Map;[[ILjava/lang/String;JDZLbr/ufpe/cin/witup/jpf/Account;[Ljava/lang/Object;)Ljava/util/List;", 1);
+
+    @Benchmark
+    public String shortSignature() {
+        return ExceptionConditionListener.toReadableMethodSignature(shortSignature);
+    }
+
+    @Benchmark
+    public String longSignature() {
+        return ExceptionConditionListener.toReadableMethodSignature(longSignature);
+    }
+}
@@ -0,0 +1,50 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Rendering of the EXCEPTION CONDITIONS block (pretty) and of NDJSON output (compact). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    @Param({"10000", "1000000"})
+    int sites;
+
+    @Param({"true", "false"})
+    boolean pretty;
+
+    private List<ExceptionSite> list;
+
+    @Setup
+    public void setup() {
+        list = new ArrayList<>(sites);
+        for (int i = 0; i < sites; i++) {
+            list.add(new ExceptionSite("java.lang.IllegalArgumentException", "Account.debit(double)", 10 + i % 200,
+                "value > this.balance && value > " + i + ".0 && this.limit >= 0"));
+        }
+    }
+
+    @Benchmark
+    public String toJsonArray() {
+        return ExceptionSite.toJsonArray(list, pretty);
+    }
+}
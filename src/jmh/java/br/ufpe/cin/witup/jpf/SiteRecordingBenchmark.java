@@ -0,0 +1,85 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.SiteKey;
+import gov.nasa.jpf.vm.MethodInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording of throw events into the distinct-site index: the SiteTable against the previous
+ * map of SiteKey to ExceptionSite objects (signature rebuilt and condition normalized per event).
+ * Each operation records 100k events over the given number of distinct sites; run with the gc
+ * profiler (the jmh profile's default) to compare allocation per event and retained heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SiteRecordingBenchmark {
+
+    private static final int EVENTS = 100_000;
+
+    @Param({"100", "10000"})
+    public int distinctSites;
+
+    private final MethodInfo[] methods = new MethodInfo[16];
+    private String[] conditions;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = new MethodInfo("m" + i, "(Ljava/lang/String;IDJ)V", 1);
+        }
+        conditions = new String[distinctSites];
+        for (int i = 0; i < distinctSites; i++) {
+            conditions[i] = "value > this.balance &&\nvalue >= " + i + " &&\ncount < this.limit";
+        }
+    }
+
+    /** The condition as freshly rendered by the formatter for event i (a new String per event). */
+    private String condition(int i) {
+        return new String(conditions[i % distinctSites]);
+    }
+
+    @Benchmark
+    public int siteTable() {
+        SiteTable table = new SiteTable();
+        for (int i = 0; i < EVENTS; i++) {
+            table.add(table.intern("java.lang.IllegalArgumentException"), table.method(methods[i & 15]), 40,
+                condition(i), 1);
+        }
+        return table.size();
+    }
+
+    @Benchmark
+    public int siteObjects() {
+        Map<SiteKey, ExceptionSite> sites = new LinkedHashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            ExceptionSite site = new ExceptionSite("java.lang.IllegalArgumentException",
+                ExceptionConditionListener.toReadableMethodSignature(methods[i & 15]), 40, condition(i));
+            ExceptionSite existing = sites.get(site.key());
+            if (existing != null) {
+                existing.addHits(1);
+            } else {
+                sites.put(site.key(), site);
+            }
+        }
+        return sites.size();
+    }
+}
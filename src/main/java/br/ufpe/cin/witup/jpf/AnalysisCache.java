@@ -0,0 +1,460 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * On-disk cache of exception sites keyed by what a run depends on, so unchanged drivers are
+ * answered without re-exploring them. The key is a SHA-256 over
+ * <ul>
+ * <li>the effective config entries that affect the result (target, symbolic.*, search.*, cg.*,
+ * vm.storage.*, listener and witup.* options, minus output-only ones; for witup.summaries.dir only
+ * whether it is set), and</li>
+ * <li>the bytecode of the target class and every class it transitively references (constant-pool
+ * class entries) that lives on the JPF classpath; JDK and JPF classes are not hashed, and</li>
+ * <li>the code of the analysis itself: the jar or class directory holding this listener, and the
+ * JPF and jpf-symbc jars, so a rebuilt or upgraded tool does not serve results of the old one.</li>
+ * </ul>
+ * Dependencies are tracked per class rather than per method: editing any method of a referenced
+ * class invalidates the entry, which is conservative but never stale.
+ *
+ * <pre>
+ * witup.cache.dir =          # cache directory (empty = caching off)
+ * witup.cache.max_mb = 256   # size bound; least recently used entries are evicted first
+ * </pre>
+ *
+ * Command line (used by tools/run-jpf.sh): {@code AnalysisCache <config.jpf> [+key=value ...]}
+ * prints the EXCEPTION CONDITIONS block and exits 0 on a hit, exits 3 on a miss.
+ */
+final class AnalysisCache {
+
+    static final int EXIT_MISS = 3;
+
+    /** Bumped whenever the stored format or the meaning of a site changes. */
+    private static final String FORMAT_VERSION = "witup-cache-1";
+
+    private static final String[] KEY_PREFIXES = {
+        "target", "symbolic.", "search.", "cg.", "vm.storage.", "listener", "jvm.insn_factory", "witup."
+    };
+
+    /** witup.* options that only change where or how results are written, not the results. */
+    private static final String[] IGNORED_KEYS = {
+        "witup.output", "witup.report.", "witup.result", "witup.cache.", "witup.finalize_threads", "witup.solver_cache", "witup.prune.log",
+        "witup.summaries.dir", "witup.metrics."
+    };
+
+    /** Digest of the analysis code (see toolDigest), computed once per JVM. */
+    private static volatile String toolDigest;
+
+    private static final Type SITES_TYPE = new TypeToken<List<ExceptionSite>>() {}.getType();
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final Path dir;
+    private final long maxBytes;
+
+    AnalysisCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns the cache configured in conf, or null when witup.cache.dir is not set. */
+    static AnalysisCache fromConfig(Config conf) {
+        String dir = conf.getString("witup.cache.dir", "");
+        if (dir.isEmpty()) return null;
+        return new AnalysisCache(Paths.get(dir), conf.getLong("witup.cache.max_mb", 256) << 20);
+    }
+
+    /** Computes the cache key of a run; see the class comment for what it covers. */
+    static String key(Config conf) {
+        MessageDigest md = sha256();
+        update(md, FORMAT_VERSION);
+        for (String name : new TreeSet<>(conf.stringPropertyNames())) {
+            if (affectsResult(name)) {
+                update(md, name);
+                update(md, conf.getProperty(name));
+            }
+        }
+        // the summaries directory's location does not matter, but whether summaries are used does
+        update(md, "witup.summaries=" + !conf.getString("witup.summaries.dir", "").isEmpty());
+        update(md, toolDigest());
+        updateClosure(md, conf.getStringArray("classpath", new String[0]), rootClasses(conf));
+        return hex(md.digest());
+    }
+
+    /**
+     * SHA-256 over the code sources of this listener, JPF and jpf-symbc: each jar's bytes, or
+     * every file of a class directory. Computed on first use and kept for the life of the JVM.
+     */
+    static String toolDigest() {
+        String digest = toolDigest;
+        if (digest == null) {
+            MessageDigest md = sha256();
+            for (Class<?> cls : new Class<?>[] {ExceptionConditionListener.class, JPF.class, PathCondition.class}) {
+                CodeSource source = cls.getProtectionDomain().getCodeSource();
+                if (source == null || source.getLocation() == null) {
+                    update(md, cls.getName() + " has no code source");
+                    continue;
+                }
+                try {
+                    update(md, codeDigest(Paths.get(source.getLocation().toURI())));
+                } catch (URISyntaxException | RuntimeException e) {
+                    update(md, source.getLocation().toString());
+                }
+            }
+            toolDigest = digest = hex(md.digest());
+        }
+        return digest;
+    }
+
+    /** SHA-256 over a jar's bytes, or over the relative names and bytes of every file of a directory. */
+    static String codeDigest(Path location) {
+        MessageDigest md = sha256();
+        try {
+            if (Files.isDirectory(location)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(location)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    update(md, location.relativize(file).toString());
+                    md.update(Files.readAllBytes(file));
+                }
+            } else {
+                md.update(Files.readAllBytes(location));
+            }
+        } catch (IOException e) {
+            throw new JPFException("cannot hash " + location + ": " + e.getMessage(), e);
+        }
+        return hex(md.digest());
+    }
+
+    /** SHA-256 over parts and the bytecode closure of rootClass on classpath (see MethodSummaries). */
+    static String closureKey(String[] classpath, String rootClass, String... parts) {
+        MessageDigest md = sha256();
+        for (String part : parts) {
+            update(md, part);
+        }
+        updateClosure(md, classpath, Collections.singleton(rootClass));
+        return hex(md.digest());
+    }
+
+    private static void updateClosure(MessageDigest md, String[] classpath, Set<String> roots) {
+        ClassPath cp = new ClassPath(classpath);
+        try {
+            for (String root : roots) {
+                cp.addClosure(root);
+            }
+            for (String cls : cp.visited) {
+                byte[] bytes = cp.bytes.get(cls);
+                if (bytes != null) {
+                    update(md, cls);
+                    md.update(bytes);
+                }
+            }
+        } finally {
+            cp.close();
+        }
+    }
+
+    static boolean affectsResult(String name) {
+        for (String ignored : IGNORED_KEYS) {
+            if (name.startsWith(ignored)) return false;
+        }
+        for (String prefix : KEY_PREFIXES) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /** The target class plus the class named by each symbolic.method entry. */
+    private static Set<String> rootClasses(Config conf) {
+        Set<String> roots = new TreeSet<>();
+        String target = conf.getString("target", "");
+        if (!target.isEmpty()) roots.add(target);
+        for (String m : conf.getStringArray("symbolic.method", new String[0])) {
+            int paren = m.indexOf('(');
+            String qualified = paren >= 0 ? m.substring(0, paren) : m;
+            int dot = qualified.lastIndexOf('.');
+            if (dot > 0) roots.add(qualified.substring(0, dot));
+        }
+        return roots;
+    }
+
+    /** Returns the cached sites for key, or null on a miss. A hit refreshes the entry's LRU time. */
+    List<ExceptionSite> get(String key) {
+        Path entry = entry(key);
+        if (!Files.isRegularFile(entry)) return null;
+        try (Reader r = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            List<ExceptionSite> sites = GSON.fromJson(r, SITES_TYPE);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return sites;
+        } catch (IOException | JsonParseException e) {
+            // unreadable or truncated entry: treat as a miss, it is overwritten on the next put
+            return null;
+        }
+    }
+
+    /** Stores sites under key (atomically replacing any previous entry), then enforces the size bound. */
+    void put(String key, Collection<ExceptionSite> sites) {
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(new ArrayList<>(sites), SITES_TYPE, w);
+            }
+            Files.move(tmp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            throw new JPFException("cannot write analysis cache " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Deletes least recently used entries until the cache fits in maxBytes. */
+    void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path p : ds) {
+                entries.add(p);
+                total += Files.size(p);
+            }
+        }
+        if (total <= maxBytes) return;
+        entries.sort(Comparator.comparingLong(AnalysisCache::lastModified));
+        for (Path p : entries) {
+            if (total <= maxBytes) break;
+            long size = Files.size(p);
+            if (Files.deleteIfExists(p)) total -= size;
+        }
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key + ".json");
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: AnalysisCache <config.jpf> [+key=value ...]");
+            System.exit(2);
+        }
+        Config conf = JPF.createConfig(args);
+        AnalysisCache cache = fromConfig(conf);
+        List<ExceptionSite> sites = cache != null ? cache.get(key(conf)) : null;
+        if (sites == null) {
+            System.exit(EXIT_MISS);
+        }
+        ResultFile result = ResultFile.fromConfig(conf);
+        if (result != null) {
+            result.write(sites, null, Collections.emptyList(), true);
+        }
+        if (!conf.getBoolean("witup.report.stdout", true)) {
+            return;
+        }
+        System.out.println("\n========================================");
+        System.out.println("EXCEPTION CONDITIONS (symbolic path conditions):");
+        System.out.println(ExceptionSite.toJsonArray(sites, true));
+        System.out.println("========================================\n");
+    }
+
+    // --- bytecode dependency closure ---
+
+    /** Resolves classes against JPF classpath entries (directories or jars) and walks their references. */
+    static final class ClassPath implements AutoCloseable {
+        private final List<File> dirs = new ArrayList<>();
+        private final List<ZipFile> jars = new ArrayList<>();
+        /** Every class name reached, in a stable order; only those found have bytes. */
+        final Set<String> visited = new TreeSet<>();
+        final Map<String, byte[]> bytes = new HashMap<>();
+
+        ClassPath(String[] entries) {
+            for (String e : entries) {
+                File f = new File(e);
+                if (f.isDirectory()) {
+                    dirs.add(f);
+                } else if (f.isFile()) {
+                    try {
+                        jars.add(new ZipFile(f));
+                    } catch (IOException ignored) {
+                        // not a jar; JPF will complain about it on its own
+                    }
+                }
+            }
+        }
+
+        void addClosure(String root) {
+            Deque<String> work = new ArrayDeque<>();
+            work.add(root.replace('.', '/'));
+            while (!work.isEmpty()) {
+                String name = work.poll();
+                if (!visited.add(name)) continue;
+                byte[] b = read(name);
+                if (b == null) continue;
+                bytes.put(name, b);
+                for (String ref : referencedClasses(b)) {
+                    if (!visited.contains(ref)) work.add(ref);
+                }
+            }
+        }
+
+        private byte[] read(String internalName) {
+            String file = internalName + ".class";
+            try {
+                for (File d : dirs) {
+                    Path p = new File(d, file).toPath();
+                    if (Files.isRegularFile(p)) return Files.readAllBytes(p);
+                }
+                for (ZipFile z : jars) {
+                    ZipEntry e = z.getEntry(file);
+                    if (e != null) {
+                        try (InputStream in = z.getInputStream(e)) {
+                            return readAll(in);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new JPFException("cannot read " + file + ": " + e.getMessage(), e);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+            for (ZipFile z : jars) {
+                try {
+                    z.close();
+                } catch (IOException ignored) {
+                    // read-only, nothing to lose
+                }
+            }
+        }
+    }
+
+    /**
+     * Class names referenced from a class file's constant pool (CONSTANT_Class entries, which cover
+     * superclasses, interfaces, instantiated types and the owners of called methods and accessed
+     * fields). Array descriptors are reduced to their element class.
+     */
+    static Set<String> referencedClasses(byte[] classFile) {
+        Set<String> refs = new HashSet<>();
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+            if (in.readInt() != 0xCAFEBABE) return refs;
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            String[] utf8 = new String[count];
+            int[] classNameIndex = new int[count];
+            int nClasses = 0;
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: utf8[i] = in.readUTF(); break;
+                    case 7: classNameIndex[nClasses++] = in.readUnsignedShort(); break;
+                    case 8: case 16: case 19: case 20: in.skipBytes(2); break;
+                    case 15: in.skipBytes(3); break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18: in.skipBytes(4); break;
+                    case 5: case 6: in.skipBytes(8); i++; break;
+                    default: return refs;
+                }
+            }
+            for (int k = 0; k < nClasses; k++) {
+                String name = utf8[classNameIndex[k]];
+                if (name == null) continue;
+                if (name.startsWith("[")) {
+                    int l = name.indexOf('L');
+                    if (l < 0) continue;
+                    name = name.substring(l + 1, name.length() - 1);
+                }
+                refs.add(name);
+            }
+        } catch (IOException e) {
+            // truncated class file: hash what we have, JPF reports the real error
+        }
+        return refs;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new JPFException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        md.update(ByteBuffer.allocate(4).putInt(b.length).array());
+        md.update(b);
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
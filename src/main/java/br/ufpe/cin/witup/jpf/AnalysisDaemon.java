@@ -0,0 +1,559 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.BatchRunner.ConfigResult;
+import br.ufpe.cin.witup.jpf.BatchRunner.Job;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves analysis requests from warm JVMs, so small requests do not pay JVM startup and JPF,
+ * jpf-symbc and solver class loading each time. Requests are JSONL, read from stdin or from
+ * connections to a loopback port:
+ *
+ * <pre>
+ * {"id": "r1", "config": "src/test/resources/jpf/AccountTestSymbolic.jpf", "properties": {"symbolic.min_int": "-10"}}
+ * {"id": "r2", "target": "app.AccountDriver", "method": "app.AccountDriver.run(sym#sym)", "classpath": "build/classes"}
+ * </pre>
+ *
+ * Each request runs in a fresh JPF instance (as in BatchRunner) on one of a pool of worker JVMs;
+ * JPF keeps static VM state, so concurrent requests need separate JVMs. A worker stays up across
+ * requests and is replaced after --recycle runs, after a crash, or when a request exceeds
+ * --timeout. Requests wait in a bounded queue; when it is full, reading stops until a worker is
+ * free, which pushes back on the client. Answers are streamed per request, one line per site and
+ * a final status line, in completion order:
+ *
+ * <pre>
+ * {"id":"r1","site":{"thrownException":"...","methodSignature":"...","lineNumber":13,"condition":"...","hits":1}}
+ * {"id":"r1","status":"ok","sites":1,"elapsedMillis":412,"worker":0}
+ * </pre>
+ *
+ * <pre>
+ * AnalysisDaemon [--port n] [-j workers] [--queue n] [--recycle runs] [--timeout seconds] [--xmx 1024m]
+ *                [--base config.jpf] [--work-dir dir] [+key=value ...]
+ * </pre>
+ * Without --port, requests are read from stdin and answers written to stdout until stdin ends.
+ * With --port, every request must carry the "token" written at startup to &lt;work-dir&gt;/token
+ * (readable by the owner only), and a connection is closed at its first line that is not a valid
+ * request, so other local users and browsers cannot submit jobs. Request "properties" are limited
+ * to symbolic.*, search.* and witup.budget.* keys. Requests with target and method use --base
+ * (default tools/jpf-bundled.properties) as their config. Worker logs go to
+ * &lt;work-dir&gt;/worker-N.log.
+ */
+public class AnalysisDaemon {
+
+    static final String DEFAULT_BASE_CONFIG = "tools/jpf-bundled.properties";
+    static final String DEFAULT_WORK_DIR = "target/witup/daemon";
+    private static final String WORKER_FLAG = "--worker";
+    /** Key prefixes a request may set through "properties". */
+    static final List<String> REQUEST_PROPERTY_PREFIXES = Collections.unmodifiableList(
+        Arrays.asList("symbolic.", "search.", "witup.budget."));
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** A parsed request: the client's id (may be null) and the job to run. */
+    static final class Request {
+        final String id;
+        final Job job;
+
+        Request(String id, Job job) {
+            this.id = id;
+            this.job = job;
+        }
+    }
+
+    /**
+     * Writes the answers for one client and keeps track of its outstanding requests, so a
+     * connection is closed only after its input ended and every request was answered.
+     */
+    static final class Responder {
+        private final Writer out;
+        private final Closeable onDone;
+        private int outstanding;
+        private boolean inputClosed;
+
+        Responder(Writer out, Closeable onDone) {
+            this.out = out;
+            this.onDone = onDone;
+        }
+
+        synchronized void accepted() {
+            outstanding++;
+        }
+
+        /** Writes the lines of one answer; with counted, also marks an accepted request answered. */
+        synchronized void answer(List<String> lines, boolean counted) {
+            try {
+                for (String line : lines) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                // client went away; the remaining answers for it are dropped
+            }
+            if (counted) outstanding--;
+            closeIfDone();
+        }
+
+        synchronized void inputClosed() {
+            inputClosed = true;
+            closeIfDone();
+        }
+
+        synchronized void awaitDone() throws InterruptedException {
+            while (!inputClosed || outstanding > 0) {
+                wait();
+            }
+        }
+
+        private void closeIfDone() {
+            if (inputClosed && outstanding == 0) {
+                notifyAll();
+                if (onDone != null) {
+                    try {
+                        onDone.close();
+                    } catch (IOException ignored) {
+                        // already closed by the client
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Pending {
+        final Request request;
+        final Responder responder;
+
+        Pending(Request request, Responder responder) {
+            this.request = request;
+            this.responder = responder;
+        }
+    }
+
+    /** One worker JVM and the requests it has run since it was started. */
+    private final class Worker {
+        final int index;
+        Process process;
+        BufferedWriter toWorker;
+        BufferedReader fromWorker;
+        int runs;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        ConfigResult run(Job job) throws IOException, InterruptedException {
+            if (process == null || !process.isAlive() || runs >= recycleAfter) {
+                restart();
+            }
+            runs++;
+            long start = System.nanoTime();
+            final Process p = process;
+            ScheduledFuture<?> killer = timeoutSeconds > 0
+                ? scheduler.schedule(p::destroyForcibly, timeoutSeconds, TimeUnit.SECONDS) : null;
+            String line;
+            try {
+                toWorker.write(GSON.toJson(job));
+                toWorker.write('\n');
+                toWorker.flush();
+                line = fromWorker.readLine();
+            } catch (IOException e) {
+                line = null;
+            }
+            boolean timedOut = killer != null && !killer.cancel(false);
+            ConfigResult result;
+            if (line != null) {
+                result = GSON.fromJson(line, ConfigResult.class);
+            } else {
+                stop();
+                result = new ConfigResult();
+                result.status = timedOut ? "timeout" : "crashed";
+                result.error = timedOut ? "killed after " + timeoutSeconds + " s (worker restarted)"
+                    : "worker exited without an answer (log: " + log() + ")";
+            }
+            result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return result;
+        }
+
+        private Path log() {
+            return workDir.resolve("worker-" + index + ".log");
+        }
+
+        private void restart() throws IOException, InterruptedException {
+            stop();
+            List<String> cmd = new ArrayList<>();
+            cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            cmd.add("-Xmx" + xmx);
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(AnalysisDaemon.class.getName());
+            cmd.add(WORKER_FLAG);
+            process = new ProcessBuilder(cmd)
+                .redirectError(ProcessBuilder.Redirect.appendTo(log().toFile()))
+                .start();
+            toWorker = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            fromWorker = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            runs = 0;
+        }
+
+        /** Ends the worker: closing its input lets it exit normally, a hung worker is killed. */
+        void stop() throws InterruptedException {
+            if (process == null) return;
+            try {
+                toWorker.close();
+            } catch (IOException ignored) {
+                // worker already gone
+            }
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                process.waitFor();
+            }
+            process = null;
+        }
+    }
+
+    private final int workers;
+    private final int recycleAfter;
+    private final long timeoutSeconds;
+    private final String xmx;
+    private final Path workDir;
+    private final String baseConfig;
+    private final List<String> globalOverrides;
+    private final BlockingQueue<Pending> queue;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "witup-daemon-timeouts");
+        t.setDaemon(true);
+        return t;
+    });
+    private final List<Worker> pool = new ArrayList<>();
+
+    AnalysisDaemon(int workers, int queueCapacity, int recycleAfter, long timeoutSeconds, String xmx,
+                   Path workDir, String baseConfig, List<String> globalOverrides) {
+        this.workers = workers;
+        this.recycleAfter = recycleAfter;
+        this.timeoutSeconds = timeoutSeconds;
+        this.xmx = xmx;
+        this.workDir = workDir;
+        this.baseConfig = baseConfig;
+        this.globalOverrides = globalOverrides;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && WORKER_FLAG.equals(args[0])) {
+            runWorker();
+            return;
+        }
+        int port = -1;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int queueCapacity = 64;
+        int recycle = 50;
+        long timeout = 0;
+        String xmx = "1024m";
+        String base = DEFAULT_BASE_CONFIG;
+        String workDir = DEFAULT_WORK_DIR;
+        List<String> overrides = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if ("--port".equals(a) && hasValue) {
+                port = Integer.parseInt(args[++i]);
+            } else if (("-j".equals(a) || "--workers".equals(a)) && hasValue) {
+                workers = Integer.parseInt(args[++i]);
+            } else if ("--queue".equals(a) && hasValue) {
+                queueCapacity = Integer.parseInt(args[++i]);
+            } else if ("--recycle".equals(a) && hasValue) {
+                recycle = Integer.parseInt(args[++i]);
+            } else if ("--timeout".equals(a) && hasValue) {
+                timeout = Long.parseLong(args[++i]);
+            } else if ("--xmx".equals(a) && hasValue) {
+                xmx = args[++i];
+            } else if ("--base".equals(a) && hasValue) {
+                base = args[++i];
+            } else if ("--work-dir".equals(a) && hasValue) {
+                workDir = args[++i];
+            } else if (a.startsWith("+")) {
+                overrides.add(a);
+            } else {
+                System.err.println("usage: AnalysisDaemon [--port n] [-j workers] [--queue n] [--recycle runs]"
+                    + " [--timeout seconds] [--xmx 1024m] [--base config.jpf] [--work-dir dir] [+key=value ...]");
+                System.exit(2);
+            }
+        }
+
+        AnalysisDaemon daemon = new AnalysisDaemon(Math.max(1, workers), Math.max(1, queueCapacity), Math.max(1, recycle),
+            timeout, xmx, Paths.get(workDir), base, overrides);
+        daemon.start();
+        if (port >= 0) {
+            daemon.serve(port);
+        } else {
+            Responder stdout = new Responder(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), null);
+            daemon.read(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), stdout);
+            stdout.awaitDone();
+            daemon.shutdown();
+        }
+    }
+
+    /** Starts the worker threads; worker JVMs are started on their first request. */
+    void start() throws IOException {
+        Files.createDirectories(workDir);
+        for (int i = 0; i < workers; i++) {
+            Worker w = new Worker(i);
+            pool.add(w);
+            Thread t = new Thread(() -> work(w), "witup-daemon-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Worker w : pool) {
+                Process p = w.process;
+                if (p != null) p.destroyForcibly();
+            }
+        }));
+    }
+
+    /** Accepts clients on the loopback interface until the process is stopped. */
+    void serve(int port) throws IOException {
+        Path tokenFile = workDir.resolve("token");
+        String token = writeToken(tokenFile);
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.printf("[witup] daemon listening on %s:%d with %d worker(s), token in %s%n",
+                server.getInetAddress().getHostAddress(), server.getLocalPort(), workers, tokenFile);
+            while (true) {
+                Socket client = server.accept();
+                Thread t = new Thread(() -> {
+                    try {
+                        Responder r = new Responder(new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)), client);
+                        read(new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)), r, token);
+                    } catch (IOException e) {
+                        closeQuietly(client);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        closeQuietly(client);
+                    }
+                }, "witup-daemon-client");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    /**
+     * Writes a new random token to file, readable by the owner only where the file system
+     * supports POSIX permissions, and returns it.
+     */
+    static String writeToken(Path file) throws IOException {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        Files.deleteIfExists(file);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+        Files.write(file, token.toString().getBytes(StandardCharsets.UTF_8));
+        return token.toString();
+    }
+
+    /** Reads requests from stdin, see {@link #read(BufferedReader, Responder, String)}. */
+    void read(BufferedReader in, Responder responder) throws IOException, InterruptedException {
+        read(in, responder, null);
+    }
+
+    /**
+     * Reads requests until in ends and queues them; blocks while the queue is full. Malformed
+     * requests are answered right away with status "invalid". With a token (socket clients),
+     * every request must carry it, and reading stops at the first invalid line.
+     */
+    void read(BufferedReader in, Responder responder, String token) throws IOException, InterruptedException {
+        Path base = Paths.get("").toAbsolutePath();
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            Request request;
+            try {
+                if (token != null) checkToken(line, token);
+                request = parseRequest(line, base, baseConfig);
+            } catch (RuntimeException e) {
+                responder.answer(Collections.singletonList(statusLine(null, "invalid", e.getMessage(), 0, 0, -1)), false);
+                if (token != null) break;
+                continue;
+            }
+            responder.accepted();
+            queue.put(new Pending(request, responder));
+        }
+        responder.inputClosed();
+    }
+
+    private void work(Worker w) {
+        while (true) {
+            Pending pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Request request = pending.request;
+            List<String> overrides = new ArrayList<>(globalOverrides);
+            overrides.addAll(request.job.overrides);
+            ConfigResult result;
+            try {
+                result = w.run(new Job(request.job.config, overrides));
+            } catch (IOException | RuntimeException e) {
+                result = new ConfigResult();
+                result.status = "error";
+                result.error = e.toString();
+            } catch (InterruptedException e) {
+                return;
+            }
+            System.err.printf("[witup] %s: %s, %d site(s), %d ms (worker %d)%n",
+                request.id != null ? request.id : request.job.id(), result.status, result.sites.size(), result.elapsedMillis, w.index);
+            pending.responder.answer(answerLines(request.id, result, w.index), true);
+        }
+    }
+
+    /** Stops the worker JVMs; call once every queued request has been answered. */
+    void shutdown() throws InterruptedException {
+        for (Worker w : pool) {
+            w.stop();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private static void checkToken(String line, String token) {
+        JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+        JsonElement given = o.get("token");
+        if (given == null || !given.isJsonPrimitive() || !MessageDigest.isEqual(
+                given.getAsString().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new IllegalArgumentException("missing or wrong \"token\"");
+        }
+    }
+
+    /**
+     * Parses one request line. A request names either a config (relative paths resolved against
+     * base when they do not exist as given) or a target and symbolic.method run with baseConfig;
+     * "properties" are added as overrides (only keys in REQUEST_PROPERTY_PREFIXES), "classpath"
+     * sets the classpath of a target request.
+     */
+    static Request parseRequest(String line, Path base, String baseConfig) {
+        JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+        String id = o.has("id") && !o.get("id").isJsonNull() ? o.get("id").getAsString() : null;
+        if (o.has("properties")) {
+            for (String key : o.getAsJsonObject("properties").keySet()) {
+                if (REQUEST_PROPERTY_PREFIXES.stream().noneMatch(key::startsWith)) {
+                    throw new IllegalArgumentException("property " + key + " not allowed; requests may set "
+                        + String.join("*, ", REQUEST_PROPERTY_PREFIXES) + "* keys");
+                }
+            }
+        }
+        if (o.has("config")) {
+            return new Request(id, BatchRunner.parseManifestLine(line, base));
+        }
+        if (!o.has("target") || !o.has("method")) {
+            throw new IllegalArgumentException("request needs \"config\", or \"target\" and \"method\"");
+        }
+        List<String> overrides = new ArrayList<>();
+        overrides.add("+target=" + o.get("target").getAsString());
+        overrides.add("+symbolic.method=" + o.get("method").getAsString());
+        if (o.has("classpath")) {
+            overrides.add("+classpath=" + o.get("classpath").getAsString());
+        }
+        if (o.has("properties")) {
+            for (Map.Entry<String, JsonElement> e : o.getAsJsonObject("properties").entrySet()) {
+                overrides.add("+" + e.getKey() + "=" + e.getValue().getAsString());
+            }
+        }
+        return new Request(id, new Job(baseConfig, overrides));
+    }
+
+    /** Answer lines for one request: one per site, then the status line. */
+    static List<String> answerLines(String id, ConfigResult result, int worker) {
+        List<String> lines = new ArrayList<>(result.sites.size() + 1);
+        for (ExceptionSite site : result.sites) {
+            JsonObject o = new JsonObject();
+            o.addProperty("id", id);
+            o.add("site", GSON.toJsonTree(site));
+            lines.add(GSON.toJson(o));
+        }
+        lines.add(statusLine(id, result.status, result.error, result.sites.size(), result.elapsedMillis, worker));
+        return lines;
+    }
+
+    private static String statusLine(String id, String status, String error, int sites, long elapsedMillis, int worker) {
+        JsonObject o = new JsonObject();
+        o.addProperty("id", id);
+        o.addProperty("status", status);
+        if (error != null) o.addProperty("error", error);
+        o.addProperty("sites", sites);
+        o.addProperty("elapsedMillis", elapsedMillis);
+        if (worker >= 0) o.addProperty("worker", worker);
+        return GSON.toJson(o);
+    }
+
+    /**
+     * Worker side: runs one Job per stdin line and answers with its ConfigResult on the original
+     * stdout. System.out is pointed at stderr first, so JPF's own console output (which goes to
+     * the worker log) cannot corrupt the protocol.
+     */
+    private static void runWorker() throws IOException {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        System.setOut(System.err);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            Job job = GSON.fromJson(line, Job.class);
+            System.err.println("[witup] worker: " + job.id());
+            ConfigResult result = BatchRunner.runConfig(job, Collections.<String>emptyList());
+            protocol.println(GSON.toJson(result));
+        }
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.SiteKey;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs many .jpf configs back to back inside one JVM, each in a fresh JPF instance, so JVM
+ * startup, JPF class loading and JIT warm-up are paid once per batch instead of once per config.
+ * Results are collected per config from the run's ExceptionConditionListener and written as one
+ * JSON report keyed by config path (plus per-config overrides, if any).
+ *
+ * <pre>
+ * BatchRunner [-o report.json] [--check-state-matching] &lt;dir | manifest.jsonl | config.jpf&gt;... [+key=value ...]
+ * </pre>
+ * A directory contributes all *.jpf files in it (sorted by name). A manifest has one JSON object
+ * per line: {"config": "path/to/X.jpf", "properties": {"key": "value", ...}}; relative config
+ * paths are resolved against the manifest's directory. +key=value arguments apply to every config.
+ * --check-state-matching runs every config twice, as configured and with SymbolicStateSet as the
+ * state store, and fails it with status "mismatch" if the distinct sites differ.
+ */
+public class BatchRunner {
+
+    static final String DEFAULT_REPORT = "target/witup/batch-report.json";
+
+    /** Status of a run that a witup.budget.* limit ended early; its sites are partial. */
+    static final String INCOMPLETE = "incomplete";
+
+    static final String SYMBOLIC_STATE_SET = "+vm.storage.class=" + SymbolicStateSet.class.getName();
+
+    private static final Gson GSON_PRETTY = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    /** One config to run plus its own property overrides (+key=value). */
+    static final class Job {
+        final String config;
+        final List<String> overrides;
+
+        Job(String config, List<String> overrides) {
+            this.config = config;
+            this.overrides = overrides;
+        }
+
+        /** Report key: the config path, followed by its own overrides when it has any. */
+        String id() {
+            return overrides.isEmpty() ? config : config + " " + String.join(" ", overrides);
+        }
+    }
+
+    /** Outcome of one config; serialized as an entry of the batch report. */
+    static final class ConfigResult {
+        String status;
+        String error;
+        long elapsedMillis;
+        /** Time from search start to the first exception condition; -1 if none (or cached). */
+        long firstConditionMillis = -1;
+        List<ExceptionSite> sites = new ArrayList<>();
+        /** Work done when the run explored one partition (witup.partition.*); null otherwise. */
+        SearchPartition.Stats partition;
+        /** Solver cache counters when witup.solver_cache is on; null otherwise. */
+        SolverCache.Stats solverCache;
+        /** State matching counters when SymbolicStateSet is the state store; null otherwise. */
+        SymbolicStateSet.Stats stateMatching;
+        /** Time of the run without state matching (--check-state-matching only); null otherwise. */
+        Long baselineMillis;
+        /** Budget use and coverage reached when a witup.budget.* limit is set; null otherwise. */
+        RunBudget.Stats budget;
+        /** States, solver calls, timings and peak heap when witup.metrics.dir is set; null otherwise. */
+        RunMetrics.Stats metrics;
+        /** Witnesses solved and left unsolved when witup.witness is on; null otherwise. */
+        WitnessSolver.Stats witnesses;
+        /** Sites and conjuncts before and after merging when witup.simplify is on; null otherwise. */
+        ConditionSimplifier.Stats simplification;
+        /** Summaries applied and stored when witup.summaries.dir is set; null otherwise. */
+        MethodSummaries.Stats summaries;
+        /** Throw events seen and rejected when a witup.filter.* option is set; null otherwise. */
+        ThrowFilter.Stats filter;
+        /** Pruned paths and their reasons per throw location when witup.prune is on; null otherwise. */
+        SitePruner.Stats pruning;
+        /** True if the sites came from the AnalysisCache instead of a search. */
+        boolean cached;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String report = DEFAULT_REPORT;
+        List<String> inputs = new ArrayList<>();
+        List<String> globalOverrides = new ArrayList<>();
+        boolean checkStateMatching = false;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (("-o".equals(a) || "--output".equals(a)) && i + 1 < args.length) {
+                report = args[++i];
+            } else if ("--check-state-matching".equals(a)) {
+                checkStateMatching = true;
+            } else if (a.startsWith("+")) {
+                globalOverrides.add(a);
+            } else {
+                inputs.add(a);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("usage: BatchRunner [-o report.json] [--check-state-matching] <dir | manifest.jsonl | config.jpf>... [+key=value ...]");
+            System.exit(2);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (String input : inputs) {
+            jobs.addAll(expand(Paths.get(input)));
+        }
+
+        Map<String, ConfigResult> results = new LinkedHashMap<>();
+        int failed = 0;
+        int incomplete = 0;
+        long start = System.nanoTime();
+        for (Job job : jobs) {
+            ConfigResult result = checkStateMatching
+                ? checkStateMatching(job, globalOverrides) : runConfig(job, globalOverrides);
+            results.put(job.id(), result);
+            if (isFailure(result.status)) failed++;
+            if (INCOMPLETE.equals(result.status)) incomplete++;
+            System.err.printf("[witup] %s: %s%s, %d site(s), %d ms%n",
+                job.id(), result.status, result.cached ? " (cached)" : "", result.sites.size(), result.elapsedMillis);
+        }
+
+        writeReport(Paths.get(report), results);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        System.err.printf("[witup] %d config(s), %d failed, %d incomplete, %d ms (%.0f config(s)/h); report: %s%n",
+            jobs.size(), failed, incomplete, elapsed, perHour(jobs.size(), elapsed), report);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /** True for statuses other than ok and incomplete (partial results are not failures). */
+    static boolean isFailure(String status) {
+        return !"ok".equals(status) && !INCOMPLETE.equals(status);
+    }
+
+    /** Throughput for the summary line; with one method per config (DriverGenerator) it is methods per hour. */
+    static double perHour(int count, long elapsedMillis) {
+        return elapsedMillis <= 0 ? 0 : count * 3_600_000.0 / elapsedMillis;
+    }
+
+    /** Expands a directory, JSONL manifest or single .jpf file into jobs. */
+    static List<Job> expand(Path input) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            List<Path> configs = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(input, "*.jpf")) {
+                for (Path p : ds) {
+                    configs.add(p);
+                }
+            }
+            Collections.sort(configs);
+            for (Path p : configs) {
+                jobs.add(new Job(p.toString(), Collections.<String>emptyList()));
+            }
+        } else if (input.toString().endsWith(".jsonl")) {
+            Path base = input.toAbsolutePath().getParent();
+            try (BufferedReader r = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    jobs.add(parseManifestLine(line, base));
+                }
+            }
+        } else {
+            jobs.add(new Job(input.toString(), Collections.<String>emptyList()));
+        }
+        return jobs;
+    }
+
+    static Job parseManifestLine(String line, Path base) {
+        JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+        Path config = Paths.get(o.get("config").getAsString());
+        if (!config.isAbsolute() && base != null && !Files.exists(config)) {
+            config = base.resolve(config);
+        }
+        List<String> overrides = new ArrayList<>();
+        if (o.has("properties")) {
+            for (Map.Entry<String, JsonElement> e : o.getAsJsonObject("properties").entrySet()) {
+                overrides.add("+" + e.getKey() + "=" + e.getValue().getAsString());
+            }
+        }
+        return new Job(config.toString(), overrides);
+    }
+
+    /**
+     * Runs one config in a fresh JPF instance and returns its distinct exception sites. The stdout
+     * summary block is turned off; errors are reported in the result instead of aborting the batch.
+     * With witup.cache.dir set, unchanged configs are answered from the AnalysisCache.
+     */
+    static ConfigResult runConfig(Job job, List<String> globalOverrides) {
+        ConfigResult result = new ConfigResult();
+        long start = System.nanoTime();
+        try {
+            List<String> args = new ArrayList<>();
+            args.add(job.config);
+            args.add("+witup.report.stdout=false");
+            args.addAll(globalOverrides);
+            args.addAll(job.overrides);
+            Config conf = JPF.createConfig(args.toArray(new String[0]));
+            AnalysisCache cache = AnalysisCache.fromConfig(conf);
+            List<ExceptionSite> cachedSites = cache != null ? cache.get(AnalysisCache.key(conf)) : null;
+            if (cachedSites != null) {
+                result.sites.addAll(cachedSites);
+                result.cached = true;
+                result.status = "ok";
+                result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                return result;
+            }
+            JPF jpf = new JPF(conf);
+            ExceptionConditionListener listener = jpf.getListenerOfType(ExceptionConditionListener.class);
+            if (listener == null) {
+                listener = new ExceptionConditionListener(conf);
+                jpf.addListener(listener);
+            }
+            jpf.run();
+            result.sites.addAll(listener.getExceptionSites());
+            result.partition = listener.getPartitionStats();
+            result.solverCache = listener.getSolverCacheStats();
+            result.stateMatching = listener.getStateMatchingStats();
+            result.summaries = listener.getSummaryStats();
+            result.witnesses = listener.getWitnessStats();
+            result.simplification = listener.getSimplifierStats();
+            result.metrics = listener.getRunMetrics();
+            result.budget = listener.getBudgetStats();
+            result.filter = listener.getFilterStats();
+            result.pruning = listener.getPruningStats();
+            result.firstConditionMillis = listener.getFirstConditionMillis();
+            if (listener.isComplete()) {
+                result.status = "ok";
+            } else {
+                result.status = INCOMPLETE;
+                result.error = "witup.budget " + result.budget.exhausted + " exhausted; sites are partial";
+            }
+        } catch (RuntimeException | Error e) {
+            result.status = "error";
+            result.error = e.toString();
+        }
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Runs job without and then with SymbolicStateSet and reports the second run. Its status becomes
+     * "mismatch" if the two runs found different distinct sites (hit counts are not compared, as
+     * matched states are not re-explored).
+     */
+    static ConfigResult checkStateMatching(Job job, List<String> globalOverrides) {
+        ConfigResult baseline = runConfig(job, globalOverrides);
+        List<String> overrides = new ArrayList<>(globalOverrides);
+        overrides.add(SYMBOLIC_STATE_SET);
+        ConfigResult result = runConfig(job, overrides);
+        result.baselineMillis = baseline.elapsedMillis;
+        if (!"ok".equals(baseline.status)) {
+            result.status = baseline.status;
+            result.error = "without state matching: " + baseline.error;
+        } else if ("ok".equals(result.status)) {
+            String diff = compareSites(baseline.sites, result.sites);
+            if (diff != null) {
+                result.status = "mismatch";
+                result.error = diff;
+            }
+        }
+        return result;
+    }
+
+    /** Describes how the distinct sites of actual differ from expected, or returns null if they agree. */
+    static String compareSites(List<ExceptionSite> expected, List<ExceptionSite> actual) {
+        Set<SiteKey> expectedKeys = new HashSet<>();
+        for (ExceptionSite s : expected) {
+            expectedKeys.add(s.key());
+        }
+        Set<SiteKey> actualKeys = new HashSet<>();
+        for (ExceptionSite s : actual) {
+            actualKeys.add(s.key());
+        }
+        int missing = 0;
+        for (SiteKey k : expectedKeys) {
+            if (!actualKeys.contains(k)) missing++;
+        }
+        int extra = 0;
+        for (SiteKey k : actualKeys) {
+            if (!expectedKeys.contains(k)) extra++;
+        }
+        if (missing == 0 && extra == 0) return null;
+        return String.format("%d site(s) missing and %d extra with state matching", missing, extra);
+    }
+
+    static void writeReport(Path report, Object results) throws IOException {
+        Path parent = report.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer w = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            GSON_PRETTY.toJson(results, w);
+            w.write('\n');
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Merges the sites reported for one throw location into a single condition in disjunctive
+ * normal form. A location reached along several paths (branches before the throw, nested ifs)
+ * is otherwise reported once per path, with overlapping conditions. At search end the sites are
+ * grouped by exception, method and line (and summarized callee, if any); each site contributes
+ * its conjuncts as one disjunct, and the disjunction is simplified:
+ * <ul>
+ * <li>duplicate conjuncts and duplicate disjuncts are dropped;</li>
+ * <li>a disjunct that contains all conjuncts of another one is subsumed and dropped;</li>
+ * <li>complementary conjuncts are resolved: (S &amp;&amp; c) || (T &amp;&amp; !c) with S a
+ * subset of T becomes (S &amp;&amp; c) || T, so the two paths of a branch collapse into one
+ * disjunct.</li>
+ * </ul>
+ * The merged site carries the summed hits and the first witness among its sites. Besides, when the
+ * simplifier is on the formatter leaves out constraints that hold for every value of their
+ * variable within the bounds jpf-symbc gives it (symbolic.min_int, symbolic.max_double, ...),
+ * such as "a &gt;= -100" with symbolic.min_int = -100.
+ *
+ * Everything is syntactic, on the rendered conjuncts; "!c" is c with the complementary
+ * comparator (a &lt; b and a &gt;= b). Results are memoized per input disjunction in a cache
+ * shared by the runs of one JVM (batch runs, the daemon), and a whole run's simplified sites are
+ * stored by the AnalysisCache like any others. Sites streamed to witup.output are the raw ones.
+ *
+ * <pre>
+ * witup.simplify = false   # merge each location's conditions into one simplified disjunction
+ * </pre>
+ */
+final class ConditionSimplifier {
+
+    /** Separator between the disjuncts of a merged condition. */
+    static final String OR = " ||\n";
+
+    /** Simplified disjunctions kept in the shared memo. */
+    static final int CACHE_ENTRIES = 4096;
+
+    private static final String[] COMPARATORS = {" <= ", " >= ", " == ", " != ", " < ", " > "};
+
+    private static final Map<List<Set<String>>, List<Set<String>>> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<List<Set<String>>, List<Set<String>>>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Set<String>>, List<Set<String>>> eldest) {
+                return size() > CACHE_ENTRIES;
+            }
+        });
+
+    /** Simplification counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long sitesIn;
+        long sitesOut;
+        long conjunctsIn;
+        long conjunctsOut;
+        /** Locations whose disjunction was found in the shared memo. */
+        long cacheHits;
+        long millis;
+    }
+
+    private final Stats stats = new Stats();
+
+    /** Returns the simplifier configured in conf, or null when witup.simplify is off. */
+    static ConditionSimplifier fromConfig(Config conf) {
+        if (!conf.getBoolean("witup.simplify", false)) return null;
+        return new ConditionSimplifier();
+    }
+
+    /**
+     * True if constraint c compares a symbolic variable with a constant and holds for every value
+     * within the variable's bounds (its _min and _max, from symbolic.min_* / max_*).
+     */
+    static boolean impliedByBounds(Constraint c) {
+        Expression left = c.getLeft();
+        Expression right = c.getRight();
+        Comparator cmp = c.getComparator();
+        if (isConstant(left) && !isConstant(right)) {
+            Expression t = left;
+            left = right;
+            right = t;
+            cmp = flip(cmp);
+        }
+        double min;
+        double max;
+        if (left instanceof SymbolicInteger) {
+            min = ((SymbolicInteger) left)._min;
+            max = ((SymbolicInteger) left)._max;
+        } else if (left instanceof SymbolicReal) {
+            min = ((SymbolicReal) left)._min;
+            max = ((SymbolicReal) left)._max;
+        } else {
+            return false;
+        }
+        if (!isConstant(right) || !(min <= max)) return false;
+        double k = right instanceof IntegerConstant ? ((IntegerConstant) right).value : ((RealConstant) right).value;
+        switch (cmp) {
+            case GE: return min >= k;
+            case GT: return min > k;
+            case LE: return max <= k;
+            case LT: return max < k;
+            case NE: return k < min || k > max;
+            case EQ: return min == k && max == k;
+            default: return false;
+        }
+    }
+
+    private static boolean isConstant(Expression e) {
+        return e instanceof IntegerConstant || e instanceof RealConstant;
+    }
+
+    /** Comparator for the operands swapped: k &lt; x is x &gt; k. */
+    private static Comparator flip(Comparator cmp) {
+        switch (cmp) {
+            case LT: return Comparator.GT;
+            case LE: return Comparator.GE;
+            case GT: return Comparator.LT;
+            case GE: return Comparator.LE;
+            default: return cmp;
+        }
+    }
+
+    /**
+     * Replaces the sites of the table by one merged site per location, in order of the location's
+     * first site. A location with a single site whose condition does not simplify keeps it as is.
+     */
+    void simplify(SiteTable sites) {
+        long t0 = System.nanoTime();
+        Map<String, List<ExceptionSite>> byLocation = new LinkedHashMap<>();
+        for (ExceptionSite site : sites.sites()) {
+            byLocation.computeIfAbsent(location(site), k -> new ArrayList<>()).add(site);
+        }
+        List<ExceptionSite> merged = new ArrayList<>(byLocation.size());
+        for (List<ExceptionSite> group : byLocation.values()) {
+            merged.add(merge(group));
+        }
+        stats.sitesIn += sites.size();
+        stats.sitesOut += merged.size();
+        sites.removeIf(site -> true);
+        for (ExceptionSite site : merged) {
+            sites.add(site);
+        }
+        stats.millis += (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    private ExceptionSite merge(List<ExceptionSite> group) {
+        List<Set<String>> input = new ArrayList<>();
+        for (ExceptionSite site : group) {
+            for (Set<String> d : disjuncts(site.getCondition())) {
+                stats.conjunctsIn += d.size();
+                input.add(d);
+            }
+        }
+        List<Set<String>> dnf = CACHE.get(input);
+        if (dnf != null) {
+            stats.cacheHits++;
+        } else {
+            dnf = simplify(input);
+            CACHE.put(input, dnf);
+        }
+        for (Set<String> d : dnf) {
+            stats.conjunctsOut += d.size();
+        }
+        ExceptionSite first = group.get(0);
+        String condition = unchanged(group, dnf) ? first.getCondition() : render(dnf);
+        ExceptionSite site = new ExceptionSite(first.getThrownException(), first.getMethodSignature(),
+            first.getLineNumber(), condition);
+        int hits = 0;
+        for (ExceptionSite s : group) {
+            hits += s.getHits();
+            if (site.getWitness() == null) site.setWitness(s.getWitness());
+        }
+        site.addHits(hits - 1);
+        site.setSummaryOf(first.getSummaryOf());
+        return site;
+    }
+
+    /** True if the group is one site whose condition already is the simplified form. */
+    private static boolean unchanged(List<ExceptionSite> group, List<Set<String>> dnf) {
+        return group.size() == 1 && disjuncts(group.get(0).getCondition()).equals(dnf);
+    }
+
+    /**
+     * Simplifies a disjunction of conjunct sets: drops duplicates and subsumed disjuncts and
+     * resolves complementary conjuncts until nothing changes. The first disjunct that survives
+     * keeps its position; an empty disjunct (true) makes the result that single disjunct.
+     */
+    static List<Set<String>> simplify(List<Set<String>> disjunction) {
+        List<Set<String>> ds = new ArrayList<>();
+        for (Set<String> d : new LinkedHashSet<>(disjunction)) {
+            ds.add(new TreeSet<>(d));
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = removeSubsumed(ds);
+            changed |= resolve(ds);
+        }
+        List<Set<String>> result = new ArrayList<>(ds.size());
+        for (Set<String> d : ds) {
+            result.add(Collections.unmodifiableSet(d));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /** Drops disjuncts that contain another disjunct (or equal an earlier one). */
+    private static boolean removeSubsumed(List<Set<String>> ds) {
+        boolean changed = false;
+        for (int i = 0; i < ds.size(); i++) {
+            Set<String> d = ds.get(i);
+            for (int j = 0; j < ds.size(); j++) {
+                Set<String> other = ds.get(j);
+                if (i != j && d.containsAll(other) && (d.size() > other.size() || j < i)) {
+                    ds.remove(i--);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * One pass of resolution: for d = S + {c} and e = T + {!c} with S a subset of T, !c is
+     * dropped from e. Returns true if any conjunct was dropped.
+     */
+    private static boolean resolve(List<Set<String>> ds) {
+        boolean changed = false;
+        for (Set<String> d : ds) {
+            for (String c : d) {
+                String negated = negate(c);
+                if (negated == null) continue;
+                for (Set<String> e : ds) {
+                    if (e != d && e.contains(negated) && containsAllBut(e, d, c)) {
+                        e.remove(negated);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /** True if e contains every conjunct of d except skip. */
+    private static boolean containsAllBut(Set<String> e, Set<String> d, String skip) {
+        if (e.size() < d.size()) return false;
+        for (String c : d) {
+            if (!c.equals(skip) && !e.contains(c)) return false;
+        }
+        return true;
+    }
+
+    /** The conjunct with the complementary comparator ("a < b" for "a >= b"), or null if c is no comparison. */
+    static String negate(String c) {
+        int depth = 0;
+        for (int i = 0; i < c.length(); i++) {
+            char ch = c.charAt(i);
+            if (ch == '(') depth++;
+            else if (ch == ')') depth--;
+            else if (ch == ' ' && depth == 0) {
+                for (String op : COMPARATORS) {
+                    if (c.startsWith(op, i)) {
+                        return c.substring(0, i) + complement(op) + c.substring(i + op.length());
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String complement(String op) {
+        switch (op) {
+            case " <= ": return " > ";
+            case " >= ": return " < ";
+            case " == ": return " != ";
+            case " != ": return " == ";
+            case " < ": return " >= ";
+            default: return " <= ";
+        }
+    }
+
+    /**
+     * Disjuncts of a rendered condition, each as its whitespace-normalized conjuncts; a condition
+     * merged before (joined by OR) is split back. Null or "" is the single empty disjunct (true).
+     */
+    static List<Set<String>> disjuncts(String condition) {
+        List<Set<String>> result = new ArrayList<>();
+        List<String> parts = condition == null ? Collections.<String>emptyList()
+            : ExceptionConditionListener.splitTopLevel(condition, "||");
+        if (parts.size() <= 1) {
+            result.add(SitePruner.conjuncts(condition));
+            return result;
+        }
+        for (String part : parts) {
+            result.add(SitePruner.conjuncts(unwrap(part.trim())));
+        }
+        return result;
+    }
+
+    /** Strips one pair of parentheses enclosing all of s. */
+    private static String unwrap(String s) {
+        if (s.length() < 2 || s.charAt(0) != '(' || s.charAt(s.length() - 1) != ')') return s;
+        int depth = 0;
+        for (int i = 0; i < s.length() - 1; i++) {
+            char ch = s.charAt(i);
+            if (ch == '(') depth++;
+            else if (ch == ')') depth--;
+            if (depth == 0) return s;
+        }
+        return s.substring(1, s.length() - 1);
+    }
+
+    /**
+     * Renders a simplified disjunction: a single disjunct as one conjunct per line, like the
+     * formatter, otherwise one disjunct per line, parenthesized when it has several conjuncts or
+     * starts with a parenthesis (so that disjuncts can strip one pair again).
+     */
+    static String render(List<Set<String>> dnf) {
+        if (dnf.size() == 1) return String.join(PathConditionFormatter.AND, dnf.get(0));
+        StringBuilder sb = new StringBuilder();
+        for (Set<String> d : dnf) {
+            if (sb.length() > 0) sb.append(OR);
+            String conjunction = String.join(" && ", d);
+            if (d.size() > 1 || conjunction.startsWith("(")) sb.append('(').append(conjunction).append(')');
+            else sb.append(conjunction);
+        }
+        return sb.toString();
+    }
+
+    /** Group key: where the exception is thrown, and from which summary if instantiated. */
+    private static String location(ExceptionSite site) {
+        return site.getThrownException() + "|" + site.getMethodSignature() + "|" + site.getLineNumber()
+            + "|" + site.getSummaryOf();
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        return String.format("Simplification: %d site(s) merged into %d, %d conjunct(s) into %d, %d memo hit(s), %d ms",
+            stats.sitesIn, stats.sitesOut, stats.conjunctsIn, stats.conjunctsOut, stats.cacheHits, stats.millis);
+    }
+}
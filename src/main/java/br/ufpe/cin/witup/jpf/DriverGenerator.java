@@ -0,0 +1,399 @@
+package br.ufpe.cin.witup.jpf;
+
+import com.google.gson.JsonObject;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Generates symbolic drivers and .jpf configs in bulk for the public methods of compiled classes
+ * (a classes directory or a jar), instead of hand-writing a *JPFDriverSymbolic class per method.
+ * Each analyzed class gets one driver whose main calls the method selected by target.args; each
+ * method gets one config that makes its primitive and String parameters symbolic (other references
+ * are passed as null) and, for instance methods, the fields of the receiver (symbolic.fields =
+ * instance). The receiver comes from the public constructor with the fewest parameters, called
+ * with default values. A JSONL manifest lists every config for BatchRunner or ParallelRunner.
+ *
+ * <pre>
+ * DriverGenerator [-o dir] [--include prefix]... [--exclude prefix]... [--bundled file] [--no-compile]
+ *                 &lt;classes dir | jar&gt;... [+key=value ...]
+ * </pre>
+ * Output: dir/src (driver sources), dir/classes (compiled drivers), dir/jpf (one config per
+ * method) and dir/drivers.jsonl. --include/--exclude take class or package prefixes (longest
+ * match wins); +key=value lines are appended to every config, e.g. +symbolic.max_int=100.
+ * symbolic.method matches by name and parameter count, so same-arity overloads share a config.
+ */
+public class DriverGenerator {
+
+    static final String DEFAULT_OUTPUT = "target/witup/generated";
+    static final String DEFAULT_BUNDLED = "tools/jpf-bundled.properties";
+    static final String DRIVER_SUFFIX = "GeneratedJPFDriver";
+
+    /** Classes and methods seen, generated and skipped. */
+    static final class Stats {
+        int classesScanned;
+        int classesSkipped;
+        int methodsSelected;
+        int methodsSkipped;
+    }
+
+    /** A method to analyze: its case in the driver and, for instance methods, the receiver constructor. */
+    static final class Target {
+        final Method method;
+        final Constructor<?> receiver;
+        final int index;
+
+        Target(Method method, Constructor<?> receiver, int index) {
+            this.method = method;
+            this.receiver = receiver;
+            this.index = index;
+        }
+
+        boolean isStatic() {
+            return Modifier.isStatic(method.getModifiers());
+        }
+
+        /** symbolic.method argument list, e.g. "sym#con". */
+        String symbolicSpec() {
+            if (method.getParameterCount() == 0) return "";
+            return Arrays.stream(method.getParameterTypes())
+                .map(t -> isSymbolic(t) ? "sym" : "con")
+                .collect(Collectors.joining("#"));
+        }
+
+        boolean hasSymbolicStrings() {
+            return Arrays.asList(method.getParameterTypes()).contains(String.class);
+        }
+    }
+
+    private final Path output;
+    private final ThrowFilter.PrefixTrie filter;
+    private final String bundled;
+    private final List<String> extraProperties;
+    private final Stats stats = new Stats();
+
+    DriverGenerator(Path output, ThrowFilter.PrefixTrie filter, String bundled, List<String> extraProperties) {
+        this.output = output;
+        this.filter = filter;
+        this.bundled = bundled;
+        this.extraProperties = extraProperties;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = DEFAULT_OUTPUT;
+        String bundled = DEFAULT_BUNDLED;
+        boolean compile = true;
+        ThrowFilter.PrefixTrie filter = new ThrowFilter.PrefixTrie();
+        List<String> inputs = new ArrayList<>();
+        List<String> extra = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (("-o".equals(a) || "--output".equals(a)) && hasValue) {
+                output = args[++i];
+            } else if ("--include".equals(a) && hasValue) {
+                filter.add(args[++i], true);
+            } else if ("--exclude".equals(a) && hasValue) {
+                filter.add(args[++i], false);
+            } else if ("--bundled".equals(a) && hasValue) {
+                bundled = args[++i];
+            } else if ("--no-compile".equals(a)) {
+                compile = false;
+            } else if (a.startsWith("+")) {
+                extra.add(a.substring(1));
+            } else {
+                inputs.add(a);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("usage: DriverGenerator [-o dir] [--include prefix]... [--exclude prefix]..."
+                + " [--bundled file] [--no-compile] <classes dir | jar>... [+key=value ...]");
+            System.exit(2);
+        }
+
+        List<Path> classpath = new ArrayList<>();
+        for (String input : inputs) {
+            classpath.add(Paths.get(input).toAbsolutePath());
+        }
+        DriverGenerator generator = new DriverGenerator(Paths.get(output), filter,
+            Paths.get(bundled).toAbsolutePath().toString(), extra);
+        List<Path> sources = generator.generate(classpath);
+        Stats stats = generator.stats;
+        System.err.printf("[witup] %d class(es) scanned, %d skipped; %d method(s) selected, %d skipped; %d driver(s)%n",
+            stats.classesScanned, stats.classesSkipped, stats.methodsSelected, stats.methodsSkipped, sources.size());
+        if (compile && !sources.isEmpty() && !compile(sources, classpath, generator.output.resolve("classes"))) {
+            System.exit(1);
+        }
+        System.err.printf("[witup] manifest: %s%n", generator.output.resolve("drivers.jsonl"));
+    }
+
+    /** Writes drivers, configs and the manifest for the selected methods of classpath; returns the driver sources. */
+    List<Path> generate(List<Path> classpath) throws IOException {
+        Path src = output.resolve("src");
+        Path jpf = output.resolve("jpf");
+        Files.createDirectories(src);
+        Files.createDirectories(jpf);
+        List<String> configClasspath = new ArrayList<>();
+        for (Path p : classpath) {
+            configClasspath.add(p.toString());
+        }
+        configClasspath.add(output.resolve("classes").toAbsolutePath().toString());
+
+        List<Path> sources = new ArrayList<>();
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = classpath.get(i).toUri().toURL();
+        }
+        try (URLClassLoader loader = new URLClassLoader(urls, DriverGenerator.class.getClassLoader());
+             Writer manifest = Files.newBufferedWriter(output.resolve("drivers.jsonl"), StandardCharsets.UTF_8)) {
+            for (Path input : classpath) {
+                for (String name : classNames(input)) {
+                    if (!filter.accepts(name) || name.endsWith(DRIVER_SUFFIX)) continue;
+                    stats.classesScanned++;
+                    Class<?> type;
+                    List<Target> targets;
+                    try {
+                        type = Class.forName(name, false, loader);
+                        targets = targets(type);
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        stats.classesSkipped++;
+                        continue;
+                    }
+                    if (targets.isEmpty()) continue;
+                    Path source = src.resolve(driverName(type).replace('.', File.separatorChar) + ".java");
+                    Files.createDirectories(source.getParent());
+                    Files.write(source, driverSource(type, targets).getBytes(StandardCharsets.UTF_8));
+                    sources.add(source);
+                    for (Target t : targets) {
+                        String file = type.getName() + "." + t.method.getName() + "." + t.index + ".jpf";
+                        Files.write(jpf.resolve(file), config(type, t, bundled, configClasspath, extraProperties)
+                            .getBytes(StandardCharsets.UTF_8));
+                        JsonObject line = new JsonObject();
+                        line.addProperty("config", "jpf/" + file);
+                        manifest.write(line.toString());
+                        manifest.write('\n');
+                    }
+                }
+            }
+        }
+        return sources;
+    }
+
+    /** Binary names of the classes in a directory or jar, sorted. */
+    static List<String> classNames(Path input) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                files.filter(p -> p.toString().endsWith(".class"))
+                    .forEach(p -> names.add(input.relativize(p).toString().replace(File.separatorChar, '/')));
+            }
+        } else {
+            try (ZipFile jar = new ZipFile(input.toFile())) {
+                Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String entry = entries.nextElement().getName();
+                    if (entry.endsWith(".class")) names.add(entry);
+                }
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (String n : names) {
+            if (n.startsWith("META-INF/") || n.endsWith("module-info.class") || n.endsWith("package-info.class")) continue;
+            result.add(n.substring(0, n.length() - ".class".length()).replace('/', '.'));
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * Public, non-synthetic methods declared by type that a generated driver can call, in a stable
+     * order. Instance methods need a public constructor of a concrete class.
+     */
+    List<Target> targets(Class<?> type) {
+        List<Target> targets = new ArrayList<>();
+        if (!isAccessible(type) || type.isInterface() || type.isAnnotation() || type.getCanonicalName() == null) {
+            return targets;
+        }
+        Constructor<?> receiver = receiverConstructor(type);
+        Method[] methods = type.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName).thenComparing(Method::toGenericString));
+        for (Method m : methods) {
+            int mod = m.getModifiers();
+            if (!Modifier.isPublic(mod) || m.isSynthetic() || m.isBridge()) continue;
+            boolean isStatic = Modifier.isStatic(mod);
+            if ((isStatic && "main".equals(m.getName())) || (!isStatic && receiver == null) || !hasSourceNames(m)) {
+                stats.methodsSkipped++;
+                continue;
+            }
+            stats.methodsSelected++;
+            targets.add(new Target(m, isStatic ? null : receiver, targets.size()));
+        }
+        return targets;
+    }
+
+    /** True if type (and every class enclosing it) is public and nested classes are static. */
+    private static boolean isAccessible(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) return false;
+            if (c.getEnclosingClass() != null && !Modifier.isStatic(c.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    /** Public constructor with the fewest parameters, used to build receivers; null for abstract classes and enums. */
+    static Constructor<?> receiverConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()) || type.isEnum()) return null;
+        Constructor<?> best = null;
+        for (Constructor<?> c : type.getConstructors()) {
+            if (!hasSourceNames(c)) continue;
+            if (best == null || c.getParameterCount() < best.getParameterCount()) best = c;
+        }
+        return best;
+    }
+
+    /** True if every parameter type of e can be named in the driver source. */
+    private static boolean hasSourceNames(Executable e) {
+        for (Class<?> t : e.getParameterTypes()) {
+            while (t.isArray()) {
+                t = t.getComponentType();
+            }
+            if (!t.isPrimitive() && (t.getCanonicalName() == null || !isAccessible(t))) return false;
+        }
+        return true;
+    }
+
+    static boolean isSymbolic(Class<?> t) {
+        return t.isPrimitive() || t == String.class;
+    }
+
+    /** Fully qualified name of the driver generated for type, in type's package. */
+    static String driverName(Class<?> type) {
+        String pkg = type.getPackage() != null ? type.getPackage().getName() : "";
+        String simple = type.getName().substring(pkg.isEmpty() ? 0 : pkg.length() + 1).replace('$', '_');
+        return (pkg.isEmpty() ? "" : pkg + ".") + simple + DRIVER_SUFFIX;
+    }
+
+    static String driverSource(Class<?> type, List<Target> targets) {
+        String name = driverName(type);
+        int dot = name.lastIndexOf('.');
+        StringBuilder sb = new StringBuilder();
+        if (dot > 0) {
+            sb.append("package ").append(name, 0, dot).append(";\n\n");
+        }
+        sb.append("/** Generated by DriverGenerator: target.args selects the method of ")
+            .append(type.getCanonicalName()).append(" to run. */\n");
+        sb.append("public class ").append(name.substring(dot + 1)).append(" {\n\n");
+        sb.append("    public static void main(String[] args) throws Throwable {\n");
+        sb.append("        switch (Integer.parseInt(args[0])) {\n");
+        for (Target t : targets) {
+            sb.append("            case ").append(t.index).append(":\n");
+            sb.append("                ");
+            if (t.isStatic()) {
+                sb.append(type.getCanonicalName());
+            } else {
+                sb.append("new ").append(type.getCanonicalName()).append('(');
+                arguments(sb, t.receiver.getParameterTypes());
+                sb.append(')');
+            }
+            sb.append('.').append(t.method.getName()).append('(');
+            arguments(sb, t.method.getParameterTypes());
+            sb.append(");\n");
+            sb.append("                break;\n");
+        }
+        sb.append("            default:\n");
+        sb.append("                throw new IllegalArgumentException(args[0]);\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void arguments(StringBuilder sb, Class<?>[] types) {
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(defaultValue(types[i]));
+        }
+    }
+
+    /** Java source for a default argument of type t; symbolic parameters get their value from jpf-symbc. */
+    static String defaultValue(Class<?> t) {
+        if (t == boolean.class) return "false";
+        if (t == int.class) return "0";
+        if (t == long.class) return "0L";
+        if (t == float.class) return "0.0f";
+        if (t == double.class) return "0.0";
+        if (t == byte.class || t == short.class || t == char.class) return "(" + t.getName() + ") 0";
+        if (t == String.class) return "\"\"";
+        return "(" + t.getCanonicalName() + ") null";
+    }
+
+    static String config(Class<?> type, Target t, String bundled, List<String> classpath, List<String> extra) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Generated by DriverGenerator for ").append(t.method.toGenericString()).append('\n');
+        sb.append("@include = ").append(bundled).append('\n');
+        sb.append("classpath = ").append(String.join(";", classpath)).append('\n');
+        sb.append("target = ").append(driverName(type)).append('\n');
+        sb.append("target.args = ").append(t.index).append('\n');
+        sb.append("listener = ").append(ExceptionConditionListener.class.getName()).append('\n');
+        sb.append("symbolic.method = ").append(type.getName()).append('.').append(t.method.getName())
+            .append('(').append(t.symbolicSpec()).append(")\n");
+        if (!t.isStatic()) {
+            sb.append("symbolic.fields = instance\n");
+        }
+        if (t.hasSymbolicStrings()) {
+            sb.append("symbolic.string_dp = automata\n");
+            sb.append("symbolic.string_dp_timeout_ms = 3000\n");
+        }
+        sb.append("search.multiple_errors = true\n");
+        for (String e : extra) {
+            int eq = e.indexOf('=');
+            sb.append(eq < 0 ? e : e.substring(0, eq) + " = " + e.substring(eq + 1)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Compiles the driver sources against classpath into classes; false (with a message) on failure. */
+    static boolean compile(List<Path> sources, List<Path> classpath, Path classes) throws IOException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            System.err.printf("[witup] no Java compiler available; compile %s into %s%n", sources.get(0).getParent(), classes);
+            return false;
+        }
+        Files.createDirectories(classes);
+        List<String> args = new ArrayList<>(Arrays.asList("-nowarn", "-d", classes.toString(), "-cp",
+            classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator))));
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            args.addAll(Arrays.asList("--release", "8"));
+        }
+        for (Path s : sources) {
+            args.add(s.toString());
+        }
+        return javac.run(null, null, null, args.toArray(new String[0])) == 0;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+}
@@ -2,29 +2,69 @@ package br.ufpe.cin.witup.jpf;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ElementInfo;
 import gov.nasa.jpf.vm.FieldInfo;
 import gov.nasa.jpf.vm.Instruction;
 import gov.nasa.jpf.vm.LocalVarInfo;
 import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
 import gov.nasa.jpf.vm.Types;
 import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.symbc.numeric.Expression;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.search.Search;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * JPF listener that collects and reports conditions that may lead to thrown exceptions.
  * Works for any project. Prefers PCChoiceGenerator (jpf-symbc) for symbolic path
  * conditions when available; falls back to IntChoiceGenerator for concrete value pairs.
+ *
+ * Configuration (all optional):
+ * <pre>
+ * witup.lazy_conditions = false   # capture the PathCondition on throw, format in searchFinished
+ * witup.finalize_threads = 1      # threads used to format lazily captured sites (0 = all cores)
+ * witup.output =                  # file that receives one compact JSON line per new distinct site
+ * witup.output.flush_interval_ms = 1000
+ * witup.report.stdout = true      # print the EXCEPTION CONDITIONS summary block at search end
+ * witup.result =                  # write the sites as a versioned JSON document at search end, see ResultFile
+ * witup.partition.count/id/depth   # explore one partition of the search, see SearchPartition
+ * witup.cache.dir/max_mb           # store the sites in the on-disk AnalysisCache at search end
+ * witup.solver_cache = false       # memoize branch satisfiability checks, see SolverCache
+ * witup.prune = false              # prune paths subsumed at every reachable throw site, see SitePruner
+ * witup.filter.*                   # drop throws by origin, type or catching handler, see ThrowFilter
+ * witup.state.subsumption = false  # with vm.storage.class = SymbolicStateSet, see there
+ * witup.summaries.dir =            # reuse stored exception summaries of callees, see MethodSummaries
+ * witup.metrics.dir =              # write run metrics as JSON and Prometheus text, see RunMetrics
+ * witup.budget.seconds/states/depth/heap_fraction = 0  # end the run early with partial sites, see RunBudget
+ * witup.witness = false            # solve each site for concrete inputs at search end, see WitnessSolver
+ * witup.simplify = false           # merge each location's conditions into one simplified DNF, see ConditionSimplifier
+ * </pre>
  */
 public class ExceptionConditionListener extends ListenerAdapter {
 
@@ -43,37 +83,95 @@ public class ExceptionConditionListener extends ListenerAdapter {
      * - Operators (>, <, ==, +, -, etc.) pass through unchanged
      */
     static String formatConditionForUser(String raw, MethodInfo methodInfo) {
+        return formatCondition(raw, methodInfo != null ? getFormatInfo(methodInfo) : null);
+    }
+
+    /** As above, with the method's formatting metadata already looked up (null: no qualification). */
+    static String formatCondition(String raw, MethodFormatInfo info) {
         if (raw == null || raw.isEmpty()) return raw;
         String s = raw;
         s = s.replaceFirst("(?m)^constraint\\s*#\\s*=\\s*\\d+\\s*\\n?", "");
         s = SYM_SUFFIX.matcher(s).replaceAll("");
         s = CONST_PREFIX.matcher(s).replaceAll("$1");
         s = s.trim();
-        if (methodInfo != null) {
-            s = qualifyInstanceFields(s, methodInfo);
+        if (info != null) {
+            s = qualifyInstanceFields(s, info);
         }
         return s;
     }
 
     /**
-     * Qualifies instance field names as "this.fieldName" when they appear in the condition
-     * and are not method parameters. Uses MethodInfo to distinguish parameters from fields.
+     * Per-method formatting metadata, computed once per MethodInfo. Weak keys let entries go away
+     * together with the JPF instance that loaded the method.
      */
-    private static String qualifyInstanceFields(String condition, MethodInfo methodInfo) {
-        Set<String> paramNames = getParameterNames(methodInfo);
-        Set<String> fieldNames = getInstanceFieldNames(methodInfo);
-        if (fieldNames.isEmpty()) return condition;
-        String result = condition;
-        for (String fieldName : fieldNames) {
-            if (!paramNames.contains(fieldName)) {
-                result = result.replaceAll("\\b" + Pattern.quote(fieldName) + "\\b", "this." + fieldName);
+    private static final Map<MethodInfo, MethodFormatInfo> FORMAT_INFO_CACHE =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Parameter names, instance field names (including superclasses) and a single precompiled
+     * matcher for the fields that need qualification ("this.f") in conditions of one method.
+     */
+    static final class MethodFormatInfo {
+        final Set<String> parameterNames;
+        final Set<String> fieldNames;
+        /** Matches any instance field that is not shadowed by a parameter; null if there is none. */
+        final Pattern qualifiedFields;
+
+        MethodFormatInfo(Set<String> parameterNames, Set<String> fieldNames) {
+            this.parameterNames = parameterNames;
+            this.fieldNames = fieldNames;
+            StringBuilder alternation = new StringBuilder();
+            for (String fieldName : fieldNames) {
+                if (!parameterNames.contains(fieldName)) {
+                    if (alternation.length() > 0) alternation.append('|');
+                    alternation.append(Pattern.quote(fieldName));
+                }
             }
+            this.qualifiedFields = alternation.length() > 0
+                ? Pattern.compile("\\b(?:" + alternation + ")\\b")
+                : null;
+        }
+
+        /** True if the given variable name refers to an instance field rather than a parameter. */
+        boolean isInstanceField(String name) {
+            return fieldNames.contains(name) && !parameterNames.contains(name);
         }
-        return result;
     }
 
-    private static Set<String> getParameterNames(MethodInfo mi) {
-        Set<String> names = new HashSet<>();
+    static MethodFormatInfo getFormatInfo(MethodInfo mi) {
+        MethodFormatInfo info = FORMAT_INFO_CACHE.get(mi);
+        if (info == null) {
+            info = computeFormatInfo(mi);
+            FORMAT_INFO_CACHE.put(mi, info);
+        }
+        return info;
+    }
+
+    /** Uncached getFormatInfo: walks mi's class hierarchy and compiles the field matcher. */
+    static MethodFormatInfo computeFormatInfo(MethodInfo mi) {
+        return new MethodFormatInfo(new HashSet<>(getParameterNames(mi)), getInstanceFieldNames(mi));
+    }
+
+    /**
+     * Qualifies instance field names as "this.fieldName" when they appear in the condition
+     * and are not method parameters. Uses the method's format info to distinguish parameters from fields.
+     */
+    static String qualifyInstanceFields(String condition, MethodFormatInfo info) {
+        if (info.qualifiedFields == null) return condition;
+        Matcher m = info.qualifiedFields.matcher(condition);
+        if (!m.find()) return condition;
+        StringBuilder sb = new StringBuilder(condition.length() + 16);
+        int last = 0;
+        do {
+            sb.append(condition, last, m.start()).append("this.").append(m.group());
+            last = m.end();
+        } while (m.find());
+        return sb.append(condition, last, condition.length()).toString();
+    }
+
+    /** Parameter names of mi in declaration order, without "this". */
+    private static List<String> getParameterNames(MethodInfo mi) {
+        List<String> names = new ArrayList<>();
         LocalVarInfo[] args = mi.getArgumentLocalVars();
         if (args != null) {
             for (LocalVarInfo lv : args) {
@@ -100,7 +198,111 @@ public class ExceptionConditionListener extends ListenerAdapter {
         return names;
     }
 
-    private List<ExceptionSite> exceptionSites = new ArrayList<>();
+    /**
+     * Normalizes a user-facing condition so that equivalent path conditions compare equal:
+     * conjuncts are trimmed, internal whitespace is collapsed, duplicates are removed and
+     * the remaining conjuncts are sorted. Used only for deduplication keys, never for display.
+     */
+    static String normalizeCondition(String condition) {
+        if (condition == null || condition.isEmpty()) return condition;
+        return String.join(" && ", conjunctSet(condition));
+    }
+
+    /**
+     * Top-level conjuncts of a condition (split at the "&amp;&amp;" outside parentheses), each
+     * with whitespace collapsed, sorted and without duplicates.
+     */
+    static Set<String> conjunctSet(String condition) {
+        Set<String> conjuncts = new TreeSet<>();
+        for (String part : splitTopLevel(condition, "&&")) {
+            String c = collapseWhitespace(part);
+            if (!c.isEmpty()) {
+                conjuncts.add(c);
+            }
+        }
+        return conjuncts;
+    }
+
+    /** Splits condition at the occurrences of operator ("&amp;&amp;" or "||") that are not inside parentheses. */
+    static List<String> splitTopLevel(String condition, String operator) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < condition.length(); i++) {
+            char ch = condition.charAt(i);
+            if (ch == '(') depth++;
+            else if (ch == ')') depth--;
+            else if (depth == 0 && condition.startsWith(operator, i)) {
+                parts.add(condition.substring(start, i));
+                start = i + operator.length();
+                i += operator.length() - 1;
+            }
+        }
+        parts.add(condition.substring(start));
+        return parts;
+    }
+
+    private static String collapseWhitespace(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) sb.append(' ');
+                sb.append(c);
+                pendingSpace = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Distinct exception sites in discovery order, keyed by (exception, method, line, normalized condition)
+     * and stored as packed records over interned strings. Repeated throws of the same site only bump
+     * its hit count, so memory grows with the number of distinct sites rather than with the number
+     * of explored paths.
+     */
+    private final SiteTable siteTable = new SiteTable();
+
+    /** Hash key of an exception site; the condition is stored in its normalized form. */
+    static final class SiteKey {
+        private final String thrownException;
+        private final String methodSignature;
+        private final int lineNumber;
+        private final String normalizedCondition;
+        private final int hash;
+
+        SiteKey(String thrownException, String methodSignature, int lineNumber, String condition) {
+            this.thrownException = thrownException;
+            this.methodSignature = methodSignature;
+            this.lineNumber = lineNumber;
+            this.normalizedCondition = normalizeCondition(condition);
+            int h = thrownException != null ? thrownException.hashCode() : 0;
+            h = 31 * h + (methodSignature != null ? methodSignature.hashCode() : 0);
+            h = 31 * h + lineNumber;
+            h = 31 * h + (normalizedCondition != null ? normalizedCondition.hashCode() : 0);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SiteKey)) return false;
+            SiteKey other = (SiteKey) o;
+            return hash == other.hash
+                && lineNumber == other.lineNumber
+                && Objects.equals(thrownException, other.thrownException)
+                && Objects.equals(methodSignature, other.methodSignature)
+                && Objects.equals(normalizedCondition, other.normalizedCondition);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 
     static class ExceptionSite {
         private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
@@ -111,49 +313,623 @@ public class ExceptionConditionListener extends ListenerAdapter {
         private final int lineNumber;
         /** User-friendly condition (e.g. "value > this.balance"). */
         private final String condition;
+        /** Number of times this site was reached (paths that threw with an equivalent condition). */
+        private int hits = 1;
+        /** Method whose stored summary produced this site; null (omitted) if the site was explored. */
+        private String summaryOf;
+        /** Concrete inputs reaching this site (witup.witness); null (omitted) if not solved. */
+        private WitnessSolver.Witness witness;
 
         public ExceptionSite(String thrownException, String methodSignature, int lineNumber, String rawCondition, MethodInfo methodInfo) {
+            this(thrownException, methodSignature, lineNumber, formatConditionForUser(rawCondition, methodInfo));
+        }
+
+        /** Creates a site from an already user-formatted condition. */
+        ExceptionSite(String thrownException, String methodSignature, int lineNumber, String condition) {
             this.thrownException = thrownException;
             this.methodSignature = methodSignature;
             this.lineNumber = lineNumber;
-            this.condition = formatConditionForUser(rawCondition, methodInfo);
+            this.condition = condition;
+        }
+
+        SiteKey key() {
+            return new SiteKey(thrownException, methodSignature, lineNumber, condition);
+        }
+
+        int getHits() {
+            return hits;
+        }
+
+        String getMethodSignature() {
+            return methodSignature;
+        }
+
+        String getThrownException() {
+            return thrownException;
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+
+        String getCondition() {
+            return condition;
+        }
+
+        void addHits(int n) {
+            hits += n;
+        }
+
+        String getSummaryOf() {
+            return summaryOf;
+        }
+
+        void setSummaryOf(String method) {
+            summaryOf = method;
+        }
+
+        WitnessSolver.Witness getWitness() {
+            return witness;
+        }
+
+        void setWitness(WitnessSolver.Witness witness) {
+            this.witness = witness;
         }
 
         public String toJson() {
             return GSON.toJson(this);
         }
 
-        public static String toJsonArray(List<ExceptionSite> sites, boolean pretty) {
+        public static String toJsonArray(Collection<ExceptionSite> sites, boolean pretty) {
             return (pretty ? GSON_PRETTY : GSON).toJson(sites);
         }
     }
 
     private final List<List<Integer>> exceptionPairs = new ArrayList<>();
 
+    /**
+     * Throw event captured in lazy mode: the exception name, the throwing method and line, and the
+     * path condition snapshot (getCurrentPC() returns a private copy). Equal events are merged by
+     * raw (method identity, line, structural PathCondition equality) before any formatting is done.
+     */
+    static final class PendingSite {
+        final String thrownException;
+        final MethodInfo methodInfo;
+        final int lineNumber;
+        final PathCondition pathCondition;
+        private final int hash;
+        int hits = 1;
+        /** Whether the exception is caught inside the symbolic method (only tracked with witnesses). */
+        boolean handled;
+
+        PendingSite(String thrownException, MethodInfo methodInfo, int lineNumber, PathCondition pathCondition) {
+            this.thrownException = thrownException;
+            this.methodInfo = methodInfo;
+            this.lineNumber = lineNumber;
+            this.pathCondition = pathCondition;
+            int h = thrownException.hashCode();
+            h = 31 * h + System.identityHashCode(methodInfo);
+            h = 31 * h + lineNumber;
+            h = 31 * h + pathCondition.hashCode();
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PendingSite)) return false;
+            PendingSite other = (PendingSite) o;
+            return hash == other.hash
+                && lineNumber == other.lineNumber
+                && methodInfo == other.methodInfo
+                && thrownException.equals(other.thrownException)
+                && pathCondition.equals(other.pathCondition);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private boolean lazyConditions = false;
+    private int finalizeThreads = 1;
+    /** Whether searchFinished prints the EXCEPTION CONDITIONS summary block to stdout. */
+    private boolean reportStdout = true;
+    /** Streams each new distinct site as one NDJSON line (witup.output); null if disabled. */
+    private NdjsonSink sink;
+    /** Restricts the search to one partition of the decision tree; null if not partitioning. */
+    private SearchPartition partition;
+    /** Receives the sites at search end under cacheKey (witup.cache.dir); null if caching is off. */
+    private AnalysisCache cache;
+    private String cacheKey;
+    /** Answers the satisfiability checks of symbolic branches; null if witup.solver_cache is off. */
+    private SolverCache solverCache;
+    /** Rejects throw events by origin, type or handler (witup.filter.*); null if no filter is set. */
+    private ThrowFilter filter;
+    /** Cuts off paths that cannot add a weaker condition (witup.prune); null if pruning is off. */
+    private SitePruner pruner;
+    /** Stored exception summaries of callees (witup.summaries.dir); null if summaries are off. */
+    private MethodSummaries summaries;
+    /** The single symbolic.method of this run once entered; its sites are stored as its summary. */
+    private MethodInfo summaryRoot;
+    /** Static throw and return reachability, used by the pruner and by summaries. */
+    private ThrowDistance throwDistance;
+    /** Set while a symbolic branch is re-executed for one of its PCChoiceGenerator choices. */
+    private boolean branchReexecuted;
+    /** Wall time, state, depth and heap limits (witup.budget.*); null if no budget is set. */
+    private RunBudget budget;
+    /** Solves the path conditions of the sites for concrete inputs (witup.witness); null if off. */
+    private WitnessSolver witnesses;
+    /** Receives the versioned result document at search end (witup.result); null if not set. */
+    private ResultFile result;
+    /** Merges the conditions of each throw location at search end (witup.simplify); null if off. */
+    private ConditionSimplifier simplifier;
+    /** Run metrics (witup.metrics.dir); null if metrics are off. */
+    private RunMetrics metrics;
+    /** Start of the current branch re-execution (solver call) when timing it; 0 otherwise. */
+    private long branchStartNanos;
+    /** The VM's state store when it is a SymbolicStateSet; its counters are reported at search end. */
+    private SymbolicStateSet stateSet;
+    /** Search start and first recorded throw (System.nanoTime), for time-to-first-condition. */
+    private long searchStartNanos;
+    private long firstConditionNanos;
+
+    /** Raw throw events awaiting formatting (lazy mode only), in discovery order. */
+    private final Map<PendingSite, PendingSite> pendingSites = new LinkedHashMap<>();
+
+    /** Renders path conditions straight from the constraint tree; reused across throws. */
+    private PathConditionFormatter conditionFormatter = new PathConditionFormatter();
+
+    /** Renders path conditions for the pruner, with symbolic variable suffixes kept. */
+    private final PathConditionFormatter prunerFormatter = new PathConditionFormatter(false, true);
+
+    public ExceptionConditionListener() {
+        this(null);
+    }
+
+    public ExceptionConditionListener(Config conf) {
+        if (conf == null) return;
+        lazyConditions = conf.getBoolean("witup.lazy_conditions", false);
+        int threads = conf.getInt("witup.finalize_threads", 1);
+        finalizeThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        reportStdout = conf.getBoolean("witup.report.stdout", true);
+        String output = conf.getString("witup.output");
+        if (output != null && !output.isEmpty()) {
+            sink = new NdjsonSink(Paths.get(output), conf.getLong("witup.output.flush_interval_ms", 1000));
+        }
+        result = ResultFile.fromConfig(conf);
+        partition = SearchPartition.fromConfig(conf);
+        cache = AnalysisCache.fromConfig(conf);
+        if (cache != null) {
+            cacheKey = AnalysisCache.key(conf);
+        }
+        solverCache = SolverCache.fromConfig(conf);
+        filter = ThrowFilter.fromConfig(conf);
+        pruner = SitePruner.fromConfig(conf);
+        summaries = MethodSummaries.fromConfig(conf);
+        if (pruner != null || summaries != null) {
+            throwDistance = new ThrowDistance();
+        }
+        metrics = RunMetrics.fromConfig(conf);
+        witnesses = WitnessSolver.fromConfig(conf);
+        budget = RunBudget.fromConfig(conf);
+        simplifier = ConditionSimplifier.fromConfig(conf);
+        if (simplifier != null) {
+            conditionFormatter = new PathConditionFormatter(true);
+        }
+    }
+
+    /**
+     * A symbolic branch re-executed for one of its PCChoiceGenerator choices adds the branch
+     * constraint and asks the solver. With the solver cache on, that call is bypassed through
+     * jpf-symbc's replay switch (PathCondition.simplify() then returns true) and the resulting
+     * path condition is checked against the cache in instructionExecuted instead; with pruning on,
+     * the new path condition is also checked for subsumption there. With summaries on, a path inside
+     * a summarized call that can no longer return normally is cut off. With metrics on, the
+     * re-execution is timed as one solver call (unless the solver cache makes that call itself).
+     */
+    @Override
+    public void executeInstruction(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, Instruction insnToExecute) {
+        if (budget != null) {
+            String exhausted = budget.instruction();
+            if (exhausted != null && !vm.getSearch().isDone()) {
+                stopForBudget(vm, exhausted);
+                ti.breakTransition("witup.budget." + exhausted);
+            }
+        }
+        if ((solverCache == null && pruner == null && summaries == null && metrics == null) || !ti.isFirstStepInsn()) return;
+        ChoiceGenerator<?> cg = vm.getSystemState().getChoiceGenerator();
+        if (cg instanceof PCChoiceGenerator && cg.getInsn() == insnToExecute) {
+            if (solverCache != null) {
+                PathCondition.setReplay(true);
+            } else if (metrics != null) {
+                branchStartNanos = System.nanoTime();
+            }
+            branchReexecuted = true;
+        }
+    }
+
+    @Override
+    public void instructionExecuted(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, Instruction nextInsn, Instruction executedInsn) {
+        if (!branchReexecuted) return;
+        branchReexecuted = false;
+        if (solverCache != null) {
+            PathCondition.setReplay(false);
+        }
+        if (metrics == null) {
+            checkReexecutedBranch(vm, ti, nextInsn);
+            return;
+        }
+        long t0 = System.nanoTime();
+        if (branchStartNanos != 0) {
+            metrics.solverCall(t0 - branchStartNanos);
+            branchStartNanos = 0;
+        }
+        checkReexecutedBranch(vm, ti, nextInsn);
+        metrics.listenerTime(t0);
+    }
+
+    /** Checks the path condition of a re-executed branch against the solver cache, pruner and summaries. */
+    private void checkReexecutedBranch(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, Instruction nextInsn) {
+        if (vm.getSystemState().isIgnored()) return;
+        ChoiceGenerator<?> cg = vm.getSystemState().getChoiceGenerator();
+        if (!(cg instanceof PCChoiceGenerator)) return;
+        PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
+        if (pc == null) return;
+        if (solverCache != null && !solverCache.isSatisfiable(pc,
+                metrics != null ? metrics.timed(PathCondition::simplify) : PathCondition::simplify)) {
+            vm.getSystemState().setIgnored(true);
+            return;
+        }
+        if (pruner != null) {
+            Set<String> reachable = throwDistance.reachableSites(ti, nextInsn);
+            if (pruner.check(reachable, prunerFormatter.format(pc, null), vm.getPathLength()) != null) {
+                vm.getSystemState().setIgnored(true);
+                return;
+            }
+        }
+        if (summaries != null && MethodSummaries.insideApplied(ti)
+                && !throwDistance.canReturn(ti, nextInsn, f -> f.hasFrameAttr(MethodSummaries.Applied.class))) {
+            summaries.pathCut();
+            vm.getSystemState().setIgnored(true);
+        }
+    }
+
+    /**
+     * With summaries on: remembers the run's own symbolic method, and on entry of a method with a
+     * stored summary (and a symbolic argument or field) records the instantiated sites and marks
+     * the frame, so exploration below it only continues towards a normal return. With witnesses
+     * on: records how the inputs of the symbolic method are bound.
+     */
+    @Override
+    public void methodEntered(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, MethodInfo mi) {
+        if (summaries == null && witnesses == null) return;
+        long t0 = metrics != null ? System.nanoTime() : 0;
+        if (witnesses != null) {
+            witnesses.methodEntered(ti, mi);
+        }
+        if (summaries != null) {
+            applySummary(vm, ti, mi);
+        }
+        if (metrics != null) {
+            metrics.listenerTime(t0);
+        }
+    }
+
+    private void applySummary(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, MethodInfo mi) {
+        if (summaryRoot == null && summaries.isRecordedRoot(mi)) {
+            summaryRoot = mi;
+            return;
+        }
+        MethodSummaries.Summary summary = summaries.get(mi);
+        if (summary == null || MethodSummaries.callerHandlesExceptions(ti)) return;
+        StackFrame caller = ti.getTopFrame().getPrevious();
+        MethodFormatInfo callerInfo = caller != null && caller.getMethodInfo() != null ? getFormatInfo(caller.getMethodInfo()) : null;
+        Map<String, String> actuals = summaryActuals(ti, mi, summary, callerInfo);
+        if (actuals == null) return;
+        if (partition == null || partition.ownsCurrentPath(vm)) {
+            PathCondition pc = getPathConditionFromPCChoiceGenerator(vm);
+            String callerCondition = pc != null ? conditionFormatter.format(pc, callerInfo) : "";
+            for (ExceptionSite site : summaries.instantiate(summary, actuals, callerCondition)) {
+                if (firstConditionNanos == 0) {
+                    firstConditionNanos = System.nanoTime();
+                }
+                addSite(site);
+            }
+        }
+        ti.getModifiableTopFrame().addFrameAttr(MethodSummaries.Applied.INSTANCE);
+    }
+
+    /**
+     * Caller renderings of the parameters and referenced this.fields of the method whose frame was
+     * just entered, or null if none of them is symbolic, parameter names are not available, or a
+     * name the summary refers to has no rendering (a reference or a non-numeric field).
+     */
+    private Map<String, String> summaryActuals(gov.nasa.jpf.vm.ThreadInfo ti, MethodInfo mi,
+                                               MethodSummaries.Summary summary, MethodFormatInfo callerInfo) {
+        StackFrame frame = ti.getTopFrame();
+        LocalVarInfo[] args = mi.getArgumentLocalVars();
+        if (args == null) return null;
+        Map<String, String> actuals = new HashMap<>();
+        boolean symbolic = false;
+        for (LocalVarInfo lv : args) {
+            if ("this".equals(lv.getName())) continue;
+            Object attr = frame.getLocalAttr(lv.getSlotIndex());
+            if (attr instanceof Expression) {
+                actuals.put(lv.getName(), conditionFormatter.formatExpression((Expression) attr, callerInfo));
+                symbolic = true;
+            } else {
+                String value = concreteLocal(frame, lv.getSlotIndex(), lv.getSignature());
+                if (value != null) actuals.put(lv.getName(), value);
+            }
+        }
+        ElementInfo receiver = mi.isStatic() ? null : ti.getElementInfo(frame.getThis());
+        if (receiver != null) {
+            for (String field : summary.fields()) {
+                FieldInfo fi = receiver.getClassInfo().getInstanceField(field);
+                if (fi == null) continue;
+                Object attr = receiver.getFieldAttr(fi);
+                if (attr instanceof Expression) {
+                    actuals.put("this." + field, conditionFormatter.formatExpression((Expression) attr, callerInfo));
+                    symbolic = true;
+                } else if (fi.isNumericField() || fi.isBooleanField()) {
+                    actuals.put("this." + field, String.valueOf(receiver.getFieldValueObject(field)));
+                }
+            }
+        }
+        return symbolic && actuals.keySet().containsAll(summary.references()) ? actuals : null;
+    }
+
+    private static String concreteLocal(StackFrame frame, int slot, String signature) {
+        switch (signature) {
+            case "D": return String.valueOf(frame.getDoubleLocalVariable(slot));
+            case "F": return String.valueOf(frame.getFloatLocalVariable(slot));
+            case "J": return String.valueOf(frame.getLongLocalVariable(slot));
+            case "I": case "S": case "B": case "C": case "Z": return String.valueOf(frame.getLocalVariable(slot));
+            default: return null;
+        }
+    }
+
+    @Override
+    public void searchStarted(Search search) {
+        searchStartNanos = System.nanoTime();
+        if (metrics != null) {
+            metrics.searchStarted();
+        }
+        if (budget != null) {
+            budget.searchStarted();
+        }
+        if (search.getVM().getStateSet() instanceof SymbolicStateSet) {
+            stateSet = (SymbolicStateSet) search.getVM().getStateSet();
+        }
+    }
+
+    /** Milliseconds from search start to the first recorded condition, or -1 if none was found. */
+    long getFirstConditionMillis() {
+        return firstConditionNanos == 0 ? -1 : (firstConditionNanos - searchStartNanos) / 1_000_000;
+    }
+
+    SymbolicStateSet.Stats getStateMatchingStats() {
+        return stateSet != null ? stateSet.getStats() : null;
+    }
+
+    MethodSummaries.Stats getSummaryStats() {
+        return summaries != null ? summaries.getStats() : null;
+    }
+
+    WitnessSolver.Stats getWitnessStats() {
+        return witnesses != null ? witnesses.getStats() : null;
+    }
+
+    RunBudget.Stats getBudgetStats() {
+        return budget != null ? budget.getStats() : null;
+    }
+
+    /** True unless a witup.budget.* limit ended the search early or cut paths off. */
+    boolean isComplete() {
+        return budget == null || budget.getStats().isComplete();
+    }
+
+    ConditionSimplifier.Stats getSimplifierStats() {
+        return simplifier != null ? simplifier.getStats() : null;
+    }
+
+    RunMetrics.Stats getRunMetrics() {
+        return metrics != null ? metrics.getStats() : null;
+    }
+
+    ThrowFilter.Stats getFilterStats() {
+        return filter != null ? filter.getStats() : null;
+    }
+
+    SitePruner.Stats getPruningStats() {
+        return pruner != null ? pruner.getStats() : null;
+    }
+
+    SolverCache.Stats getSolverCacheStats() {
+        return solverCache != null ? solverCache.getStats() : null;
+    }
+
+    @Override
+    public void choiceGeneratorRegistered(VM vm, ChoiceGenerator<?> nextCG, gov.nasa.jpf.vm.ThreadInfo ti, Instruction executedInsn) {
+        if (metrics != null && nextCG instanceof PCChoiceGenerator) {
+            metrics.pcChoicePoint();
+        }
+    }
+
+    @Override
+    public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG) {
+        if (partition != null && currentCG instanceof PCChoiceGenerator) {
+            partition.choiceAdvanced(vm);
+        }
+    }
+
     @Override
     public void exceptionThrown(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, gov.nasa.jpf.vm.ElementInfo thrownException) {
-        String symbolicCondition = getPathConditionFromPCChoiceGenerator(vm);
-        if (symbolicCondition != null) {
+        if (metrics == null) {
+            recordThrow(vm, ti, thrownException);
+            return;
+        }
+        long t0 = System.nanoTime();
+        recordThrow(vm, ti, thrownException);
+        metrics.listenerTime(t0);
+    }
+
+    private void recordThrow(VM vm, gov.nasa.jpf.vm.ThreadInfo ti, gov.nasa.jpf.vm.ElementInfo thrownException) {
+        if (filter != null && !filter.accepts(ti, thrownException != null ? thrownException.getClassInfo() : null)) {
+            return;
+        }
+        if (summaries != null && MethodSummaries.insideApplied(ti)) {
+            return;
+        }
+        PathCondition pc = getPathConditionFromPCChoiceGenerator(vm);
+        if (pc != null) {
+            if (partition != null && !partition.ownsCurrentPath(vm)) {
+                return;
+            }
+            if (firstConditionNanos == 0) {
+                firstConditionNanos = System.nanoTime();
+            }
             String thrownExceptionName = thrownException != null ? thrownException.getClassInfo().getName() : "unknown";
-            String methodSignature = "unknown";
             int lineNumber = -1;
             MethodInfo methodInfo = null;
             Instruction insn = ti.getPC();
             if (insn != null) {
                 methodInfo = insn.getMethodInfo();
                 if (methodInfo != null) {
-                    methodSignature = toReadableMethodSignature(methodInfo);
                     lineNumber = methodInfo.getLineNumber(insn);
                 }
             }
-            exceptionSites.add(new ExceptionSite(thrownExceptionName, methodSignature, lineNumber, symbolicCondition, methodInfo));
+            if (pruner != null && methodInfo != null) {
+                pruner.recordThrow(ThrowDistance.siteId(methodInfo, lineNumber), prunerFormatter.format(pc, null));
+            }
+            boolean handled = witnesses != null
+                && witnesses.isHandled(ti, thrownException != null ? thrownException.getClassInfo() : null);
+            if (lazyConditions) {
+                PendingSite site = new PendingSite(thrownExceptionName, methodInfo, lineNumber, pc);
+                site.handled = handled;
+                addPendingSite(site);
+                return;
+            }
+            String condition = conditionFormatter.format(pc, methodInfo != null ? getFormatInfo(methodInfo) : null);
+            int r = siteTable.add(siteTable.intern(thrownExceptionName), siteTable.method(methodInfo), lineNumber, condition, 1);
+            if (siteAdded(r) && witnesses != null) {
+                addWitnessCondition(r, pc, handled);
+            }
             return;
         }
         return;
     }
 
+    void addPendingSite(PendingSite site) {
+        PendingSite existing = pendingSites.get(site);
+        if (existing != null) {
+            existing.hits++;
+        } else {
+            pendingSites.put(site, site);
+        }
+    }
+
+    /**
+     * Formats the lazily captured sites and merges them into the site index. Only raw-distinct
+     * events are formatted; with witup.finalize_threads > 1 the work is split across a pool,
+     * each worker with its own formatter, and merged back in discovery order.
+     */
+    void finalizePendingSites() {
+        if (pendingSites.isEmpty()) return;
+        List<PendingSite> pending = new ArrayList<>(pendingSites.values());
+        pendingSites.clear();
+        ExceptionSite[] formatted = new ExceptionSite[pending.size()];
+        int threads = Math.min(finalizeThreads, pending.size());
+        boolean dropBounds = simplifier != null;
+        if (threads <= 1) {
+            formatPendingRange(pending, formatted, 0, pending.size(), dropBounds);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                int chunk = (pending.size() + threads - 1) / threads;
+                for (int from = 0; from < pending.size(); from += chunk) {
+                    final int start = from;
+                    final int end = Math.min(from + chunk, pending.size());
+                    futures.add(pool.submit(() -> formatPendingRange(pending, formatted, start, end, dropBounds)));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JPFException(e);
+            } catch (ExecutionException e) {
+                throw new JPFException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        for (int i = 0; i < formatted.length; i++) {
+            int r = siteTable.add(formatted[i]);
+            if (siteAdded(r) && witnesses != null) {
+                addWitnessCondition(r, pending.get(i).pathCondition, pending.get(i).handled);
+            }
+        }
+    }
+
+    /** Keeps a new site's path condition for witness solving, unless its exception never escapes. */
+    private void addWitnessCondition(int record, PathCondition pc, boolean handled) {
+        if (handled) {
+            witnesses.addHandled(record);
+        } else {
+            witnesses.add(record, pc);
+        }
+    }
+
+    private static void formatPendingRange(List<PendingSite> pending, ExceptionSite[] out, int from, int to,
+            boolean dropBounds) {
+        PathConditionFormatter formatter = new PathConditionFormatter(dropBounds);
+        for (int i = from; i < to; i++) {
+            PendingSite p = pending.get(i);
+            MethodInfo mi = p.methodInfo;
+            String methodSignature = mi != null ? toReadableMethodSignature(mi) : "unknown";
+            String condition = formatter.format(p.pathCondition, mi != null ? getFormatInfo(mi) : null);
+            ExceptionSite site = new ExceptionSite(p.thrownException, methodSignature, p.lineNumber, condition);
+            site.addHits(p.hits - 1);
+            out[i] = site;
+        }
+    }
+
+    /**
+     * Merges a site into the index: a new key is recorded as a distinct site, an existing key only
+     * accumulates the hit count. Returns true when the site was not seen before.
+     */
+    boolean addSite(ExceptionSite site) {
+        return siteAdded(siteTable.add(site));
+    }
+
+    /** Bookkeeping after SiteTable.add returned record r; true when the site is new. */
+    private boolean siteAdded(int r) {
+        if (r < 0) return false;
+        if (metrics != null) {
+            metrics.newSite();
+        }
+        if (sink != null) {
+            sink.writeLine(siteTable.site(r).toJson());
+        }
+        return true;
+    }
+
+    /** Distinct exception sites collected so far, in discovery order (materialized from the site table). */
+    Collection<ExceptionSite> getExceptionSites() {
+        return siteTable.sites();
+    }
+
+    /** Work counters of this run's search partition, or null when not partitioning. */
+    SearchPartition.Stats getPartitionStats() {
+        return partition != null ? partition.getStats() : null;
+    }
+
     /** Builds a human-readable method signature, e.g. "Account.debit(double)" instead of "(D)V". */
-    private static String toReadableMethodSignature(MethodInfo mi) {
+    static String toReadableMethodSignature(MethodInfo mi) {
         String className = mi.getClassName();
         String simpleClass = className != null && className.contains(".") ? className.substring(className.lastIndexOf('.') + 1) : className;
         String methodName = mi.getName();
@@ -177,30 +953,142 @@ public class ExceptionConditionListener extends ListenerAdapter {
 
     /**
      * When running with jpf-symbc (Symbolic PathFinder), PCChoiceGenerator holds
-     * the PathCondition for the current path. Returns its string representation
+     * the PathCondition for the current path. Returns it (a copy owned by the caller)
      * or null if not available.
      */
-    private String getPathConditionFromPCChoiceGenerator(VM vm) {
+    private PathCondition getPathConditionFromPCChoiceGenerator(VM vm) {
         ChoiceGenerator<?> cg = vm.getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
         if (!(cg instanceof PCChoiceGenerator)) return null;
         PCChoiceGenerator pcCg = (PCChoiceGenerator) cg;
-        PathCondition pc = pcCg.getCurrentPC();
-        return pc != null ? pc.toString() : null;
+        return pcCg.getCurrentPC();
+    }
+
+    @Override
+    public void stateAdvanced(Search search) {
+        long t0 = metrics != null ? System.nanoTime() : 0;
+        if (partition != null) {
+            partition.stateAdvanced();
+        }
+        if (sink != null) {
+            sink.flushIfDue();
+        }
+        if (budget != null) {
+            String exhausted = budget.stateAdvanced(search.isNewState(), search.getDepth());
+            if (exhausted != null) {
+                stopForBudget(search.getVM(), exhausted);
+            } else if (search.isNewState() && !search.isEndState() && budget.cutsAt(search.getDepth())) {
+                search.getVM().ignoreState();
+            }
+        }
+        if (metrics != null) {
+            metrics.stateAdvanced(search.isNewState(), search.getDepth());
+            metrics.sampleIfDue(siteTable.size());
+            metrics.listenerTime(t0);
+        }
+    }
+
+    /** Ends the search gracefully; searchFinished then reports the sites found so far as incomplete. */
+    private void stopForBudget(VM vm, String exhausted) {
+        budget.terminated(exhausted, vm);
+        vm.getSearch().terminate();
+    }
+
+    @Override
+    public void stateBacktracked(Search search) {
+        if (metrics != null) {
+            metrics.stateBacktracked();
+        }
     }
 
     @Override
     public void searchFinished(Search search) {
-        reportSymbolicConditions();
+        long t0 = metrics != null ? System.nanoTime() : 0;
+        finalizePendingSites();
+        if (sink != null) {
+            sink.close();
+            sink = null;
+        }
+        if (pruner != null) {
+            SitePruner.keepWeakest(siteTable);
+            pruner.close();
+        }
+        if (budget != null) {
+            budget.searchFinished();
+        }
+        if (witnesses != null) {
+            witnesses.solveAll(siteTable,
+                solverCache != null ? solverCache::solve : PathCondition::solveWithValuation);
+        }
+        if (simplifier != null) {
+            simplifier.simplify(siteTable);
+        }
+        if (summaries != null && summaryRoot != null && partition == null && pruner == null && filter == null && isComplete()) {
+            summaries.put(summaryRoot, getParameterNames(summaryRoot), siteTable.sites());
+        }
+        // sites instantiated from stored summaries depend on the summaries directory's contents,
+        // which the cache key does not cover
+        if (cache != null && isComplete() && (summaries == null || summaries.getStats().applied == 0)) {
+            cache.put(cacheKey, siteTable.sites());
+        }
+        if (solverCache != null) {
+            solverCache.save();
+        }
+        if (metrics != null) {
+            metrics.listenerTime(t0);
+            metrics.searchFinished(siteTable.size());
+        }
+        if (result != null) {
+            result.write(siteTable.sites(), budget != null ? budget.getStats() : null, summaryLines(), false);
+        }
+        if (reportStdout) {
+            reportSymbolicConditions();
+        }
     }
 
     /**
-     * Iterates over exceptionSites and prints the JSON for each exception site.
+     * Iterates over the site table and prints the JSON for each exception site.
      * Pretty-prints the JSON for readability.
      */
     private void reportSymbolicConditions() {
         System.out.println("\n========================================");
         System.out.println("EXCEPTION CONDITIONS (symbolic path conditions):");
-        System.out.println(ExceptionSite.toJsonArray(exceptionSites, true));
+        System.out.println(ExceptionSite.toJsonArray(siteTable.sites(), true));
+        for (String line : summaryLines()) {
+            System.out.println(line);
+        }
         System.out.println("========================================\n");
     }
+
+    /** One-line summaries of the enabled features, for the console block and the result file. */
+    private List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        if (solverCache != null) {
+            lines.add(solverCache.summary());
+        }
+        if (budget != null) {
+            lines.add(budget.summary());
+        }
+        if (metrics != null) {
+            lines.add(metrics.summary());
+        }
+        if (summaries != null) {
+            lines.add(summaries.summary());
+        }
+        if (witnesses != null) {
+            lines.add(witnesses.summary());
+        }
+        if (simplifier != null) {
+            lines.add(simplifier.summary());
+        }
+        if (stateSet != null) {
+            lines.add(stateSet.summary());
+        }
+        if (filter != null) {
+            lines.add(filter.summary());
+        }
+        if (pruner != null) {
+            lines.add(pruner.summary());
+        }
+        return lines;
+    }
 }
@@ -0,0 +1,45 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.search.heuristic.SimplePriorityHeuristic;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Heuristic search that expands first the states closest to a throw site, so exception
+ * conditions are found early instead of after a full depth-first sweep. The priority of a state
+ * is the static ThrowDistance from the current thread's position (across its call stack) to the
+ * nearest athrow; ties go to the deeper state, so among equally promising branches the search
+ * behaves like DFS. Every state is still explored eventually unless a queue limit or search
+ * budget cuts it off, so only the order in which conditions are found changes.
+ *
+ * <pre>
+ * search.class = br.ufpe.cin.witup.jpf.ExceptionDirectedSearch
+ * search.heuristic.queue_limit = -1   # optional bound on queued states (jpf-core option)
+ * </pre>
+ */
+public class ExceptionDirectedSearch extends SimplePriorityHeuristic {
+
+    /** Distances above this are treated as "no throw reachable". */
+    static final int MAX_DISTANCE = 0x7FFF;
+    static final int MAX_DEPTH = 0xFFFF;
+
+    private final ThrowDistance distances = new ThrowDistance();
+
+    public ExceptionDirectedSearch(Config config, VM vm) {
+        super(config, vm);
+    }
+
+    @Override
+    protected int computeHeuristicValue() {
+        ThreadInfo ti = vm.getCurrentThread();
+        int distance = ti != null && ti.isAlive() ? distances.fromStack(ti) : ThrowDistance.UNREACHABLE;
+        return priority(distance, vm.getPathLength());
+    }
+
+    /** Lower is expanded first: distance to a throw, then deeper paths before shallower ones. */
+    static int priority(int distance, int depth) {
+        int d = Math.min(distance, MAX_DISTANCE);
+        return d * (MAX_DEPTH + 1) + (MAX_DEPTH - Math.min(depth, MAX_DEPTH));
+    }
+}
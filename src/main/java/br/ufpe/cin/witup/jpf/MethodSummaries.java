@@ -0,0 +1,442 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.ExceptionHandler;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent exception summaries of methods, so a method analyzed once is not explored again from
+ * every caller. A run whose single symbolic.method is M, with every parameter sym and, for an
+ * instance method, symbolic.fields = instance, stores its sites as the summary of M: the
+ * conditions are in terms of M's parameters and this.fields. Runs with concrete parameters or
+ * fields are not recorded, as their conditions only hold for those values. When another run
+ * enters M with at least one symbolic argument or field, and a value for every parameter and
+ * field the conditions refer to, the listener instantiates the summary (parameters and
+ * fields replaced by the caller's values, conjoined with the caller's path condition) and marks
+ * the frame; throws under a marked frame are no longer recorded, and paths inside it that can no
+ * longer return normally are cut off, as the summary already covers their exceptions.
+ *
+ * Summaries are keyed by M's signature, the symbolic.* bounds and the bytecode closure of M's
+ * class (as in AnalysisCache), so editing M or anything it references invalidates them. A call is
+ * not summarized when a caller frame has an exception handler around it, since the exceptional
+ * continuation in the caller would be lost. An instantiated site is dropped when its condition
+ * contradicts the caller's path condition: a conjunct and its negation, a false comparison of
+ * constants, or bounds on one term that leave no value. The check is syntactic; no solver is called.
+ *
+ * <pre>
+ * witup.summaries.dir =          # summary store (empty = off)
+ * witup.summaries.record = true  # store the sites of a single all-symbolic method run as its summary
+ * witup.summaries.apply = true   # instantiate stored summaries at calls instead of exploring them
+ * </pre>
+ */
+final class MethodSummaries {
+
+    /** Bumped whenever the stored format or the meaning of a summary changes. */
+    private static final String FORMAT_VERSION = "witup-summary-1";
+
+    /** symbolic.* options that name what to analyze rather than bound it; not part of the key. */
+    private static final Set<String> UNKEYED = new HashSet<>(Arrays.asList("symbolic.method", "symbolic.fields"));
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** Matches "this.field" references in a stored condition. */
+    private static final Pattern FIELD = Pattern.compile("\\bthis\\.([A-Za-z_$][\\w$]*)");
+
+    /** A plain or this-qualified identifier that is not itself a member access. */
+    private static final Pattern IDENTIFIER = Pattern.compile("(?<![\\w$.])(?:this\\.)?[A-Za-z_$][\\w$]*");
+
+    /** Parentheses around a single identifier, field reference or number, as added by substitute. */
+    private static final Pattern SIMPLE_PARENS = Pattern.compile("(?<![\\w$])\\(((?:this\\.)?[A-Za-z_$][\\w$]*|-?\\d+(?:\\.\\d+)?(?:E-?\\d+)?)\\)");
+
+    /** A comparison of two operands without nested comparisons or logical operators. */
+    private static final Pattern COMPARISON = Pattern.compile("([^<>=!&|]+?) (==|!=|<=|>=|<|>) ([^<>=!&|]+)");
+
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(?:\\.\\d+)?(?:E-?\\d+)?");
+
+    /** Summary counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long stored;
+        long applied;
+        long sitesInstantiated;
+        /** Instantiated sites dropped because they contradict the caller's path condition. */
+        long sitesDropped;
+        long pathsCut;
+    }
+
+    /** Stored summary of one method: its parameter names and the sites found by analyzing it. */
+    static final class Summary {
+        String method;
+        List<String> parameters = new ArrayList<>();
+        List<ExceptionSite> sites = new ArrayList<>();
+
+        /** Parameter names and "this.field" references the conditions use. */
+        Set<String> references() {
+            Set<String> names = new TreeSet<>();
+            for (ExceptionSite site : sites) {
+                Matcher m = IDENTIFIER.matcher(site.getCondition());
+                while (m.find()) {
+                    String name = m.group();
+                    if (name.startsWith("this.") || parameters.contains(name)) names.add(name);
+                }
+            }
+            return names;
+        }
+
+        /** "this.field" names the conditions refer to. */
+        Set<String> fields() {
+            Set<String> fields = new TreeSet<>();
+            for (ExceptionSite site : sites) {
+                Matcher m = FIELD.matcher(site.getCondition());
+                while (m.find()) {
+                    fields.add(m.group(1));
+                }
+            }
+            return fields;
+        }
+    }
+
+    /** Frame attribute of a call whose exceptions were instantiated from its summary. */
+    static final class Applied {
+        static final Applied INSTANCE = new Applied();
+
+        private Applied() {
+        }
+    }
+
+    private static final Summary NONE = new Summary();
+
+    private final Path dir;
+    private final String[] classpath;
+    private final List<String> keyParts = new ArrayList<>();
+    /** Class.method names of this run's symbolic.method entries; never summarized in this run. */
+    private final Set<String> roots = new LinkedHashSet<>();
+    private final boolean record;
+    /** Every symbolic.method parameter is sym; with instanceFields, the receiver's fields are symbolic too. */
+    private final boolean allSymbolic;
+    private final boolean instanceFields;
+    private final boolean apply;
+    private final Map<MethodInfo, Summary> loaded = new IdentityHashMap<>();
+    private final Stats stats = new Stats();
+
+    MethodSummaries(Path dir, String[] classpath, Config conf, boolean record, boolean apply) {
+        this.dir = dir;
+        this.classpath = classpath;
+        this.record = record;
+        this.apply = apply;
+        keyParts.add(FORMAT_VERSION);
+        for (String name : new TreeSet<>(conf.stringPropertyNames())) {
+            if (name.startsWith("symbolic.") && !UNKEYED.contains(name)) {
+                keyParts.add(name + "=" + conf.getProperty(name));
+            }
+        }
+        boolean allSym = true;
+        for (String m : conf.getStringArray("symbolic.method", new String[0])) {
+            int paren = m.indexOf('(');
+            roots.add(paren >= 0 ? m.substring(0, paren) : m);
+            String args = paren >= 0 && m.endsWith(")") ? m.substring(paren + 1, m.length() - 1) : "";
+            for (String arg : args.split("#")) {
+                if (!arg.isEmpty() && !"sym".equals(arg)) allSym = false;
+            }
+        }
+        allSymbolic = allSym;
+        instanceFields = Arrays.asList(conf.getStringArray("symbolic.fields", new String[0])).contains("instance");
+    }
+
+    /** Returns the summary store configured in conf, or null when witup.summaries.dir is not set. */
+    static MethodSummaries fromConfig(Config conf) {
+        String dir = conf.getString("witup.summaries.dir", "");
+        if (dir.isEmpty()) return null;
+        return new MethodSummaries(Paths.get(dir), conf.getStringArray("classpath", new String[0]), conf,
+            conf.getBoolean("witup.summaries.record", true), conf.getBoolean("witup.summaries.apply", true));
+    }
+
+    /** True if mi is the one symbolic.method of this run and its sites should be stored. */
+    boolean isRecordedRoot(MethodInfo mi) {
+        return isRecordedRoot(mi.getClassName() + "." + mi.getName(), mi.isStatic());
+    }
+
+    /**
+     * True if method (Class.method) is the one symbolic.method of this run and was analyzed with
+     * all parameters, and for an instance method all fields, symbolic.
+     */
+    boolean isRecordedRoot(String method, boolean isStatic) {
+        return record && allSymbolic && roots.size() == 1 && roots.contains(method) && (isStatic || instanceFields);
+    }
+
+    /**
+     * The stored summary of mi, or null if there is none, applying is off, or mi is analyzed by
+     * this run itself. Lookups (hits and misses) are memoized per method.
+     */
+    Summary get(MethodInfo mi) {
+        if (!apply || roots.contains(mi.getClassName() + "." + mi.getName())) return null;
+        Summary s = loaded.get(mi);
+        if (s == null) {
+            s = read(key(mi));
+            loaded.put(mi, s != null ? s : NONE);
+        }
+        return s == NONE ? null : s;
+    }
+
+    private Summary read(String key) {
+        Path entry = dir.resolve(key + ".json");
+        if (!Files.isRegularFile(entry)) return null;
+        try (Reader r = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(r, Summary.class);
+        } catch (IOException | JsonParseException e) {
+            // unreadable entry: analyze the method again, the next recording run overwrites it
+            return null;
+        }
+    }
+
+    /** Stores sites as the summary of mi, replacing any previous one atomically. */
+    void put(MethodInfo mi, List<String> parameters, Collection<ExceptionSite> sites) {
+        Summary s = new Summary();
+        s.method = mi.getFullName();
+        s.parameters.addAll(parameters);
+        s.sites.addAll(sites);
+        String key = key(mi);
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(s, w);
+            }
+            Files.move(tmp, dir.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            stats.stored++;
+        } catch (IOException e) {
+            throw new JPFException("cannot write method summary to " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    String key(MethodInfo mi) {
+        List<String> parts = new ArrayList<>(keyParts);
+        parts.add(mi.getFullName());
+        return AnalysisCache.closureKey(classpath, mi.getClassName(), parts.toArray(new String[0]));
+    }
+
+    /**
+     * Instantiates summary for one call. actuals maps parameter names and "this.field" references
+     * to the caller's rendering of their values; callerCondition is the caller's path condition
+     * (may be empty). Returns one site per stored site that can hold under the caller's condition,
+     * tagged with the summarized method; disjuncts of a merged condition that cannot are left out.
+     */
+    List<ExceptionSite> instantiate(Summary summary, Map<String, String> actuals, String callerCondition) {
+        List<ExceptionSite> result = new ArrayList<>(summary.sites.size());
+        Set<String> caller = SitePruner.conjuncts(callerCondition);
+        for (ExceptionSite site : summary.sites) {
+            String condition = substitute(site.getCondition(), actuals);
+            List<Set<String>> disjuncts = ConditionSimplifier.disjuncts(condition);
+            List<Set<String>> feasible = new ArrayList<>(disjuncts.size());
+            for (Set<String> d : disjuncts) {
+                Set<String> all = new TreeSet<>(caller);
+                all.addAll(d);
+                if (!contradictory(all)) feasible.add(d);
+            }
+            if (feasible.isEmpty()) {
+                stats.sitesDropped++;
+                continue;
+            }
+            if (feasible.size() < disjuncts.size()) condition = ConditionSimplifier.render(feasible);
+            if (callerCondition != null && !callerCondition.isEmpty()) {
+                if (condition.contains(ConditionSimplifier.OR)) condition = "(" + condition + ")";
+                condition = condition.isEmpty() ? callerCondition : callerCondition + PathConditionFormatter.AND + condition;
+            }
+            ExceptionSite instance = new ExceptionSite(site.getThrownException(), site.getMethodSignature(),
+                site.getLineNumber(), condition);
+            instance.setSummaryOf(summary.method);
+            result.add(instance);
+        }
+        stats.applied++;
+        stats.sitesInstantiated += result.size();
+        return result;
+    }
+
+    /**
+     * True if conjuncts cannot all hold: one is the negation of another, a comparison of two
+     * constants is false, or the constant bounds on one term leave no value. Terms are compared as
+     * rendered, after dropping parentheses around a single identifier or number.
+     */
+    static boolean contradictory(Set<String> conjuncts) {
+        Set<String> plain = new HashSet<>();
+        for (String c : conjuncts) {
+            plain.add(SIMPLE_PARENS.matcher(c).replaceAll("$1"));
+        }
+        Map<String, Bounds> bounds = new HashMap<>();
+        for (String c : plain) {
+            String negated = ConditionSimplifier.negate(c);
+            if (negated != null && plain.contains(negated)) return true;
+            Matcher m = COMPARISON.matcher(c);
+            if (!m.matches()) continue;
+            String left = m.group(1);
+            String op = m.group(2);
+            String right = m.group(3);
+            boolean leftConstant = NUMBER.matcher(left).matches();
+            boolean rightConstant = NUMBER.matcher(right).matches();
+            if (leftConstant && rightConstant) {
+                if (!Bounds.holds(Double.parseDouble(left), op, Double.parseDouble(right))) return true;
+            } else if (rightConstant) {
+                if (!bounds.computeIfAbsent(left, k -> new Bounds()).add(op, Double.parseDouble(right))) return true;
+            } else if (leftConstant) {
+                if (!bounds.computeIfAbsent(right, k -> new Bounds()).add(Bounds.flip(op), Double.parseDouble(left))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Constant bounds collected for one term; add returns false once no value is left. */
+    private static final class Bounds {
+        double low = Double.NEGATIVE_INFINITY;
+        boolean lowStrict;
+        double high = Double.POSITIVE_INFINITY;
+        boolean highStrict;
+        final Set<Double> excluded = new HashSet<>();
+
+        boolean add(String op, double k) {
+            switch (op) {
+                case "==":
+                    raiseLow(k, false);
+                    lowerHigh(k, false);
+                    break;
+                case "!=":
+                    excluded.add(k);
+                    break;
+                case "<":
+                    lowerHigh(k, true);
+                    break;
+                case "<=":
+                    lowerHigh(k, false);
+                    break;
+                case ">":
+                    raiseLow(k, true);
+                    break;
+                default:
+                    raiseLow(k, false);
+                    break;
+            }
+            if (low > high) return false;
+            if (low == high) return !lowStrict && !highStrict && !excluded.contains(low);
+            return true;
+        }
+
+        private void raiseLow(double k, boolean strict) {
+            if (k > low || (k == low && strict)) {
+                low = k;
+                lowStrict = strict;
+            }
+        }
+
+        private void lowerHigh(double k, boolean strict) {
+            if (k < high || (k == high && strict)) {
+                high = k;
+                highStrict = strict;
+            }
+        }
+
+        static String flip(String op) {
+            switch (op) {
+                case "<": return ">";
+                case "<=": return ">=";
+                case ">": return "<";
+                case ">=": return "<=";
+                default: return op;
+            }
+        }
+
+        static boolean holds(double a, String op, double b) {
+            switch (op) {
+                case "==": return a == b;
+                case "!=": return a != b;
+                case "<": return a < b;
+                case "<=": return a <= b;
+                case ">": return a > b;
+                default: return a >= b;
+            }
+        }
+    }
+
+    /** Replaces parameter names and this.field references in condition by their actual values. */
+    static String substitute(String condition, Map<String, String> actuals) {
+        if (condition == null || condition.isEmpty() || actuals.isEmpty()) return condition;
+        StringBuilder sb = new StringBuilder(condition.length() + 16);
+        Matcher m = IDENTIFIER.matcher(condition);
+        int last = 0;
+        while (m.find()) {
+            String actual = actuals.get(m.group());
+            if (actual == null) continue;
+            sb.append(condition, last, m.start()).append('(').append(actual).append(')');
+            last = m.end();
+        }
+        return sb.append(condition, last, condition.length()).toString();
+    }
+
+    /**
+     * True if some caller of the top frame (the frame just entered) has an exception handler
+     * around its call, so the exceptional continuation of the callee matters to the caller.
+     */
+    static boolean callerHandlesExceptions(ThreadInfo ti) {
+        StackFrame top = ti.getTopFrame();
+        for (StackFrame f = top != null ? top.getPrevious() : null; f != null; f = f.getPrevious()) {
+            MethodInfo mi = f.getMethodInfo();
+            ExceptionHandler[] handlers = mi != null ? mi.getExceptions() : null;
+            if (handlers == null || f.getPC() == null) continue;
+            int pos = f.getPC().getPosition();
+            for (ExceptionHandler h : handlers) {
+                if (pos >= h.getBegin() && pos < h.getEnd()) return true;
+            }
+        }
+        return false;
+    }
+
+    /** True if a frame of ti runs a call whose summary was instantiated. */
+    static boolean insideApplied(ThreadInfo ti) {
+        for (StackFrame f = ti.getTopFrame(); f != null; f = f.getPrevious()) {
+            if (f.hasFrameAttr(Applied.class)) return true;
+        }
+        return false;
+    }
+
+    void pathCut() {
+        stats.pathsCut++;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        return String.format("Summaries: %d applied (%d site(s) instantiated, %d contradictory dropped, %d path(s) cut), %d stored",
+            stats.applied, stats.sitesInstantiated, stats.sitesDropped, stats.pathsCut, stats.stored);
+    }
+}
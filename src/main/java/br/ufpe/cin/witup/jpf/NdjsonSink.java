@@ -0,0 +1,80 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.JPFException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one compact JSON object per line (NDJSON) to a file as results are discovered,
+ * so partial results survive a timeout or a crashed JVM. An existing file is truncated, so a
+ * rerun does not mix its lines with the previous run's. Output is buffered and flushed at most
+ * every flushIntervalMillis, plus once on close.
+ */
+final class NdjsonSink implements AutoCloseable {
+
+    private final Path path;
+    private final BufferedWriter out;
+    private final long flushIntervalNanos;
+    private long lastFlush;
+    private boolean dirty;
+
+    NdjsonSink(Path path, long flushIntervalMillis) {
+        this.path = path;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new JPFException("cannot open result sink " + path + ": " + e.getMessage(), e);
+        }
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+        this.lastFlush = System.nanoTime();
+    }
+
+    /** Writes one JSON document (must not contain raw newlines) followed by '\n'. */
+    void writeLine(String json) {
+        try {
+            out.write(json);
+            out.write('\n');
+            dirty = true;
+        } catch (IOException e) {
+            throw new JPFException("cannot write to result sink " + path + ": " + e.getMessage(), e);
+        }
+        flushIfDue();
+    }
+
+    /** Flushes buffered lines if the flush interval has elapsed since the last flush. */
+    void flushIfDue() {
+        if (dirty && System.nanoTime() - lastFlush >= flushIntervalNanos) {
+            flush();
+        }
+    }
+
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new JPFException("cannot flush result sink " + path + ": " + e.getMessage(), e);
+        }
+        dirty = false;
+        lastFlush = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new JPFException("cannot close result sink " + path + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.BatchRunner.ConfigResult;
+import br.ufpe.cin.witup.jpf.BatchRunner.Job;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.SiteKey;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs .jpf configs in parallel on a bounded pool of worker JVMs. JPF search is single-threaded
+ * and keeps static VM state, so each job runs in its own child JVM (BatchRunner with a single
+ * config). That gives every job its own heap limit (-Xmx) and wall-clock limit, and a path
+ * explosion in one job cannot starve the others. Child reports are merged into one JSON report
+ * keyed by config and then by method signature.
+ *
+ * <pre>
+ * ParallelRunner [-j jobs] [--xmx 1024m] [--timeout seconds] [--work-dir dir] [-o report.json]
+ *                [--partitions n [--partition-depth k]]
+ *                &lt;dir | manifest.jsonl | config.jpf&gt;... [+key=value ...]
+ * </pre>
+ * jobs defaults to the number of available processors. Each child's console output goes to
+ * &lt;work-dir&gt;/job-N.log. With --partitions, a single symbolic method is split into n
+ * independent partition runs (see SearchPartition) that are scheduled like separate jobs and
+ * merged afterwards; per-partition work is printed and kept in the report. Files the job writes
+ * (witup.output, witup.result, witup.prune.log, metrics) get a ".partN" suffix per partition.
+ */
+public class ParallelRunner {
+
+    static final String DEFAULT_REPORT = "target/witup/parallel-report.json";
+    static final String DEFAULT_WORK_DIR = "target/witup/parallel";
+
+    private static final Gson GSON = new Gson();
+    private static final Type CHILD_REPORT_TYPE = new TypeToken<Map<String, ConfigResult>>() { }.getType();
+
+    /** Options naming a file a run writes; each partition run gets its own. */
+    private static final String[] OUTPUT_FILE_KEYS = {"witup.output", "witup.result", "witup.prune.log"};
+
+    /** Merged outcome of one config: sites grouped by the method that throws. */
+    static final class MergedResult {
+        String status;
+        String error;
+        long elapsedMillis;
+        Map<String, List<ExceptionSite>> methods = new LinkedHashMap<>();
+        /** Per-partition work when the config was split with --partitions; null otherwise. */
+        List<SearchPartition.Stats> partitions;
+    }
+
+    private final int jobs;
+    private final String xmx;
+    private final long timeoutSeconds;
+    private final Path workDir;
+    private final List<String> globalOverrides;
+    private int partitions = 1;
+    private int partitionDepth;
+
+    ParallelRunner(int jobs, String xmx, long timeoutSeconds, Path workDir, List<String> globalOverrides) {
+        this.jobs = jobs;
+        this.xmx = xmx;
+        this.timeoutSeconds = timeoutSeconds;
+        this.workDir = workDir;
+        this.globalOverrides = globalOverrides;
+    }
+
+    /** Splits every config into count partition runs (see SearchPartition); depth 0 picks a default. */
+    void setPartitions(int count, int depth) {
+        this.partitions = Math.max(1, count);
+        this.partitionDepth = depth;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String xmx = "1024m";
+        long timeout = 0;
+        String report = DEFAULT_REPORT;
+        String workDir = DEFAULT_WORK_DIR;
+        int partitions = 1;
+        int partitionDepth = 0;
+        List<String> inputs = new ArrayList<>();
+        List<String> overrides = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (("-j".equals(a) || "--jobs".equals(a)) && hasValue) {
+                jobs = Integer.parseInt(args[++i]);
+            } else if ("--xmx".equals(a) && hasValue) {
+                xmx = args[++i];
+            } else if ("--timeout".equals(a) && hasValue) {
+                timeout = Long.parseLong(args[++i]);
+            } else if ("--partitions".equals(a) && hasValue) {
+                partitions = Integer.parseInt(args[++i]);
+            } else if ("--partition-depth".equals(a) && hasValue) {
+                partitionDepth = Integer.parseInt(args[++i]);
+            } else if ("--work-dir".equals(a) && hasValue) {
+                workDir = args[++i];
+            } else if (("-o".equals(a) || "--output".equals(a)) && hasValue) {
+                report = args[++i];
+            } else if (a.startsWith("+")) {
+                overrides.add(a);
+            } else {
+                inputs.add(a);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("usage: ParallelRunner [-j jobs] [--xmx 1024m] [--timeout seconds] [--work-dir dir]"
+                + " [--partitions n [--partition-depth k]] [-o report.json]"
+                + " <dir | manifest.jsonl | config.jpf>... [+key=value ...]");
+            System.exit(2);
+        }
+
+        List<Job> jobList = new ArrayList<>();
+        for (String input : inputs) {
+            jobList.addAll(BatchRunner.expand(Paths.get(input)));
+        }
+
+        ParallelRunner runner = new ParallelRunner(Math.max(1, jobs), xmx, timeout, Paths.get(workDir), overrides);
+        runner.setPartitions(partitions, partitionDepth);
+        long start = System.nanoTime();
+        Map<String, MergedResult> results = runner.runAll(jobList);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        int failed = 0;
+        int incomplete = 0;
+        for (MergedResult r : results.values()) {
+            if (BatchRunner.isFailure(r.status)) failed++;
+            if (BatchRunner.INCOMPLETE.equals(r.status)) incomplete++;
+        }
+        BatchRunner.writeReport(Paths.get(report), results);
+        System.err.printf("[witup] %d config(s) on %d worker(s), %d failed, %d incomplete, %d ms (%.0f config(s)/h); report: %s%n",
+            jobList.size(), runner.jobs, failed, incomplete, elapsed, BatchRunner.perHour(jobList.size(), elapsed), report);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Runs all jobs on the worker pool and returns merged results in job order. With partitions > 1
+     * every job is split into that many partition runs whose sites are merged afterwards.
+     */
+    Map<String, MergedResult> runAll(List<Job> jobList) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        List<List<Future<ConfigResult>>> futures = new ArrayList<>();
+        try {
+            int index = 0;
+            for (Job job : jobList) {
+                List<Future<ConfigResult>> parts = new ArrayList<>();
+                for (int p = 0; p < partitions; p++) {
+                    final int id = p;
+                    final int childIndex = index++;
+                    parts.add(pool.submit(() -> runJob(partitions > 1 ? partitionJob(job, id) : job, childIndex)));
+                }
+                futures.add(parts);
+            }
+            Map<String, MergedResult> results = new LinkedHashMap<>();
+            for (int i = 0; i < jobList.size(); i++) {
+                Job job = jobList.get(i);
+                List<ConfigResult> parts = new ArrayList<>();
+                for (Future<ConfigResult> f : futures.get(i)) {
+                    try {
+                        parts.add(f.get());
+                    } catch (ExecutionException e) {
+                        ConfigResult failed = new ConfigResult();
+                        failed.status = "error";
+                        failed.error = e.getCause().toString();
+                        parts.add(failed);
+                    }
+                }
+                MergedResult r = merge(parts);
+                results.put(job.id(), r);
+                System.err.printf("[witup] %s: %s, %d method(s), %d ms%n",
+                    job.id(), r.status, r.methods.size(), r.elapsedMillis);
+                if (r.partitions != null) {
+                    printPartitionWork(r.partitions);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The run of partition id of job. Output files configured for the job are renamed with a
+     * ".part&lt;id&gt;" suffix, so partition runs do not truncate or replace each other's files.
+     */
+    Job partitionJob(Job job, int id) {
+        List<String> overrides = new ArrayList<>(job.overrides);
+        overrides.add("+witup.partition.count=" + partitions);
+        overrides.add("+witup.partition.id=" + id);
+        if (partitionDepth > 0) {
+            overrides.add("+witup.partition.depth=" + partitionDepth);
+        }
+        List<String> args = new ArrayList<>();
+        args.add(job.config);
+        args.addAll(globalOverrides);
+        args.addAll(job.overrides);
+        Config conf = JPF.createConfig(args.toArray(new String[0]));
+        for (String key : OUTPUT_FILE_KEYS) {
+            String path = conf.getString(key, "");
+            if (!path.isEmpty()) overrides.add("+" + key + "=" + partPath(path, id));
+        }
+        if (!conf.getString("witup.metrics.dir", "").isEmpty()) {
+            overrides.add("+witup.metrics.name=" + RunMetrics.name(conf) + ".part" + id);
+        }
+        return new Job(job.config, overrides);
+    }
+
+    /** path with ".part&lt;id&gt;" inserted before the file name's extension, e.g. out.part1.ndjson. */
+    static String partPath(String path, int id) {
+        int dot = path.lastIndexOf('.');
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar));
+        return dot > slash + 1 ? path.substring(0, dot) + ".part" + id + path.substring(dot) : path + ".part" + id;
+    }
+
+    /**
+     * Merges the child results of one job. Sites are deduplicated by site key with hit counts
+     * summed, so partition runs merge to the same set of conditions as a sequential run. The job is
+     * "ok" only if every part is, and "incomplete" only if no part failed; elapsed time is that of
+     * the slowest part.
+     */
+    static MergedResult merge(List<ConfigResult> parts) {
+        MergedResult merged = new MergedResult();
+        merged.status = "ok";
+        Map<SiteKey, ExceptionSite> sites = new LinkedHashMap<>();
+        for (ConfigResult part : parts) {
+            boolean worse = "ok".equals(merged.status)
+                || BatchRunner.INCOMPLETE.equals(merged.status) && BatchRunner.isFailure(part.status);
+            if (!"ok".equals(part.status) && worse) {
+                merged.status = part.status;
+                merged.error = part.error;
+            }
+            merged.elapsedMillis = Math.max(merged.elapsedMillis, part.elapsedMillis);
+            for (ExceptionSite site : part.sites) {
+                ExceptionSite existing = sites.get(site.key());
+                if (existing != null) {
+                    existing.addHits(site.getHits());
+                } else {
+                    sites.put(site.key(), site);
+                }
+            }
+            if (part.partition != null) {
+                if (merged.partitions == null) merged.partitions = new ArrayList<>();
+                merged.partitions.add(part.partition);
+            }
+        }
+        groupByMethod(sites.values(), merged.methods);
+        return merged;
+    }
+
+    private static void printPartitionWork(List<SearchPartition.Stats> stats) {
+        long max = 0;
+        long total = 0;
+        for (SearchPartition.Stats s : stats) {
+            System.err.printf("[witup]   partition %d/%d (depth %d): %d states, %d pruned, %d throws recorded%n",
+                s.id, s.count, s.depth, s.statesExplored, s.prunedChoices, s.throwsRecorded);
+            max = Math.max(max, s.statesExplored);
+            total += s.statesExplored;
+        }
+        if (total > 0) {
+            System.err.printf("[witup]   imbalance (max/mean states): %.2f%n", max * (double) stats.size() / total);
+        }
+    }
+
+    /** Runs one job in a child JVM, enforcing the timeout, and reads back its report. */
+    ConfigResult runJob(Job job, int index) throws IOException, InterruptedException {
+        Path childReport = workDir.resolve("job-" + index + ".json");
+        Path log = workDir.resolve("job-" + index + ".log");
+        Files.deleteIfExists(childReport);
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-Xmx" + xmx);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(BatchRunner.class.getName());
+        cmd.add("-o");
+        cmd.add(childReport.toString());
+        cmd.add(job.config);
+        cmd.addAll(globalOverrides);
+        cmd.addAll(job.overrides);
+
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(cmd)
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        boolean finished;
+        if (timeoutSeconds > 0) {
+            finished = p.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+        } else {
+            p.waitFor();
+            finished = true;
+        }
+        if (!finished) {
+            p.destroyForcibly();
+            p.waitFor();
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        ConfigResult result = null;
+        if (!finished) {
+            result = new ConfigResult();
+            result.status = "timeout";
+            result.error = "killed after " + timeoutSeconds + " s (log: " + log + ")";
+        } else if (!Files.exists(childReport)) {
+            result = new ConfigResult();
+            result.status = "crashed";
+            result.error = "worker exited with " + p.exitValue() + " without a report (log: " + log + ")";
+        } else {
+            Map<String, ConfigResult> child;
+            try (Reader r = Files.newBufferedReader(childReport, StandardCharsets.UTF_8)) {
+                child = GSON.fromJson(r, CHILD_REPORT_TYPE);
+            }
+            result = child.values().iterator().next();
+        }
+        result.elapsedMillis = elapsed;
+        return result;
+    }
+
+    static void groupByMethod(Collection<ExceptionSite> sites, Map<String, List<ExceptionSite>> byMethod) {
+        for (ExceptionSite site : sites) {
+            byMethod.computeIfAbsent(site.getMethodSignature(), k -> new ArrayList<>()).add(site);
+        }
+    }
+}
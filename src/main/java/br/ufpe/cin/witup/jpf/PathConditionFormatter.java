@@ -0,0 +1,159 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.MethodFormatInfo;
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Renders a jpf-symbc PathCondition in user-facing form by walking the Constraint / Expression
+ * tree in one pass, instead of parsing PathCondition.toString() with regexes.
+ * Produces the same text as ExceptionConditionListener.formatConditionForUser applied to
+ * toString(): symbolic variables lose their "_N_SYMxxx" suffix, constants are printed raw and
+ * instance fields are qualified as "this.field".
+ *
+ * A formatter created with dropBounds leaves out the constraints that the bounds of their
+ * variable already imply (see ConditionSimplifier.impliedByBounds). One created with keepSuffixes
+ * prints variables with their suffix, so distinct variables with the same base name stay
+ * distinct; that form is for comparing conditions (SitePruner), not for reporting.
+ *
+ * Not thread-safe: the builder is reused across calls; use one instance per thread.
+ */
+final class PathConditionFormatter {
+
+    /** Separator jpf-symbc uses between conjuncts in Constraint.toString(). */
+    static final String AND = " &&\n";
+
+    private final StringBuilder sb = new StringBuilder(256);
+    private final boolean dropBounds;
+    private final boolean keepSuffixes;
+
+    PathConditionFormatter() {
+        this(false);
+    }
+
+    PathConditionFormatter(boolean dropBounds) {
+        this(dropBounds, false);
+    }
+
+    PathConditionFormatter(boolean dropBounds, boolean keepSuffixes) {
+        this.dropBounds = dropBounds;
+        this.keepSuffixes = keepSuffixes;
+    }
+
+    /**
+     * Formats the conjunction held by pc. info may be null, in which case no field qualification
+     * is done. Returns "" for a path condition without constraints and null for a null pc.
+     */
+    String format(PathCondition pc, MethodFormatInfo info) {
+        if (pc == null) return null;
+        sb.setLength(0);
+        for (Constraint c = pc.header; c != null; c = c.and) {
+            if (dropBounds && ConditionSimplifier.impliedByBounds(c)) continue;
+            if (sb.length() > 0) sb.append(AND);
+            appendConstraint(c, info);
+        }
+        return sb.toString();
+    }
+
+    /** Formats a single symbolic expression (e.g. an argument value), like the operands in format. */
+    String formatExpression(Expression e, MethodFormatInfo info) {
+        sb.setLength(0);
+        appendExpression(e, info);
+        return sb.toString();
+    }
+
+    private void appendConstraint(Constraint c, MethodFormatInfo info) {
+        if (c instanceof LogicalORLinearIntegerConstraints) {
+            sb.append('(');
+            boolean first = true;
+            for (LinearIntegerConstraint lic : ((LogicalORLinearIntegerConstraints) c).getList()) {
+                if (!first) sb.append(" || ");
+                appendComparison(lic, info);
+                first = false;
+            }
+            sb.append(')');
+            return;
+        }
+        appendComparison(c, info);
+    }
+
+    private void appendComparison(Constraint c, MethodFormatInfo info) {
+        appendExpression(c.getLeft(), info);
+        sb.append(c.getComparator().toString());
+        appendExpression(c.getRight(), info);
+    }
+
+    private void appendExpression(Expression e, MethodFormatInfo info) {
+        if (e instanceof SymbolicInteger) {
+            appendVariable(((SymbolicInteger) e).getName(), e, info);
+        } else if (e instanceof SymbolicReal) {
+            appendVariable(((SymbolicReal) e).getName(), e, info);
+        } else if (e instanceof IntegerConstant) {
+            sb.append(((IntegerConstant) e).value);
+        } else if (e instanceof RealConstant) {
+            sb.append(((RealConstant) e).value);
+        } else if (e instanceof BinaryLinearIntegerExpression) {
+            BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+            appendBinary(b.getLeft(), b.getOp().toString(), b.getRight(), info);
+        } else if (e instanceof BinaryNonLinearIntegerExpression) {
+            BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+            appendBinary(b.left, b.op.toString(), b.right, info);
+        } else if (e instanceof BinaryRealExpression) {
+            BinaryRealExpression b = (BinaryRealExpression) e;
+            appendBinary(b.getLeft(), b.getOp().toString(), b.getRight(), info);
+        } else if (e != null) {
+            // Math functions, string/array expressions, etc.: fall back to the textual form.
+            sb.append(keepSuffixes ? e.toString() : ExceptionConditionListener.formatCondition(e.toString(), info));
+        } else {
+            sb.append("null");
+        }
+    }
+
+    private void appendBinary(Expression left, String op, Expression right, MethodFormatInfo info) {
+        sb.append('(');
+        appendExpression(left, info);
+        sb.append(op);
+        appendExpression(right, info);
+        sb.append(')');
+    }
+
+    /** Appends a symbolic variable name without its jpf-symbc suffix, qualified when it is a field. */
+    private void appendVariable(String name, Expression e, MethodFormatInfo info) {
+        if (name == null) {
+            sb.append(e.toString());
+            return;
+        }
+        int end = keepSuffixes ? name.length() : stripSymSuffix(name);
+        if (info != null && end > 0 && info.isInstanceField(name.substring(0, end))) {
+            sb.append("this.");
+        }
+        sb.append(name, 0, end);
+    }
+
+    /**
+     * Returns the length of name without a trailing "_N_SYMINT" / "_N_SYMREAL" / "_N_SYMSTRING" /
+     * "_N_SYMREF" suffix, or name.length() if there is none.
+     */
+    static int stripSymSuffix(String name) {
+        int sym = name.lastIndexOf("_SYM");
+        if (sym <= 0) return name.length();
+        String kind = name.substring(sym + 4);
+        if (!kind.equals("INT") && !kind.equals("REAL") && !kind.equals("STRING") && !kind.equals("REF")) {
+            return name.length();
+        }
+        int i = sym - 1;
+        while (i >= 0 && Character.isDigit(name.charAt(i))) i--;
+        if (i == sym - 1 || i < 0 || name.charAt(i) != '_') return name.length();
+        return i;
+    }
+}
@@ -0,0 +1,113 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine-readable result of one run, so scripts read the sites from a file instead of scraping
+ * the EXCEPTION CONDITIONS block out of JPF's console output. At search end (or on an analysis
+ * cache hit) one versioned JSON document is written: the sites, whether the run is complete and
+ * the summary lines of the enabled features. A regular file is replaced atomically, so readers
+ * never see a partial document; anything else, such as /dev/fd/3, a named pipe or a symbolic link,
+ * is written in place, which lets a caller receive the result on a dedicated file descriptor.
+ *
+ * Readers check format and version; fields are only ever added within a version.
+ *
+ * <pre>
+ * witup.result =   # file (or /dev/fd/N) that receives the result document at search end
+ * </pre>
+ */
+final class ResultFile {
+
+    static final String FORMAT = "witup-result";
+    static final int VERSION = 1;
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** The document; serialized as the result file. */
+    static final class Document {
+        String format = FORMAT;
+        int version = VERSION;
+        /** "ok", or "incomplete" when a witup.budget.* limit ended the search early. */
+        String status;
+        /** True when the sites come from the analysis cache instead of a search. */
+        boolean cached;
+        /** Budget and coverage when a witup.budget.* limit is set; null otherwise. */
+        RunBudget.Stats budget;
+        /** One-line summaries of the enabled features, as printed below the console block. */
+        List<String> summary = new ArrayList<>();
+        List<ExceptionSite> sites = new ArrayList<>();
+    }
+
+    private final Path path;
+
+    ResultFile(Path path) {
+        this.path = path;
+    }
+
+    /** Returns the result file configured in conf, or null when witup.result is not set. */
+    static ResultFile fromConfig(Config conf) {
+        String result = conf.getString("witup.result", "");
+        return result.isEmpty() ? null : new ResultFile(Paths.get(result));
+    }
+
+    /** Writes the result of a run; budget may be null, summary holds the feature summary lines. */
+    void write(List<ExceptionSite> sites, RunBudget.Stats budget, List<String> summary, boolean cached) {
+        Document doc = new Document();
+        doc.status = budget == null || budget.isComplete() ? "ok" : BatchRunner.INCOMPLETE;
+        doc.cached = cached;
+        doc.budget = budget;
+        doc.summary.addAll(summary);
+        doc.sites.addAll(sites);
+        try {
+            if (Files.exists(path) && !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                    GSON.toJson(doc, w);
+                }
+                return;
+            }
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(doc, w);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new JPFException("cannot write the result to " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Reads a result document, rejecting other formats and versions. */
+    static Document read(Path path) throws IOException {
+        Document doc;
+        try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            doc = GSON.fromJson(r, Document.class);
+        } catch (JsonParseException e) {
+            throw new IOException(path + ": not a result document: " + e.getMessage(), e);
+        }
+        if (doc == null || !FORMAT.equals(doc.format)) {
+            throw new IOException(path + ": not a " + FORMAT + " document");
+        }
+        if (doc.version != VERSION) {
+            throw new IOException(path + ": unsupported " + FORMAT + " version " + doc.version + " (expected " + VERSION + ")");
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,158 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-run budgets, so a runaway search ends with the sites found so far instead of being killed
+ * (and losing them) or holding a worker for hours. Wall time, states and heap are checked on
+ * every new state and, within long transitions, every CHECK_INTERVAL instructions; exceeding one
+ * terminates the search, which still reports its sites as usual. The depth budget does not end
+ * the search: paths are cut off at that depth and exploration continues elsewhere. Either way the
+ * run is marked incomplete, with the coverage reached: states, maximum depth, paths cut and the
+ * PC choices still open on the current path when the search stopped.
+ *
+ * The heap budget compares the heap left in use after the last garbage collection (the live
+ * data, not garbage awaiting collection) with the maximum heap.
+ *
+ * <pre>
+ * witup.budget.seconds = 0         # wall time from search start (0 = unlimited)
+ * witup.budget.states = 0          # new states (0 = unlimited)
+ * witup.budget.depth = 0           # search depth; deeper paths are cut off (0 = unlimited)
+ * witup.budget.heap_fraction = 0   # fraction of -Xmx live after GC, e.g. 0.9 (0 = unlimited)
+ * </pre>
+ */
+final class RunBudget {
+
+    /** Instructions between budget checks inside one transition. */
+    static final int CHECK_INTERVAL = 1 << 16;
+
+    /** Why and how far a run got; exhausted is null while (and if) the run is complete. */
+    static final class Stats {
+        /** "time", "states" or "heap" if the search was terminated, "depth" if paths were cut; null if complete. */
+        String exhausted;
+        long elapsedMillis;
+        long states;
+        int maxDepth;
+        long pathsCut;
+        /** PC choices not yet explored on the current path when the search was terminated. */
+        long unexploredChoices;
+
+        boolean isComplete() {
+            return exhausted == null;
+        }
+    }
+
+    private final long maxNanos;
+    private final long maxStates;
+    private final int maxDepth;
+    private final double maxHeapFraction;
+    private final Stats stats = new Stats();
+    private long startNanos;
+    private int instructions;
+
+    RunBudget(long maxSeconds, long maxStates, int maxDepth, double maxHeapFraction) {
+        this.maxNanos = TimeUnit.SECONDS.toNanos(maxSeconds);
+        this.maxStates = maxStates;
+        this.maxDepth = maxDepth;
+        this.maxHeapFraction = maxHeapFraction;
+    }
+
+    /** Returns the budget configured in conf, or null when no witup.budget.* limit is set. */
+    static RunBudget fromConfig(Config conf) {
+        long seconds = conf.getLong("witup.budget.seconds", 0);
+        long states = conf.getLong("witup.budget.states", 0);
+        int depth = conf.getInt("witup.budget.depth", 0);
+        double heap = conf.getDouble("witup.budget.heap_fraction", 0);
+        if (seconds <= 0 && states <= 0 && depth <= 0 && heap <= 0) return null;
+        return new RunBudget(Math.max(0, seconds), Math.max(0, states), Math.max(0, depth), Math.max(0, heap));
+    }
+
+    void searchStarted() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Accounts one new or revisited state at depth. Returns the exhausted budget that should end
+     * the search, or null; a state beyond the depth budget is to be cut off (see cutsAt).
+     */
+    String stateAdvanced(boolean isNew, int depth) {
+        if (isNew) stats.states++;
+        if (depth > stats.maxDepth) stats.maxDepth = depth;
+        if (maxStates > 0 && stats.states >= maxStates) return "states";
+        return check();
+    }
+
+    /** True if a path at depth exceeds the depth budget; counts it as cut. */
+    boolean cutsAt(int depth) {
+        if (maxDepth <= 0 || depth < maxDepth) return false;
+        stats.pathsCut++;
+        if (stats.exhausted == null) stats.exhausted = "depth";
+        return true;
+    }
+
+    /** Called per executed instruction; every CHECK_INTERVAL instructions checks time and heap. */
+    String instruction() {
+        if (++instructions < CHECK_INTERVAL) return null;
+        instructions = 0;
+        return check();
+    }
+
+    /** Time and heap check; returns the exhausted budget or null. */
+    String check() {
+        if (maxNanos > 0 && System.nanoTime() - startNanos >= maxNanos) return "time";
+        if (maxHeapFraction > 0 && liveHeapFraction() >= maxHeapFraction) return "heap";
+        return null;
+    }
+
+    /** Records that the search is terminated because of budget, with the choices left open on the current path. */
+    void terminated(String budget, VM vm) {
+        stats.exhausted = budget;
+        long open = 0;
+        for (ChoiceGenerator<?> cg = vm.getChoiceGenerator(); cg != null; cg = cg.getPreviousChoiceGenerator()) {
+            if (cg instanceof PCChoiceGenerator) {
+                open += Math.max(0, cg.getTotalNumberOfChoices() - cg.getProcessedNumberOfChoices());
+            }
+        }
+        stats.unexploredChoices = open;
+    }
+
+    void searchFinished() {
+        stats.elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /** Heap in use after the last collection of each heap pool, as a fraction of the maximum heap. */
+    static double liveHeapFraction() {
+        long max = Runtime.getRuntime().maxMemory();
+        if (max <= 0 || max == Long.MAX_VALUE) return 0;
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) live += usage.getUsed();
+        }
+        return (double) live / max;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        if (stats.isComplete()) {
+            return String.format("Budget: complete, %d state(s), depth %d, %d ms", stats.states, stats.maxDepth, stats.elapsedMillis);
+        }
+        return String.format("Budget: INCOMPLETE (%s budget exhausted), sites are partial; coverage: %d state(s), depth %d,"
+                + " %d path(s) cut at the depth budget, %d PC choice(s) left open, %d ms",
+            stats.exhausted, stats.states, stats.maxDepth, stats.pathsCut, stats.unexploredChoices, stats.elapsedMillis);
+    }
+}
@@ -0,0 +1,301 @@
+package br.ufpe.cin.witup.jpf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Where the time of one analysis goes. Collects states, transitions and maximum depth of the
+ * search, PCChoiceGenerator choice points, solver calls with a latency histogram, time to the
+ * first and last new exception site, time spent in the listener's callbacks and peak heap use.
+ * The metrics are written as JSON (name.json) and as Prometheus text exposition (name.prom, e.g.
+ * for node_exporter's textfile collector) when the search ends, and rewritten with a new sample
+ * every interval_ms while it runs, so a long search shows its progress.
+ *
+ * Solver latency is measured around the re-execution of a symbolic branch, which is where
+ * jpf-symbc calls the solver; with the solver cache on, around the cache's solver calls instead.
+ * Listener time covers exceptionThrown, methodEntered, the branch checks after re-execution,
+ * state notifications and search-end processing, but not the per-instruction early exits.
+ *
+ * Peak heap is an upper bound: the sum of each heap memory pool's peak usage since search start.
+ * The pools peak at different times (the young generation empties when objects are promoted), so
+ * the real peak of the whole heap can be lower.
+ *
+ * <pre>
+ * witup.metrics.dir =                # directory for name.json and name.prom (empty = off)
+ * witup.metrics.name =               # file name; default: target, plus the symbolic.method name
+ * witup.metrics.interval_ms = 10000  # rewrite both files with a new sample this often
+ * </pre>
+ */
+final class RunMetrics {
+
+    /** Upper bounds (inclusive, microseconds) of the solver latency histogram buckets; the last is +Inf. */
+    static final long[] SOLVER_BUCKETS_MICROS = {10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    /** Progress of the search at one point in time. */
+    static final class Sample {
+        long elapsedMillis;
+        long states;
+        int maxDepth;
+        int sites;
+        long heapUsedBytes;
+    }
+
+    /** The metrics of one run; serialized as the JSON file and as an entry of the batch report. */
+    static final class Stats {
+        String name;
+        long elapsedMillis;
+        /** New states reached. */
+        long states;
+        /** Transitions, i.e. forward steps of the search (to new or visited states). */
+        long transitions;
+        long backtracks;
+        int maxDepth;
+        long pcChoicePoints;
+        long solverCalls;
+        long solverMillis;
+        /** Solver calls per bucket of SOLVER_BUCKETS_MICROS (not cumulative); the last entry counts slower calls. */
+        long[] solverLatencyHistogram = new long[SOLVER_BUCKETS_MICROS.length + 1];
+        long[] solverLatencyBucketsMicros = SOLVER_BUCKETS_MICROS;
+        int sites;
+        long firstSiteMillis = -1;
+        long lastSiteMillis = -1;
+        long listenerMillis;
+        /** Upper bound of the peak heap use: the sum of the heap pools' peaks. */
+        long peakHeapBytes;
+        List<Sample> samples = new ArrayList<>();
+    }
+
+    private final Path dir;
+    private final long intervalNanos;
+    private final Stats stats = new Stats();
+    private long startNanos;
+    private long lastSampleNanos;
+    private long solverNanos;
+    private long listenerNanos;
+
+    RunMetrics(Path dir, String name, long intervalMillis) {
+        this.dir = dir;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+        stats.name = name;
+    }
+
+    /** Returns the metrics configured in conf, or null when witup.metrics.dir is not set. */
+    static RunMetrics fromConfig(Config conf) {
+        String dir = conf.getString("witup.metrics.dir", "");
+        if (dir.isEmpty()) return null;
+        return new RunMetrics(Paths.get(dir), name(conf), conf.getLong("witup.metrics.interval_ms", 10_000));
+    }
+
+    /** witup.metrics.name, or the default name when it is not set. */
+    static String name(Config conf) {
+        String name = conf.getString("witup.metrics.name", "");
+        return name.isEmpty()
+            ? defaultName(conf.getString("target", "run"), conf.getStringArray("symbolic.method", new String[0])) : name;
+    }
+
+    /** target plus ".method" of the first symbolic.method, made file-name safe. */
+    static String defaultName(String target, String[] symbolicMethods) {
+        String name = target;
+        if (symbolicMethods.length > 0) {
+            String m = symbolicMethods[0];
+            int paren = m.indexOf('(');
+            m = paren >= 0 ? m.substring(0, paren) : m;
+            name = m.startsWith(target + ".") ? m : target + "." + m.substring(m.lastIndexOf('.') + 1);
+        }
+        return name.replaceAll("[^\\w.$-]", "_");
+    }
+
+    void searchStarted() {
+        startNanos = System.nanoTime();
+        lastSampleNanos = startNanos;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    void stateAdvanced(boolean isNew, int depth) {
+        stats.transitions++;
+        if (isNew) stats.states++;
+        if (depth > stats.maxDepth) stats.maxDepth = depth;
+    }
+
+    void stateBacktracked() {
+        stats.backtracks++;
+    }
+
+    void pcChoicePoint() {
+        stats.pcChoicePoints++;
+    }
+
+    void solverCall(long nanos) {
+        stats.solverCalls++;
+        solverNanos += nanos;
+        long micros = nanos / 1_000;
+        int bucket = 0;
+        while (bucket < SOLVER_BUCKETS_MICROS.length && micros > SOLVER_BUCKETS_MICROS[bucket]) {
+            bucket++;
+        }
+        stats.solverLatencyHistogram[bucket]++;
+    }
+
+    /** Wraps solver so that each of its calls is counted and timed. */
+    Predicate<PathCondition> timed(Predicate<PathCondition> solver) {
+        return pc -> {
+            long t0 = System.nanoTime();
+            try {
+                return solver.test(pc);
+            } finally {
+                solverCall(System.nanoTime() - t0);
+            }
+        };
+    }
+
+    /** Adds the time since startNanos (a System.nanoTime() taken on callback entry) to the listener time. */
+    void listenerTime(long startNanos) {
+        listenerNanos += System.nanoTime() - startNanos;
+    }
+
+    /** Called whenever a new distinct exception site is recorded. */
+    void newSite() {
+        long millis = elapsedMillis();
+        if (stats.firstSiteMillis < 0) stats.firstSiteMillis = millis;
+        stats.lastSiteMillis = millis;
+    }
+
+    /** Adds a sample and rewrites the files if interval_ms has elapsed since the last sample. */
+    void sampleIfDue(int sites) {
+        long now = System.nanoTime();
+        if (now - lastSampleNanos < intervalNanos) return;
+        lastSampleNanos = now;
+        Sample s = new Sample();
+        s.elapsedMillis = elapsedMillis();
+        s.states = stats.states;
+        s.maxDepth = stats.maxDepth;
+        s.sites = sites;
+        s.heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        stats.samples.add(s);
+        update(sites);
+        write();
+    }
+
+    /** Final update at search end; writes both files. */
+    void searchFinished(int sites) {
+        update(sites);
+        write();
+    }
+
+    private void update(int sites) {
+        stats.sites = sites;
+        stats.elapsedMillis = elapsedMillis();
+        stats.solverMillis = solverNanos / 1_000_000;
+        stats.listenerMillis = listenerNanos / 1_000_000;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        stats.peakHeapBytes = Math.max(stats.peakHeapBytes, peak);
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private void write() {
+        try {
+            Files.createDirectories(dir);
+            replace(stats.name + ".json", GSON.toJson(stats));
+            replace(stats.name + ".prom", prometheus(stats, solverNanos));
+        } catch (IOException e) {
+            throw new JPFException("cannot write run metrics to " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Writes content to dir/fileName through a temporary file, so readers never see a partial file. */
+    private void replace(String fileName, String content) throws IOException {
+        Path tmp = Files.createTempFile(dir, fileName, ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(content);
+        }
+        Files.move(tmp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Prometheus text exposition of stats, labelled with the run name. */
+    static String prometheus(Stats stats, long solverNanos) {
+        String label = "{run=\"" + stats.name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        StringBuilder sb = new StringBuilder();
+        metric(sb, "witup_states_total", "counter", "New states reached by the search.", label, stats.states);
+        metric(sb, "witup_transitions_total", "counter", "Forward steps of the search.", label, stats.transitions);
+        metric(sb, "witup_backtracks_total", "counter", "Backtracks of the search.", label, stats.backtracks);
+        metric(sb, "witup_max_depth", "gauge", "Maximum search depth reached.", label, stats.maxDepth);
+        metric(sb, "witup_pc_choice_points_total", "counter", "PCChoiceGenerator choice points registered.", label, stats.pcChoicePoints);
+        metric(sb, "witup_sites", "gauge", "Distinct exception sites recorded.", label, stats.sites);
+        metric(sb, "witup_first_site_seconds", "gauge", "Time from search start to the first new site (-1: none).", label,
+            stats.firstSiteMillis < 0 ? -1 : stats.firstSiteMillis / 1000.0);
+        metric(sb, "witup_last_site_seconds", "gauge", "Time from search start to the last new site (-1: none).", label,
+            stats.lastSiteMillis < 0 ? -1 : stats.lastSiteMillis / 1000.0);
+        metric(sb, "witup_elapsed_seconds", "gauge", "Time since search start.", label, stats.elapsedMillis / 1000.0);
+        metric(sb, "witup_listener_seconds_total", "counter", "Time spent in listener callbacks.", label, stats.listenerMillis / 1000.0);
+        metric(sb, "witup_peak_heap_bytes", "gauge", "Upper bound of the peak heap use since search start.", label,
+            stats.peakHeapBytes);
+
+        String name = "witup_solver_call_seconds";
+        sb.append("# HELP ").append(name).append(" Latency of constraint solver calls.\n");
+        sb.append("# TYPE ").append(name).append(" histogram\n");
+        String run = label.substring(1, label.length() - 1);
+        long cumulative = 0;
+        for (int i = 0; i < stats.solverLatencyHistogram.length; i++) {
+            cumulative += stats.solverLatencyHistogram[i];
+            String le = i < SOLVER_BUCKETS_MICROS.length ? number(SOLVER_BUCKETS_MICROS[i] / 1e6) : "+Inf";
+            sb.append(name).append("_bucket{").append(run).append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        sb.append(name).append("_sum").append(label).append(' ').append(number(solverNanos / 1e9)).append('\n');
+        sb.append(name).append("_count").append(label).append(' ').append(stats.solverCalls).append('\n');
+        return sb.toString();
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, String label, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(label).append(' ').append(number(value)).append('\n');
+    }
+
+    private static String number(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : String.format(Locale.ROOT, "%.6f", v);
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        return String.format("Metrics: %d state(s), %d transition(s), depth %d, %d PC choice point(s), %d solver call(s) in %d ms, listener %d ms, peak heap <= %d MB; written to %s",
+            stats.states, stats.transitions, stats.maxDepth, stats.pcChoicePoints, stats.solverCalls, stats.solverMillis,
+            stats.listenerMillis, stats.peakHeapBytes >> 20, dir.resolve(stats.name) + ".{json,prom}");
+    }
+}
@@ -0,0 +1,117 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Splits one symbolic search into count independent partitions by the first depth
+ * PCChoiceGenerator decisions of each path. A path whose decision prefix (cut at depth) hashes
+ * to this partition's id is owned by it; every other path is pruned as soon as its depth-th
+ * decision is made, and throws on paths shorter than depth are only recorded by their owner.
+ * Running all ids and merging the sites therefore reproduces the sequential result, while the
+ * subtrees below depth are explored by exactly one worker.
+ *
+ * <pre>
+ * witup.partition.count = 1     # number of partitions (1 = disabled)
+ * witup.partition.id = 0        # partition explored by this run, 0 .. count-1
+ * witup.partition.depth = 0     # decisions in the prefix (0 = enough for ~4 prefixes per partition)
+ * </pre>
+ */
+final class SearchPartition {
+
+    /** Work done by one partition, reported so load imbalance is visible. */
+    static final class Stats {
+        int id;
+        int count;
+        int depth;
+        long statesExplored;
+        long prunedChoices;
+        long throwsRecorded;
+        long throwsSkipped;
+    }
+
+    private final int count;
+    private final int id;
+    private final int depth;
+    private final Stats stats = new Stats();
+
+    SearchPartition(int count, int id, int depth) {
+        if (count < 1 || id < 0 || id >= count) {
+            throw new IllegalArgumentException("invalid partition " + id + " of " + count);
+        }
+        this.count = count;
+        this.id = id;
+        this.depth = depth > 0 ? depth : defaultDepth(count);
+        stats.id = id;
+        stats.count = count;
+        stats.depth = this.depth;
+    }
+
+    /** Returns the partition configured in conf, or null when partitioning is off. */
+    static SearchPartition fromConfig(Config conf) {
+        int count = conf.getInt("witup.partition.count", 1);
+        if (count <= 1) return null;
+        return new SearchPartition(count, conf.getInt("witup.partition.id", 0), conf.getInt("witup.partition.depth", 0));
+    }
+
+    /** Smallest depth giving at least four binary prefixes per partition, capped at 20. */
+    static int defaultDepth(int count) {
+        int depth = 2;
+        while ((1L << depth) < 4L * count && depth < 20) depth++;
+        return depth;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    void stateAdvanced() {
+        stats.statesExplored++;
+    }
+
+    /**
+     * Called when a PCChoiceGenerator advances. Returns false (and marks the state ignored) when
+     * this choice completes a prefix owned by another partition.
+     */
+    boolean choiceAdvanced(VM vm) {
+        PCChoiceGenerator[] cgs = vm.getChoiceGeneratorsOfType(PCChoiceGenerator.class);
+        if (cgs.length != depth) return true;
+        if (owner(cgs) == id) return true;
+        vm.ignoreState();
+        stats.prunedChoices++;
+        return false;
+    }
+
+    /** True if a throw on the current path belongs to this partition. */
+    boolean ownsCurrentPath(VM vm) {
+        boolean owned = owner(vm.getChoiceGeneratorsOfType(PCChoiceGenerator.class)) == id;
+        if (owned) {
+            stats.throwsRecorded++;
+        } else {
+            stats.throwsSkipped++;
+        }
+        return owned;
+    }
+
+    private int owner(PCChoiceGenerator[] cgs) {
+        int n = Math.min(cgs.length, depth);
+        int[] choices = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer c = cgs[i].getNextChoice();
+            choices[i] = c != null ? c : 0;
+        }
+        return owner(choices, count);
+    }
+
+    /** Deterministic partition of a decision prefix; prefixes of different lengths hash apart. */
+    static int owner(int[] prefix, int count) {
+        int h = prefix.length;
+        for (int c : prefix) {
+            h = 31 * h + c + 1;
+        }
+        h *= 0x9E3779B9;
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % count;
+    }
+}
@@ -0,0 +1,188 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import gov.nasa.jpf.Config;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Prunes paths that can no longer contribute a new weakest condition. For every throw location
+ * the pruner keeps the minimal conjunct sets seen so far; a path whose current condition already
+ * contains one of them (it is at least as strong) can only reproduce a stronger condition there.
+ * When that holds for every throw location still reachable from the current point, or the
+ * location has used up its budget of paths or time, the path is cut off. Each decision records
+ * the reason per location.
+ *
+ * Subsumption is syntactic (conjunct containment), so it never prunes a path that could add a
+ * weaker condition at a reachable location. Conditions are compared with their symbolic variable
+ * suffixes, so two variables with the same base name stay apart. Locations include instructions
+ * that can throw implicitly (division, null dereference, array access, cast); a location that has
+ * not thrown yet, or a path that can still enter JDK code, keeps the path alive.
+ *
+ * <pre>
+ * witup.prune = false            # enable subsumption pruning
+ * witup.prune.site_paths = 0     # paths recorded per throw location before it counts as done (0 = no limit)
+ * witup.prune.site_ms = 0        # time after the first hit of a location before it counts as done (0 = no limit)
+ * witup.prune.log =              # NDJSON file with one line per pruned path and its reasons
+ * </pre>
+ */
+final class SitePruner {
+
+    static final String SUBSUMED = "subsumed";
+    static final String PATH_BUDGET = "path-budget";
+    static final String TIME_BUDGET = "time-budget";
+
+    /** Pruning counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long pathsChecked;
+        long pathsPruned;
+        /** Per throw location: how often it was the reason for pruning, by reason. */
+        Map<String, Map<String, Long>> reasons = new TreeMap<>();
+    }
+
+    /** What the pruner knows about one throw location. */
+    private static final class Site {
+        final List<Set<String>> minimal = new ArrayList<>();
+        int paths;
+        long firstHitNanos;
+    }
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final int pathBudget;
+    private final long timeBudgetNanos;
+    private final NdjsonSink log;
+    private final Map<String, Site> sites = new HashMap<>();
+    private final Stats stats = new Stats();
+
+    SitePruner(int pathBudget, long timeBudgetMillis, NdjsonSink log) {
+        this.pathBudget = pathBudget;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.log = log;
+    }
+
+    /** Returns the pruner configured in conf, or null when pruning is off. */
+    static SitePruner fromConfig(Config conf) {
+        if (!conf.getBoolean("witup.prune", false)) return null;
+        String log = conf.getString("witup.prune.log", "");
+        return new SitePruner(conf.getInt("witup.prune.site_paths", 0), conf.getLong("witup.prune.site_ms", 0),
+            log.isEmpty() ? null : new NdjsonSink(Paths.get(log), 1000));
+    }
+
+    /** Records a throw at site under condition (rendered with variable suffixes, without field qualification). */
+    void recordThrow(String site, String condition) {
+        Site s = sites.get(site);
+        if (s == null) {
+            s = new Site();
+            s.firstHitNanos = System.nanoTime();
+            sites.put(site, s);
+        }
+        s.paths++;
+        Set<String> c = conjuncts(condition);
+        for (Set<String> m : s.minimal) {
+            if (c.containsAll(m)) return;
+        }
+        s.minimal.removeIf(m -> m.containsAll(c));
+        s.minimal.add(c);
+    }
+
+    /**
+     * Decides whether the current path can be cut off. reachable are the throw locations still
+     * reachable (null if unknown, which never prunes); condition is the path condition rendered
+     * like in recordThrow. Returns the reason per location if the path should be pruned, else null.
+     */
+    Map<String, String> check(Set<String> reachable, String condition, int depth) {
+        stats.pathsChecked++;
+        if (reachable == null || reachable.isEmpty()) return null;
+        Set<String> c = null;
+        long now = System.nanoTime();
+        Map<String, String> reasons = new TreeMap<>();
+        for (String site : reachable) {
+            Site s = sites.get(site);
+            if (s == null) return null;
+            if (pathBudget > 0 && s.paths >= pathBudget) {
+                reasons.put(site, PATH_BUDGET);
+                continue;
+            }
+            if (timeBudgetNanos > 0 && now - s.firstHitNanos >= timeBudgetNanos) {
+                reasons.put(site, TIME_BUDGET);
+                continue;
+            }
+            if (c == null) c = conjuncts(condition);
+            Set<String> by = subsumedBy(s, c);
+            if (by == null) return null;
+            reasons.put(site, SUBSUMED + " by " + String.join(" && ", by));
+        }
+        stats.pathsPruned++;
+        for (Map.Entry<String, String> e : reasons.entrySet()) {
+            String reason = e.getValue().startsWith(SUBSUMED) ? SUBSUMED : e.getValue();
+            stats.reasons.computeIfAbsent(e.getKey(), k -> new TreeMap<>()).merge(reason, 1L, Long::sum);
+        }
+        if (log != null) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("depth", depth);
+            line.put("condition", String.join(" && ", conjuncts(condition)));
+            line.put("reasons", reasons);
+            log.writeLine(GSON.toJson(line));
+        }
+        return reasons;
+    }
+
+    private static Set<String> subsumedBy(Site s, Set<String> condition) {
+        for (Set<String> m : s.minimal) {
+            if (condition.containsAll(m)) return m;
+        }
+        return null;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        return String.format("Pruning: %d of %d checked path(s) pruned", stats.pathsPruned, stats.pathsChecked);
+    }
+
+    void close() {
+        if (log != null) log.close();
+    }
+
+    /** Top-level conjuncts of a rendered condition, whitespace-normalized. */
+    static Set<String> conjuncts(String condition) {
+        if (condition == null) return new TreeSet<>();
+        return ExceptionConditionListener.conjunctSet(condition);
+    }
+
+    /**
+     * Drops sites whose condition is strictly stronger than another condition reported for the
+     * same exception, method and line, so each location keeps only its weakest conditions.
+     */
+    static void keepWeakest(SiteTable sites) {
+        Map<String, List<Set<String>>> byLocation = new HashMap<>();
+        for (ExceptionSite site : sites.sites()) {
+            byLocation.computeIfAbsent(location(site), k -> new ArrayList<>()).add(conjuncts(site.getCondition()));
+        }
+        sites.removeIf(site -> {
+            Set<String> c = conjuncts(site.getCondition());
+            for (Set<String> other : byLocation.get(location(site))) {
+                if (other.size() < c.size() && c.containsAll(other)) return true;
+            }
+            return false;
+        });
+    }
+
+    private static String location(ExceptionSite site) {
+        return site.getThrownException() + "|" + site.getMethodSignature() + "|" + site.getLineNumber();
+    }
+}
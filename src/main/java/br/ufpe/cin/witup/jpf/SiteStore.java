@@ -0,0 +1,586 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Compact, indexed on-disk store of exception sites for corpora too large to re-parse as JSON on
+ * every query. Method signatures, exception names, sources (the config a site came from) and the
+ * conjuncts of conditions are interned once in a string table; each site is a record of string
+ * ids. Sorted indexes by method signature and by exception type map to site ids, so a query reads
+ * only the records it returns. Stores are memory-mapped read-only and strings are compared as
+ * UTF-8 bytes in place; nothing is decoded until a site is materialized.
+ *
+ * <pre>
+ * SiteStore merge -o out.wsites &lt;batch report | sites .json | .jsonl | .wsites&gt;...
+ * SiteStore query &lt;store&gt; [--class name] [--method signature] [--exception type]
+ * SiteStore export &lt;store&gt; [-o sites.json] [--compact]
+ * </pre>
+ * merge combines per-config outputs (reports and site files are streamed, not parsed whole);
+ * sites with the same source and key are merged by adding their hits. query prints the matching
+ * sites as JSON lines, export writes them all as ExceptionSite.toJsonArray does.
+ *
+ * Layout (big-endian ints; a store is limited to 2 GB): header (magic, version, counts, section
+ * offsets), string table (end offsets, then UTF-8 bytes), site records (offsets, then source,
+ * exception, method, line, hits, summaryOf, witness JSON and the conjunct ids) and the two
+ * indexes (key ids in key order, posting list ends, then the site ids).
+ */
+public class SiteStore implements Closeable {
+
+    static final int MAGIC = 0x57535431;
+    static final int VERSION = 1;
+    static final String EXTENSION = ".wsites";
+
+    /** Header: magic, version, 4 counts and 4 section offsets. */
+    private static final int HEADER_BYTES = 10 * Integer.BYTES;
+    /** Fixed ints of a site record before its conjunct ids. */
+    private static final int RECORD_INTS = 8;
+    private static final int NONE = -1;
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Gson GSON_PRETTY = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final Pattern AND = Pattern.compile(Pattern.quote(PathConditionFormatter.AND));
+
+    /** A site as stored, with the config (or file) it came from. */
+    static final class StoredSite {
+        final String source;
+        final ExceptionSite site;
+
+        StoredSite(String source, ExceptionSite site) {
+            this.source = source;
+            this.site = site;
+        }
+    }
+
+    /** Interns sites in memory and writes them as one store. */
+    static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final List<int[]> records = new ArrayList<>();
+        /** Record index per source and site key, to merge repeated sites. */
+        private final Map<List<Object>, Integer> index = new HashMap<>();
+
+        int intern(String s) {
+            if (s == null) return NONE;
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = strings.size();
+                ids.put(s, id);
+                strings.add(s);
+            }
+            return id;
+        }
+
+        void add(String source, ExceptionSite site) {
+            List<Object> key = Arrays.asList(source, site.key());
+            Integer existing = index.get(key);
+            if (existing != null) {
+                records.get(existing)[4] += site.getHits();
+                return;
+            }
+            String condition = site.getCondition();
+            String[] conjuncts = condition == null ? null : AND.split(condition, -1);
+            int n = conjuncts == null ? NONE : conjuncts.length;
+            int[] r = new int[RECORD_INTS + Math.max(0, n)];
+            r[0] = intern(source);
+            r[1] = intern(Objects.toString(site.getThrownException(), ""));
+            r[2] = intern(Objects.toString(site.getMethodSignature(), ""));
+            r[3] = site.getLineNumber();
+            r[4] = site.getHits();
+            r[5] = intern(site.getSummaryOf());
+            r[6] = site.getWitness() != null ? intern(GSON.toJson(site.getWitness())) : NONE;
+            r[7] = n;
+            for (int i = 0; i < n; i++) {
+                r[RECORD_INTS + i] = intern(conjuncts[i]);
+            }
+            index.put(key, records.size());
+            records.add(r);
+        }
+
+        int size() {
+            return records.size();
+        }
+
+        /** Writes the store to file, replacing it atomically. */
+        void write(Path file) throws IOException {
+            byte[][] bytes = new byte[strings.size()][];
+            long blob = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                blob += bytes[i].length;
+            }
+            long recordInts = 0;
+            for (int[] r : records) {
+                recordInts += r.length;
+            }
+            int[][] methodIndex = buildIndex(bytes, 2);
+            int[][] exceptionIndex = buildIndex(bytes, 1);
+            long stringsOffset = HEADER_BYTES;
+            long sitesOffset = stringsOffset + (long) (bytes.length + 1) * Integer.BYTES + blob;
+            long methodOffset = sitesOffset + ((long) records.size() + recordInts) * Integer.BYTES;
+            long exceptionOffset = methodOffset + indexBytes(methodIndex);
+            long total = exceptionOffset + indexBytes(exceptionIndex);
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("site store would be " + total + " bytes; the limit is 2 GB, split the inputs");
+            }
+
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                for (long v : new long[]{MAGIC, VERSION, bytes.length, records.size(), methodIndex[0].length,
+                        exceptionIndex[0].length, stringsOffset, sitesOffset, methodOffset, exceptionOffset}) {
+                    out.writeInt((int) v);
+                }
+                int end = 0;
+                out.writeInt(0);
+                for (byte[] b : bytes) {
+                    end += b.length;
+                    out.writeInt(end);
+                }
+                for (byte[] b : bytes) {
+                    out.write(b);
+                }
+                int offset = 0;
+                for (int[] r : records) {
+                    out.writeInt(offset);
+                    offset += r.length * Integer.BYTES;
+                }
+                for (int[] r : records) {
+                    writeInts(out, r);
+                }
+                for (int[] part : methodIndex) {
+                    writeInts(out, part);
+                }
+                for (int[] part : exceptionIndex) {
+                    writeInts(out, part);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /** Keys (string ids of record field f) in UTF-8 byte order, posting list ends and site ids. */
+        private int[][] buildIndex(byte[][] bytes, int f) {
+            TreeMap<byte[], List<Integer>> postings = new TreeMap<>(SiteStore::compareBytes);
+            for (int i = 0; i < records.size(); i++) {
+                postings.computeIfAbsent(bytes[records.get(i)[f]], k -> new ArrayList<>()).add(i);
+            }
+            int[] keys = new int[postings.size()];
+            int[] ends = new int[postings.size()];
+            int[] sites = new int[records.size()];
+            int k = 0;
+            int n = 0;
+            for (List<Integer> p : postings.values()) {
+                keys[k] = records.get(p.get(0))[f];
+                for (int site : p) {
+                    sites[n++] = site;
+                }
+                ends[k++] = n;
+            }
+            return new int[][]{keys, ends, sites};
+        }
+
+        private static long indexBytes(int[][] index) {
+            return ((long) index[0].length * 2 + index[2].length) * Integer.BYTES;
+        }
+
+        private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+            for (int v : values) {
+                out.writeInt(v);
+            }
+        }
+    }
+
+    private final ByteBuffer buf;
+    private final int stringCount;
+    private final int siteCount;
+    private final int stringsOffset;
+    private final int blobOffset;
+    private final int sitesOffset;
+    private final int recordsOffset;
+    private final Index methodIndex;
+    private final Index exceptionIndex;
+    private final FileChannel channel;
+
+    /** A sorted key index: key string ids, posting list ends and site ids. */
+    private final class Index {
+        final int count;
+        final int keysOffset;
+        final int endsOffset;
+        final int sitesOffset;
+
+        Index(int count, int offset) {
+            this.count = count;
+            this.keysOffset = offset;
+            this.endsOffset = offset + count * Integer.BYTES;
+            this.sitesOffset = endsOffset + count * Integer.BYTES;
+        }
+
+        int key(int i) {
+            return buf.getInt(keysOffset + i * Integer.BYTES);
+        }
+
+        int start(int i) {
+            return i == 0 ? 0 : buf.getInt(endsOffset + (i - 1) * Integer.BYTES);
+        }
+
+        /** First key position whose string is not less than target (count if none). */
+        int lowerBound(byte[] target) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareString(key(mid), target) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Site ids of the keys equal to key, or that start with it when prefix is set. */
+        void collect(String key, boolean prefix, List<Integer> out) {
+            byte[] target = key.getBytes(StandardCharsets.UTF_8);
+            for (int i = lowerBound(target); i < count; i++) {
+                if (prefix ? !startsWith(key(i), target) : compareString(key(i), target) != 0) break;
+                for (int p = start(i), end = start(i + 1); p < end; p++) {
+                    out.add(buf.getInt(sitesOffset + p * Integer.BYTES));
+                }
+            }
+        }
+    }
+
+    private SiteStore(ByteBuffer buf, FileChannel channel) throws IOException {
+        this.buf = buf;
+        this.channel = channel;
+        if (buf.limit() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw new IOException("not a site store");
+        if (buf.getInt(4) != VERSION) throw new IOException("unsupported site store version " + buf.getInt(4));
+        stringCount = buf.getInt(8);
+        siteCount = buf.getInt(12);
+        stringsOffset = buf.getInt(24);
+        blobOffset = stringsOffset + (stringCount + 1) * Integer.BYTES;
+        sitesOffset = buf.getInt(28);
+        recordsOffset = sitesOffset + siteCount * Integer.BYTES;
+        methodIndex = new Index(buf.getInt(16), buf.getInt(32));
+        exceptionIndex = new Index(buf.getInt(20), buf.getInt(36));
+    }
+
+    /** Memory-maps the store in file (read-only). */
+    static SiteStore open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new SiteStore(map, ch);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    int size() {
+        return siteCount;
+    }
+
+    private int stringStart(int id) {
+        return blobOffset + buf.getInt(stringsOffset + id * Integer.BYTES);
+    }
+
+    private int stringEnd(int id) {
+        return blobOffset + buf.getInt(stringsOffset + (id + 1) * Integer.BYTES);
+    }
+
+    String string(int id) {
+        if (id == NONE) return null;
+        int start = stringStart(id);
+        byte[] b = new byte[stringEnd(id) - start];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(start);
+        dup.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** Compares string id with target as unsigned UTF-8 bytes, without decoding it. */
+    private int compareString(int id, byte[] target) {
+        int start = stringStart(id);
+        int len = stringEnd(id) - start;
+        int n = Math.min(len, target.length);
+        for (int i = 0; i < n; i++) {
+            int c = (buf.get(start + i) & 0xff) - (target[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return len - target.length;
+    }
+
+    private boolean startsWith(int id, byte[] prefix) {
+        int start = stringStart(id);
+        if (stringEnd(id) - start < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return a.length - b.length;
+    }
+
+    private int field(int site, int f) {
+        return buf.getInt(recordsOffset + buf.getInt(sitesOffset + site * Integer.BYTES) + f * Integer.BYTES);
+    }
+
+    /** Materializes site i. */
+    StoredSite site(int i) {
+        int n = field(i, 7);
+        String condition = null;
+        if (n != NONE) {
+            StringBuilder sb = new StringBuilder();
+            for (int c = 0; c < n; c++) {
+                if (c > 0) sb.append(PathConditionFormatter.AND);
+                sb.append(string(field(i, RECORD_INTS + c)));
+            }
+            condition = sb.toString();
+        }
+        ExceptionSite site = new ExceptionSite(string(field(i, 1)), string(field(i, 2)), field(i, 3), condition);
+        site.addHits(field(i, 4) - 1);
+        site.setSummaryOf(string(field(i, 5)));
+        String witness = string(field(i, 6));
+        if (witness != null) {
+            site.setWitness(GSON.fromJson(witness, WitnessSolver.Witness.class));
+        }
+        return new StoredSite(string(field(i, 0)), site);
+    }
+
+    /** Site ids with exactly this readable method signature, e.g. "Account.debit(double)". */
+    List<Integer> byMethod(String signature) {
+        List<Integer> ids = new ArrayList<>();
+        methodIndex.collect(signature, false, ids);
+        return ids;
+    }
+
+    /** Site ids in methods and constructors of the class with this simple name, in index order. */
+    List<Integer> byClass(String simpleName) {
+        List<Integer> ids = new ArrayList<>();
+        methodIndex.collect(simpleName + "(", true, ids);
+        methodIndex.collect(simpleName + ".", true, ids);
+        return ids;
+    }
+
+    /** Site ids that throw exactly this exception type (binary name). */
+    List<Integer> byException(String type) {
+        List<Integer> ids = new ArrayList<>();
+        exceptionIndex.collect(type, false, ids);
+        return ids;
+    }
+
+    /** Site ids matching every given filter (null = any), in ascending order. */
+    List<Integer> query(String className, String method, String exception) {
+        List<Integer> result = null;
+        if (className != null) result = intersect(result, byClass(className));
+        if (method != null) result = intersect(result, byMethod(method));
+        if (exception != null) result = intersect(result, byException(exception));
+        if (result == null) {
+            result = new ArrayList<>(siteCount);
+            for (int i = 0; i < siteCount; i++) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> intersect(List<Integer> a, List<Integer> b) {
+        b.sort(null);
+        if (a == null) return b;
+        List<Integer> out = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int c = Integer.compare(a.get(i), b.get(j));
+            if (c == 0) {
+                out.add(a.get(i));
+                i++;
+                j++;
+            } else if (c < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return out;
+    }
+
+    /** Writes every site as one JSON array, in the format of ExceptionSite.toJsonArray. */
+    void export(Writer out, boolean pretty) throws IOException {
+        JsonWriter w = (pretty ? GSON_PRETTY : GSON).newJsonWriter(out);
+        w.beginArray();
+        for (int i = 0; i < siteCount; i++) {
+            GSON.toJson(site(i).site, ExceptionSite.class, w);
+        }
+        w.endArray();
+        w.flush();
+    }
+
+    /**
+     * Streams the sites of a BatchRunner/ParallelRunner report (source: the report key), a JSON
+     * array of sites or a JSONL file (source: the file name), or copies a store, into builder.
+     */
+    static void read(Path input, Builder builder) throws IOException {
+        String name = input.getFileName().toString();
+        if (name.endsWith(EXTENSION)) {
+            try (SiteStore store = open(input)) {
+                for (int i = 0; i < store.size(); i++) {
+                    StoredSite s = store.site(i);
+                    builder.add(s.source, s.site);
+                }
+            }
+        } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            try (BufferedReader r = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (!line.trim().isEmpty()) builder.add(name, GSON.fromJson(line, ExceptionSite.class));
+                }
+            }
+        } else {
+            try (JsonReader r = new JsonReader(Files.newBufferedReader(input, StandardCharsets.UTF_8))) {
+                if (r.peek() == JsonToken.BEGIN_ARRAY) {
+                    readSites(r, name, builder);
+                } else {
+                    r.beginObject();
+                    while (r.hasNext()) {
+                        String source = r.nextName();
+                        if (r.peek() != JsonToken.BEGIN_OBJECT) {
+                            r.skipValue();
+                            continue;
+                        }
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            if ("sites".equals(r.nextName())) readSites(r, source, builder);
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                    }
+                    r.endObject();
+                }
+            } catch (IllegalStateException | JsonParseException e) {
+                throw new IOException(input + ": not a report or site list: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void readSites(JsonReader r, String source, Builder builder) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            ExceptionSite site = GSON.fromJson(r, ExceptionSite.class);
+            builder.add(source, site);
+        }
+        r.endArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) usage();
+        String command = args[0];
+        String output = null;
+        String className = null;
+        String method = null;
+        String exception = null;
+        boolean pretty = true;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (("-o".equals(a) || "--output".equals(a)) && hasValue) {
+                output = args[++i];
+            } else if ("--class".equals(a) && hasValue) {
+                className = args[++i];
+            } else if ("--method".equals(a) && hasValue) {
+                method = args[++i];
+            } else if ("--exception".equals(a) && hasValue) {
+                exception = args[++i];
+            } else if ("--compact".equals(a)) {
+                pretty = false;
+            } else {
+                inputs.add(a);
+            }
+        }
+        if (inputs.isEmpty()) usage();
+
+        if ("merge".equals(command)) {
+            if (output == null) usage();
+            Builder builder = new Builder();
+            for (String input : inputs) {
+                read(Paths.get(input), builder);
+            }
+            builder.write(Paths.get(output));
+            System.err.printf("[witup] %d site(s), %d string(s) from %d input(s); store: %s (%d bytes)%n", builder.size(),
+                builder.strings.size(), inputs.size(), output, Files.size(Paths.get(output)));
+        } else if ("query".equals(command) || "export".equals(command)) {
+            try (SiteStore store = open(Paths.get(inputs.get(0)))) {
+                if ("query".equals(command)) {
+                    List<Integer> ids = store.query(className, method, exception);
+                    for (int id : ids) {
+                        System.out.println(GSON.toJson(store.site(id).site));
+                    }
+                    System.err.printf("[witup] %d of %d site(s)%n", ids.size(), store.size());
+                } else if (output == null) {
+                    Writer w = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                    store.export(w, pretty);
+                    w.write('\n');
+                    w.flush();
+                } else {
+                    try (OutputStream os = Files.newOutputStream(Paths.get(output));
+                         Writer w = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+                        store.export(w, pretty);
+                        w.write('\n');
+                    }
+                }
+            }
+        } else {
+            usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: SiteStore merge -o out" + EXTENSION + " <batch report | sites .json | .jsonl | " + EXTENSION + ">...\n"
+            + "       SiteStore query <store> [--class name] [--method signature] [--exception type]\n"
+            + "       SiteStore export <store> [-o sites.json] [--compact]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,238 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.vm.MethodInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The distinct exception sites of one run, kept as packed int records instead of objects.
+ * Exception names, method signatures and conditions are interned once in a string pool and a
+ * site is six ints: exception, method, line, dedup key, condition text and hits. The readable
+ * signature of a method is built once per MethodInfo, and a condition is normalized (the site
+ * key, see normalizeCondition) once per distinct rendering, so a repeated throw only hashes its
+ * condition and bumps a counter. Records are found through an open-addressing table of record
+ * indexes, without key objects. ExceptionSite objects are materialized only when the sites are
+ * reported or handed on; they share the pooled strings.
+ *
+ * Not thread-safe; one instance per listener.
+ */
+final class SiteTable {
+
+    private static final int EXCEPTION = 0;
+    private static final int METHOD = 1;
+    private static final int LINE = 2;
+    private static final int KEY = 3;
+    private static final int CONDITION = 4;
+    private static final int HITS = 5;
+    private static final int STRIDE = 6;
+    private static final int NONE = -1;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    /** Readable signature id per method; built once per MethodInfo. */
+    private final Map<MethodInfo, Integer> methodIds = new IdentityHashMap<>();
+    /** Id of the normalized form (the dedup key) per condition rendering seen. */
+    private final Map<String, Integer> conditionKeys = new HashMap<>();
+    private int[] records = new int[STRIDE * 64];
+    private int count;
+    /** Open addressing over record index + 1 (0 = empty); length is a power of two. */
+    private int[] slots = new int[128];
+    private final BitSet removed = new BitSet();
+    private int live;
+    /** Attributes only a few sites have, by record index. */
+    private final Map<Integer, String> summaryOf = new HashMap<>();
+    private final Map<Integer, WitnessSolver.Witness> witnesses = new HashMap<>();
+    /** Materialized sites, rebuilt after any change; null when stale. */
+    private List<ExceptionSite> materialized;
+
+    /** Id of s in the string pool; null is NONE. */
+    int intern(String s) {
+        if (s == null) return NONE;
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    String string(int id) {
+        return id == NONE ? null : strings.get(id);
+    }
+
+    /** Id of the readable signature of mi ("unknown" if null), computed once per method. */
+    int method(MethodInfo mi) {
+        if (mi == null) return intern("unknown");
+        Integer id = methodIds.get(mi);
+        if (id == null) {
+            id = intern(ExceptionConditionListener.toReadableMethodSignature(mi));
+            methodIds.put(mi, id);
+        }
+        return id;
+    }
+
+    /** Dedup key id of a rendered condition, normalizing each distinct rendering once. */
+    private int conditionKey(String condition) {
+        if (condition == null) return NONE;
+        Integer key = conditionKeys.get(condition);
+        if (key == null) {
+            key = intern(ExceptionConditionListener.normalizeCondition(condition));
+            conditionKeys.put(condition, key);
+        }
+        return key;
+    }
+
+    /**
+     * Records one throw (or a site reached hits times). Returns the record index when the site is
+     * new, or -(index + 1) when it matches a recorded site, whose hit count is increased instead.
+     */
+    int add(int exception, int method, int line, String condition, int hits) {
+        int key = conditionKey(condition);
+        int hash = hash(exception, method, line, key);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int r = slots[i] - 1;
+            if (r < 0) break;
+            int base = r * STRIDE;
+            if (records[base + KEY] == key && records[base + LINE] == line
+                    && records[base + METHOD] == method && records[base + EXCEPTION] == exception && !removed.get(r)) {
+                records[base + HITS] += hits;
+                materialized = null;
+                return -(r + 1);
+            }
+        }
+        if (count * STRIDE == records.length) {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        int r = count++;
+        int base = r * STRIDE;
+        records[base + EXCEPTION] = exception;
+        records[base + METHOD] = method;
+        records[base + LINE] = line;
+        records[base + KEY] = key;
+        records[base + CONDITION] = intern(condition);
+        records[base + HITS] = hits;
+        live++;
+        materialized = null;
+        if (count * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(slots, hash, r);
+        }
+        return r;
+    }
+
+    /** Records a site object (from summaries, lazy formatting or another run); see add above. */
+    int add(ExceptionSite site) {
+        int r = add(intern(site.getThrownException()), intern(site.getMethodSignature()), site.getLineNumber(),
+            site.getCondition(), site.getHits());
+        if (r >= 0) {
+            if (site.getSummaryOf() != null) summaryOf.put(r, site.getSummaryOf());
+            if (site.getWitness() != null) witnesses.put(r, site.getWitness());
+        }
+        return r;
+    }
+
+    private static int hash(int exception, int method, int line, int key) {
+        int h = exception;
+        h = 31 * h + method;
+        h = 31 * h + line;
+        h = 31 * h + key;
+        return h ^ (h >>> 16);
+    }
+
+    private int hashOf(int r) {
+        int base = r * STRIDE;
+        return hash(records[base + EXCEPTION], records[base + METHOD], records[base + LINE], records[base + KEY]);
+    }
+
+    private static void insert(int[] table, int hash, int r) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = r + 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] table = new int[capacity];
+        for (int r = 0; r < count; r++) {
+            if (!removed.get(r)) insert(table, hashOf(r), r);
+        }
+        slots = table;
+    }
+
+    void setWitness(int r, WitnessSolver.Witness witness) {
+        witnesses.put(r, witness);
+        materialized = null;
+    }
+
+    /** Number of distinct sites recorded (and not removed). */
+    int size() {
+        return live;
+    }
+
+    boolean isRemoved(int r) {
+        return removed.get(r);
+    }
+
+    /** Record indexes of the sites, in discovery order. */
+    int[] records() {
+        int[] result = new int[live];
+        int n = 0;
+        for (int r = 0; r < count; r++) {
+            if (!removed.get(r)) result[n++] = r;
+        }
+        return result;
+    }
+
+    /** Materializes record r as a site object. */
+    ExceptionSite site(int r) {
+        int base = r * STRIDE;
+        ExceptionSite site = new ExceptionSite(string(records[base + EXCEPTION]), string(records[base + METHOD]),
+            records[base + LINE], string(records[base + CONDITION]));
+        site.addHits(records[base + HITS] - 1);
+        site.setSummaryOf(summaryOf.get(r));
+        site.setWitness(witnesses.get(r));
+        return site;
+    }
+
+    /** The sites in discovery order; the list is reused until the table changes. */
+    List<ExceptionSite> sites() {
+        if (materialized == null) {
+            List<ExceptionSite> list = new ArrayList<>(live);
+            for (int r = 0; r < count; r++) {
+                if (!removed.get(r)) list.add(site(r));
+            }
+            materialized = Collections.unmodifiableList(list);
+        }
+        return materialized;
+    }
+
+    /** Removes the sites for which filter (given the materialized site) is true. */
+    void removeIf(Predicate<ExceptionSite> filter) {
+        boolean changed = false;
+        for (int r = 0; r < count; r++) {
+            if (!removed.get(r) && filter.test(site(r))) {
+                removed.set(r);
+                live--;
+                changed = true;
+            }
+        }
+        if (changed) {
+            materialized = null;
+            rehash(slots.length);
+        }
+    }
+}
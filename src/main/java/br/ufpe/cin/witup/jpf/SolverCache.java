@@ -0,0 +1,360 @@
+package br.ufpe.cin.witup.jpf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Memoizes constraint-solver answers for path conditions. Queries are normalized before lookup:
+ * symbolic variables are renamed to positional names (v0, v1, ...) with their type and domain,
+ * and conjuncts are put in a canonical order without duplicates, so alpha-equivalent path
+ * conditions coming from different paths (or different runs) share one entry. Satisfiability
+ * and, when requested, models are cached; models are stored per canonical variable and mapped
+ * back to the caller's variable names.
+ *
+ * Path conditions that cannot be normalized (string, array or math-function constraints) are
+ * passed to the solver uncached. Memory is bounded by an LRU limit on the number of entries.
+ *
+ * <pre>
+ * witup.solver_cache = false             # memoize satisfiability checks of symbolic branches
+ * witup.solver_cache.max_entries = 10000
+ * witup.solver_cache.file =              # NDJSON file the cache is loaded from and saved to
+ * </pre>
+ *
+ * Not thread-safe; one instance per JPF run.
+ */
+final class SolverCache {
+
+    /** Hit/miss counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long hits;
+        long misses;
+        long uncacheable;
+        int entries;
+    }
+
+    /** A normalized query: its key and the caller's variable names in canonical order. */
+    static final class Query {
+        final String key;
+        final List<String> variables;
+
+        Query(String key, List<String> variables) {
+            this.key = key;
+            this.variables = variables;
+        }
+    }
+
+    /** Cached answer; model is keyed by canonical variable name and is null until requested. */
+    static final class Answer {
+        final String key;
+        final boolean sat;
+        Map<String, Object> model;
+
+        Answer(String key, boolean sat) {
+            this.key = key;
+            this.sat = sat;
+        }
+    }
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final Map<String, Answer> entries;
+    private final Stats stats = new Stats();
+    private final Path file;
+
+    SolverCache(final int maxEntries, Path file) {
+        this.entries = new LinkedHashMap<String, Answer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Answer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /** Returns the cache configured in conf, or null when witup.solver_cache is off. */
+    static SolverCache fromConfig(Config conf) {
+        if (!conf.getBoolean("witup.solver_cache", false)) return null;
+        String file = conf.getString("witup.solver_cache.file", "");
+        return new SolverCache(conf.getInt("witup.solver_cache.max_entries", 10000),
+            file.isEmpty() ? null : Paths.get(file));
+    }
+
+    /** Satisfiability of pc, using jpf-symbc's configured decision procedure on a miss. */
+    boolean isSatisfiable(PathCondition pc) {
+        return isSatisfiable(pc, PathCondition::simplify);
+    }
+
+    boolean isSatisfiable(PathCondition pc, Predicate<PathCondition> solver) {
+        Query q = canonicalize(pc);
+        if (q == null) {
+            stats.uncacheable++;
+            return solver.test(pc);
+        }
+        Answer e = entries.get(q.key);
+        if (e != null) {
+            stats.hits++;
+            return e.sat;
+        }
+        stats.misses++;
+        boolean sat = solver.test(pc);
+        entries.put(q.key, new Answer(q.key, sat));
+        return sat;
+    }
+
+    /**
+     * A model of pc keyed by jpf-symbc variable name, or null if pc is unsatisfiable. Uses
+     * PathCondition.solveWithValuation on a miss.
+     */
+    Map<String, Object> solve(PathCondition pc) {
+        return solve(pc, PathCondition::solveWithValuation);
+    }
+
+    Map<String, Object> solve(PathCondition pc, Function<PathCondition, Map<String, Object>> solver) {
+        Query q = canonicalize(pc);
+        if (q == null) {
+            stats.uncacheable++;
+            return solver.apply(pc);
+        }
+        Answer e = entries.get(q.key);
+        if (e != null && (!e.sat || e.model != null)) {
+            stats.hits++;
+            return e.sat ? fromCanonical(e.model, q.variables) : null;
+        }
+        stats.misses++;
+        Map<String, Object> model = solver.apply(pc);
+        Answer fresh = new Answer(q.key, model != null);
+        if (model != null) {
+            fresh.model = toCanonical(model, q.variables);
+        }
+        entries.put(q.key, fresh);
+        return model;
+    }
+
+    Stats getStats() {
+        stats.entries = entries.size();
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        long lookups = stats.hits + stats.misses;
+        return String.format("Solver cache: %d hit(s), %d miss(es), %d uncacheable, %d entr%s (%.1f%% hit rate)",
+            stats.hits, stats.misses, stats.uncacheable, entries.size(), entries.size() == 1 ? "y" : "ies",
+            lookups == 0 ? 0.0 : 100.0 * stats.hits / lookups);
+    }
+
+    private static Map<String, Object> toCanonical(Map<String, Object> model, List<String> variables) {
+        Map<String, Object> canonical = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            Object value = model.get(variables.get(i));
+            if (value != null) canonical.put("v" + i, value);
+        }
+        return canonical;
+    }
+
+    private static Map<String, Object> fromCanonical(Map<String, Object> canonical, List<String> variables) {
+        Map<String, Object> model = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            Object value = canonical.get("v" + i);
+            if (value != null) model.put(variables.get(i), value);
+        }
+        return model;
+    }
+
+    // --- persistence ---
+
+    private void load() {
+        if (!Files.isRegularFile(file)) return;
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                Answer e = GSON.fromJson(line, Answer.class);
+                if (e != null && e.key != null) entries.put(e.key, e);
+            }
+        } catch (IOException | JsonParseException e) {
+            // a damaged cache file only costs solver calls; start over and rewrite it on save
+            entries.clear();
+        }
+    }
+
+    /** Writes all entries to the configured file (no-op without one). */
+    void save() {
+        if (file == null) return;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (Answer e : entries.values()) {
+                    w.write(GSON.toJson(e));
+                    w.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new JPFException("cannot write solver cache " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // --- normalization ---
+
+    /** Thrown by the renderer for expressions it cannot normalize. */
+    private static final class Unsupported extends RuntimeException {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Normalizes pc, or returns null if it holds constraints the renderer does not understand.
+     * Conjuncts are ordered by their shape (rendering with anonymous variables) before variables
+     * get positional names, then sorted and deduplicated again by their final rendering.
+     */
+    static Query canonicalize(PathCondition pc) {
+        if (pc.spc != null && pc.spc.count() > 0) return null;
+        if (pc.arrayExpressions != null && !pc.arrayExpressions.isEmpty()) return null;
+        try {
+            List<Constraint> conjuncts = new ArrayList<>();
+            for (Constraint c = pc.header; c != null; c = c.and) {
+                conjuncts.add(c);
+            }
+            Renderer anonymous = new Renderer(null);
+            final Map<Constraint, String> shapes = new HashMap<>();
+            for (Constraint c : conjuncts) {
+                shapes.put(c, anonymous.render(c));
+            }
+            Collections.sort(conjuncts, (a, b) -> shapes.get(a).compareTo(shapes.get(b)));
+
+            Renderer named = new Renderer(new LinkedHashMap<String, String>());
+            TreeSet<String> rendered = new TreeSet<>();
+            for (Constraint c : conjuncts) {
+                rendered.add(named.render(c));
+            }
+            StringBuilder key = new StringBuilder();
+            for (String decl : named.declarations) {
+                key.append(decl).append(';');
+            }
+            key.append('|').append(String.join(" && ", rendered));
+            return new Query(key.toString(), new ArrayList<>(named.names.keySet()));
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    /** Renders constraints in a fully parenthesized, type-tagged form. */
+    private static final class Renderer {
+        /** jpf-symbc name -> positional name; null renders every variable anonymously. */
+        final Map<String, String> names;
+        final List<String> declarations = new ArrayList<>();
+        private final StringBuilder sb = new StringBuilder(128);
+
+        Renderer(Map<String, String> names) {
+            this.names = names;
+        }
+
+        String render(Constraint c) {
+            sb.setLength(0);
+            if (c instanceof LogicalORLinearIntegerConstraints) {
+                sb.append("or(");
+                for (LinearIntegerConstraint lic : ((LogicalORLinearIntegerConstraints) c).getList()) {
+                    comparison(lic);
+                    sb.append(',');
+                }
+                sb.append(')');
+            } else {
+                comparison(c);
+            }
+            return sb.toString();
+        }
+
+        private void comparison(Constraint c) {
+            expression(c.getLeft());
+            sb.append(c.getComparator().toString().trim());
+            expression(c.getRight());
+        }
+
+        private void expression(Expression e) {
+            if (e instanceof SymbolicInteger) {
+                SymbolicInteger v = (SymbolicInteger) e;
+                variable(v.getName(), "i[" + v._min + "," + v._max + "]");
+            } else if (e instanceof SymbolicReal) {
+                SymbolicReal v = (SymbolicReal) e;
+                variable(v.getName(), "r[" + v._min + "," + v._max + "]");
+            } else if (e instanceof IntegerConstant) {
+                sb.append("i:").append(((IntegerConstant) e).value);
+            } else if (e instanceof RealConstant) {
+                sb.append("r:").append(((RealConstant) e).value);
+            } else if (e instanceof BinaryLinearIntegerExpression) {
+                BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+                binary(b.getLeft(), b.getOp().toString(), b.getRight());
+            } else if (e instanceof BinaryNonLinearIntegerExpression) {
+                BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+                binary(b.left, b.op.toString(), b.right);
+            } else if (e instanceof BinaryRealExpression) {
+                BinaryRealExpression b = (BinaryRealExpression) e;
+                binary(b.getLeft(), b.getOp().toString(), b.getRight());
+            } else {
+                throw new Unsupported();
+            }
+        }
+
+        private void binary(Expression left, String op, Expression right) {
+            sb.append('(');
+            expression(left);
+            sb.append(op.trim());
+            expression(right);
+            sb.append(')');
+        }
+
+        private void variable(String name, String type) {
+            if (name == null) throw new Unsupported();
+            if (names == null) {
+                sb.append('?').append(type);
+                return;
+            }
+            String positional = names.get(name);
+            if (positional == null) {
+                positional = "v" + names.size();
+                names.put(name, positional);
+                declarations.add(positional + ":" + type);
+            }
+            sb.append(positional);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.JenkinsStateSet;
+import gov.nasa.jpf.vm.SerializingStateSet;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * State store for symbolic runs. jpf-core's serializers only see concrete values, so matching on
+ * them alone would merge states that differ in their symbolic values or path condition; the
+ * bundled config therefore turns state matching off (vm.storage.class = nil) and re-explores every
+ * revisited state. This set fingerprints the concrete state vector together with the symbolic
+ * attributes of stack slots, heap fields, array elements and statics, and keeps the path
+ * condition (as a set of conjuncts) of every stored state. A state with the same fingerprint and
+ * the same path condition is a revisit; with subsumption on, a state whose path condition
+ * contains all conjuncts of a stored one is covered by it and is not explored either.
+ *
+ * Subsumed states would only have reported stronger variants of conditions found under the
+ * covering state, so subsumption is off by default; with it on, as with witup.prune, only the
+ * weakest condition per site is reported.
+ *
+ * <pre>
+ * vm.storage.class = br.ufpe.cin.witup.jpf.SymbolicStateSet
+ * witup.state.subsumption = false   # also match states whose path condition is stronger
+ * </pre>
+ */
+public class SymbolicStateSet extends SerializingStateSet {
+
+    /** Matching counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long statesStored;
+        long revisits;
+        long subsumed;
+
+        long matched() {
+            return revisits + subsumed;
+        }
+    }
+
+    /** A stored state: its id and the conjuncts of its path condition. */
+    private static final class Stored {
+        final int id;
+        final Set<String> pathCondition;
+
+        Stored(int id, Set<String> pathCondition) {
+            this.id = id;
+            this.pathCondition = pathCondition;
+        }
+    }
+
+    private final boolean subsumption;
+    private final Map<Long, List<Stored>> states = new HashMap<>();
+    private final Stats stats = new Stats();
+    private VM vm;
+
+    public SymbolicStateSet(Config conf) {
+        this(conf.getBoolean("witup.state.subsumption", false));
+    }
+
+    SymbolicStateSet(boolean subsumption) {
+        this.subsumption = subsumption;
+    }
+
+    @Override
+    public void attach(VM vm) {
+        super.attach(vm);
+        this.vm = vm;
+    }
+
+    @Override
+    public int size() {
+        return (int) stats.statesStored;
+    }
+
+    @Override
+    protected int add(int[] data) {
+        long fingerprint = JenkinsStateSet.longLookup3Hash(data) * 0x9E3779B97F4A7C15L ^ symbolicAttributesHash(vm);
+        return add(fingerprint, conjuncts(currentPathCondition(vm)));
+    }
+
+    /**
+     * Returns the id of a stored state matching fingerprint and pathCondition, or stores it under
+     * the next id (which the VM then treats as a new state).
+     */
+    int add(long fingerprint, Set<String> pathCondition) {
+        List<Stored> bucket = states.get(fingerprint);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            states.put(fingerprint, bucket);
+        }
+        for (Stored s : bucket) {
+            if (s.pathCondition.equals(pathCondition)) {
+                stats.revisits++;
+                return s.id;
+            }
+        }
+        if (subsumption) {
+            for (Stored s : bucket) {
+                if (pathCondition.containsAll(s.pathCondition)) {
+                    stats.subsumed++;
+                    return s.id;
+                }
+            }
+        }
+        int id = (int) stats.statesStored++;
+        bucket.add(new Stored(id, pathCondition));
+        return id;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        long seen = stats.statesStored + stats.matched();
+        return String.format("State matching: %d of %d state(s) matched (%d revisit(s), %d subsumed), %.1f%% of subtrees skipped",
+            stats.matched(), seen, stats.revisits, stats.subsumed, seen == 0 ? 0.0 : 100.0 * stats.matched() / seen);
+    }
+
+    /** Path condition of the innermost PCChoiceGenerator that has one, or null. */
+    static PathCondition currentPathCondition(VM vm) {
+        for (ChoiceGenerator<?> cg = vm.getChoiceGenerator(); cg != null; cg = cg.getPreviousChoiceGenerator()) {
+            if (cg instanceof PCChoiceGenerator) {
+                PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
+                if (pc != null) return pc;
+            }
+        }
+        return null;
+    }
+
+    /** Conjuncts of pc with jpf-symbc's variable names; string and array constraints count as one each. */
+    static Set<String> conjuncts(PathCondition pc) {
+        if (pc == null) return Collections.emptySet();
+        Set<String> result = new TreeSet<>();
+        for (Constraint c = pc.header; c != null; c = c.and) {
+            result.add(c.getLeft() + " " + c.getComparator().toString().trim() + " " + c.getRight());
+        }
+        if (pc.spc != null && pc.spc.count() > 0) {
+            result.add("spc:" + pc.spc);
+        }
+        if (pc.arrayExpressions != null && !pc.arrayExpressions.isEmpty()) {
+            result.add("arrays:" + pc.arrayExpressions);
+        }
+        return result;
+    }
+
+    /** 64-bit FNV-1a hash over the positions and renderings of all symbolic attributes. */
+    private static long symbolicAttributesHash(VM vm) {
+        long h = 0xcbf29ce484222325L;
+        for (ThreadInfo ti : vm.getLiveThreads()) {
+            h = mix(h, ti.getId());
+            int depth = 0;
+            for (StackFrame f = ti.getTopFrame(); f != null; f = f.getPrevious(), depth++) {
+                if (!f.hasAttrs()) continue;
+                for (int i = 0; i <= f.getTopPos(); i++) {
+                    Object attr = f.getSlotAttr(i);
+                    if (attr != null) h = mix(mix(mix(h, depth), i), attr.toString());
+                }
+            }
+        }
+        for (ElementInfo ei : vm.getHeap().liveObjects()) {
+            h = elementAttributes(h, ei);
+        }
+        for (ClassLoaderInfo cl : vm.getClassLoaderList()) {
+            for (ElementInfo ei : cl.getStatics()) {
+                h = elementAttributes(h, ei);
+            }
+        }
+        return h;
+    }
+
+    private static long elementAttributes(long h, ElementInfo ei) {
+        if (ei.isArray()) {
+            if (!ei.hasElementAttr()) return h;
+            for (int i = 0; i < ei.arrayLength(); i++) {
+                Object attr = ei.getElementAttr(i);
+                if (attr != null) h = mix(mix(mix(h, ei.getObjectRef()), i), attr.toString());
+            }
+        } else if (ei.hasFieldAttr()) {
+            for (int i = 0; i < ei.getNumberOfFields(); i++) {
+                Object attr = ei.getFieldAttr(ei.getFieldInfo(i));
+                if (attr != null) h = mix(mix(mix(h, ei.getObjectRef()), i), attr.toString());
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, int v) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            h = (h ^ ((v >>> shift) & 0xff)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h, s.length());
+    }
+}
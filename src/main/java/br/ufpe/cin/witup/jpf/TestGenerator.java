@@ -0,0 +1,310 @@
+package br.ufpe.cin.witup.jpf;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Turns the witnesses of exception sites (witup.witness, see WitnessSolver) into JUnit 5
+ * regression tests, so exception behavior can be checked on every build in milliseconds and full
+ * symbolic runs kept for nightly jobs. Each class analyzed gets one test class in its package,
+ * with one test per distinct witness that calls the symbolic method with the witness inputs and
+ * asserts the thrown exception type. Instance methods run on a receiver from the public
+ * constructor with the fewest parameters (as in DriverGenerator drivers), with its fields set by
+ * reflection to the analyzed receiver's state: solved values for symbolic fields, the values on
+ * entry for concrete numeric, boolean and String fields.
+ *
+ * <pre>
+ * TestGenerator [-o dir] [--classpath path]... &lt;batch report | sites .json | .jsonl&gt;...
+ * </pre>
+ * Inputs are BatchRunner/ParallelRunner reports, JSON arrays of sites or one site per line.
+ * --classpath lists the classes under test (default target/classes), used to pick the receiver
+ * constructor. Output: dir/&lt;package&gt;/&lt;Class&gt;WitnessTest.java (default
+ * target/witup/generated-tests); point -o at src/test/java to keep them in the build.
+ */
+public class TestGenerator {
+
+    static final String DEFAULT_OUTPUT = "target/witup/generated-tests";
+    static final String DEFAULT_CLASSPATH = "target/classes";
+    static final String TEST_SUFFIX = "WitnessTest";
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** Sites read, tests written and sites that could not be turned into a test. */
+    static final class Stats {
+        int sites;
+        int tests;
+        int duplicates;
+        int withoutWitness;
+        int withoutReceiver;
+    }
+
+    private final ClassLoader loader;
+    private final Stats stats = new Stats();
+
+    TestGenerator(ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = DEFAULT_OUTPUT;
+        List<String> classpath = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (("-o".equals(a) || "--output".equals(a)) && hasValue) {
+                output = args[++i];
+            } else if (("--classpath".equals(a) || "-cp".equals(a)) && hasValue) {
+                for (String p : args[++i].split(File.pathSeparator)) {
+                    if (!p.isEmpty()) classpath.add(p);
+                }
+            } else {
+                inputs.add(a);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("usage: TestGenerator [-o dir] [--classpath path]... <batch report | sites .json | .jsonl>...");
+            System.exit(2);
+        }
+        if (classpath.isEmpty()) {
+            classpath.add(DEFAULT_CLASSPATH);
+        }
+
+        List<ExceptionSite> sites = new ArrayList<>();
+        for (String input : inputs) {
+            sites.addAll(readSites(Paths.get(input)));
+        }
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = Paths.get(classpath.get(i)).toAbsolutePath().toUri().toURL();
+        }
+        try (URLClassLoader loader = new URLClassLoader(urls, TestGenerator.class.getClassLoader())) {
+            TestGenerator generator = new TestGenerator(loader);
+            List<Path> written = generator.generate(sites, Paths.get(output));
+            Stats stats = generator.stats;
+            System.err.printf("[witup] %d site(s): %d test(s) in %d class(es); skipped %d duplicate(s), %d without witness,"
+                    + " %d without a receiver constructor; output: %s%n", stats.sites, stats.tests, written.size(),
+                stats.duplicates, stats.withoutWitness, stats.withoutReceiver, output);
+        }
+    }
+
+    /** Sites of a batch report (object of results with "sites"), a JSON array of sites or a JSONL file. */
+    static List<ExceptionSite> readSites(Path input) throws IOException {
+        List<ExceptionSite> sites = new ArrayList<>();
+        if (input.toString().endsWith(".jsonl") || input.toString().endsWith(".ndjson")) {
+            try (BufferedReader r = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (!line.trim().isEmpty()) sites.add(GSON.fromJson(line, ExceptionSite.class));
+                }
+            }
+            return sites;
+        }
+        try (BufferedReader r = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            collectSites(JsonParser.parseReader(r), sites);
+        }
+        return sites;
+    }
+
+    private static void collectSites(JsonElement e, List<ExceptionSite> sites) {
+        if (e.isJsonArray()) {
+            for (JsonElement site : e.getAsJsonArray()) {
+                sites.add(GSON.fromJson(site, ExceptionSite.class));
+            }
+        } else if (e.isJsonObject()) {
+            JsonObject o = e.getAsJsonObject();
+            if (o.has("sites")) {
+                collectSites(o.get("sites"), sites);
+                return;
+            }
+            for (Map.Entry<String, JsonElement> result : o.entrySet()) {
+                if (result.getValue().isJsonObject()) collectSites(result.getValue(), sites);
+            }
+        }
+    }
+
+    /** Writes one test class per class with witnesses under out; returns the files written. */
+    List<Path> generate(List<ExceptionSite> sites, Path out) throws IOException {
+        Map<String, List<ExceptionSite>> byClass = new TreeMap<>();
+        Set<String> seen = new HashSet<>();
+        for (ExceptionSite site : sites) {
+            stats.sites++;
+            WitnessSolver.Witness w = site.getWitness();
+            if (w == null || w.className == null || w.method.startsWith("<")) {
+                stats.withoutWitness++;
+                continue;
+            }
+            if (!seen.add(site.getThrownException() + " " + w.className + " " + call(w, "receiver") + " " + w.fields)) {
+                stats.duplicates++;
+                continue;
+            }
+            byClass.computeIfAbsent(w.className, k -> new ArrayList<>()).add(site);
+        }
+        List<Path> written = new ArrayList<>();
+        for (Map.Entry<String, List<ExceptionSite>> e : byClass.entrySet()) {
+            String source = testSource(e.getKey(), e.getValue());
+            if (source == null) continue;
+            Path file = out.resolve(testName(e.getKey()).replace('.', File.separatorChar) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            written.add(file);
+        }
+        return written;
+    }
+
+    /** Fully qualified name of the test class generated for className, in its package. */
+    static String testName(String className) {
+        int dot = className.lastIndexOf('.');
+        return className.substring(0, dot + 1) + className.substring(dot + 1).replace('$', '_') + TEST_SUFFIX;
+    }
+
+    /** Test class source for the sites of className, or null if none of them yields a test. */
+    String testSource(String className, List<ExceptionSite> sites) {
+        String name = testName(className);
+        int dot = name.lastIndexOf('.');
+        String pkg = dot > 0 ? name.substring(0, dot) : "";
+        String type = sourceName(className, pkg);
+        String receiver = null;
+        boolean needsReceiver = false;
+        for (ExceptionSite site : sites) {
+            needsReceiver |= !site.getWitness().isStatic;
+        }
+        if (needsReceiver) {
+            receiver = receiverExpression(className, type);
+        }
+
+        StringBuilder tests = new StringBuilder();
+        Map<String, Integer> names = new HashMap<>();
+        boolean setsFields = false;
+        for (ExceptionSite site : sites) {
+            WitnessSolver.Witness w = site.getWitness();
+            if (!w.isStatic && receiver == null) {
+                stats.withoutReceiver++;
+                continue;
+            }
+            String exception = sourceName(site.getThrownException(), pkg);
+            String method = "test" + Character.toUpperCase(w.method.charAt(0)) + w.method.substring(1)
+                + "Throws" + exception.substring(exception.lastIndexOf('.') + 1);
+            int n = names.merge(method, 1, Integer::sum);
+            boolean setsReceiverFields = !w.isStatic && !w.fields.isEmpty();
+            setsFields |= setsReceiverFields;
+
+            tests.append("\n    @Test\n");
+            tests.append("    public void ").append(method).append(n > 1 ? "_" + n : "").append("()")
+                .append(setsReceiverFields ? " throws ReflectiveOperationException" : "").append(" {\n");
+            tests.append("        // ").append(site.getMethodSignature()).append(", line ").append(site.getLineNumber())
+                .append(site.getCondition() == null || site.getCondition().isEmpty() ? "" : ":").append('\n');
+            if (site.getCondition() != null && !site.getCondition().isEmpty()) {
+                for (String line : site.getCondition().split("\n")) {
+                    tests.append("        //   ").append(line.trim().replace("\\u", "\\\\u")).append('\n');
+                }
+            }
+            if (!w.isStatic) {
+                tests.append("        ").append(type).append(" receiver = ").append(receiver).append(";\n");
+                for (Map.Entry<String, String> f : w.fields.entrySet()) {
+                    tests.append("        setField(receiver, \"").append(f.getKey()).append("\", ").append(f.getValue()).append(");\n");
+                }
+            }
+            tests.append("        assertThrows(").append(exception).append(".class, () -> ")
+                .append(call(w, w.isStatic ? type : "receiver")).append(");\n");
+            tests.append("    }\n");
+            stats.tests++;
+        }
+        if (tests.length() == 0) return null;
+
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            sb.append("package ").append(pkg).append(";\n\n");
+        }
+        sb.append("import static org.junit.jupiter.api.Assertions.assertThrows;\n\n");
+        sb.append("import org.junit.jupiter.api.Test;\n\n");
+        if (setsFields) {
+            sb.append("import java.lang.reflect.Field;\n\n");
+        }
+        sb.append("/** Generated by TestGenerator from the exception witnesses of ").append(className.replace('$', '.'))
+            .append(". */\n");
+        sb.append("public class ").append(name.substring(dot + 1)).append(" {\n");
+        sb.append(tests);
+        if (setsFields) {
+            sb.append("\n    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {\n");
+            sb.append("        for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass()) {\n");
+            sb.append("            try {\n");
+            sb.append("                Field f = c.getDeclaredField(name);\n");
+            sb.append("                f.setAccessible(true);\n");
+            sb.append("                f.set(target, value);\n");
+            sb.append("                return;\n");
+            sb.append("            } catch (NoSuchFieldException e) {\n");
+            sb.append("                // declared in a superclass\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        throw new NoSuchFieldException(name);\n");
+            sb.append("    }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /** "new T(defaults)" with the constructor DriverGenerator drivers use, or null if there is none. */
+    private String receiverExpression(String className, String type) {
+        Constructor<?> c;
+        try {
+            c = DriverGenerator.receiverConstructor(Class.forName(className, false, loader));
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        if (c == null) return null;
+        StringBuilder sb = new StringBuilder("new ").append(type).append('(');
+        Class<?>[] types = c.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(DriverGenerator.defaultValue(types[i]));
+        }
+        return sb.append(')').toString();
+    }
+
+    /** "target.method(arguments)", casting null arguments to their parameter type. */
+    static String call(WitnessSolver.Witness w, String target) {
+        StringBuilder sb = new StringBuilder(target).append('.').append(w.method).append('(');
+        for (int i = 0; i < w.arguments.size(); i++) {
+            if (i > 0) sb.append(", ");
+            String arg = w.arguments.get(i);
+            sb.append("null".equals(arg) ? "(" + w.parameterTypes.get(i) + ") null" : arg);
+        }
+        return sb.append(')').toString();
+    }
+
+    /** Source name of a binary class name as seen from package pkg: java.lang and pkg types unqualified. */
+    static String sourceName(String binaryName, String pkg) {
+        int dot = binaryName.lastIndexOf('.');
+        String owner = dot > 0 ? binaryName.substring(0, dot) : "";
+        String simple = binaryName.substring(dot + 1).replace('$', '.');
+        if (owner.equals(pkg) || ("java.lang".equals(owner) && binaryName.indexOf('$') < 0)) return simple;
+        return binaryName.replace('$', '.');
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,481 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.jvm.bytecode.ALOAD;
+import gov.nasa.jpf.jvm.bytecode.ASTORE;
+import gov.nasa.jpf.jvm.bytecode.ATHROW;
+import gov.nasa.jpf.jvm.bytecode.GOTO;
+import gov.nasa.jpf.jvm.bytecode.INVOKEINTERFACE;
+import gov.nasa.jpf.jvm.bytecode.INVOKEVIRTUAL;
+import gov.nasa.jpf.jvm.bytecode.IfInstruction;
+import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
+import gov.nasa.jpf.jvm.bytecode.SwitchInstruction;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassInfoException;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ExceptionHandler;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.bytecode.ReturnInstruction;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Static distance, in bytecode instructions along control-flow edges, from each instruction of a
+ * method to the nearest athrow. Calls count as one step plus the callee's own entry distance, so
+ * a throw inside a callee is seen from its call sites. Only application classes are analysed;
+ * calls into the JDK or JPF count as plain instructions. Exception handler edges are followed,
+ * so a catch block that rethrows is reachable.
+ *
+ * The same graph also gives, per instruction, the set of throw locations that can still be
+ * reached, used by SitePruner. A throw location is the method and line of an athrow or of an
+ * instruction that can throw implicitly (division, array access, field access or call on a
+ * possibly null reference, cast, array allocation, monitor). Library calls other than building an
+ * exception or its message make the set unknown, since a throw inside the JDK is not analysed.
+ * So do calls whose target is not known statically (interface calls, and virtual calls of a
+ * method that could be overridden) and callees without code (abstract or native).
+ *
+ * Results are computed lazily per MethodInfo and kept for the lifetime of the run.
+ */
+final class ThrowDistance {
+
+    /** Distance of instructions from which no throw (or return) is reachable. */
+    static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    private static final String[] LIBRARY_PREFIXES = {"java.", "javax.", "sun.", "jdk.", "gov.nasa.jpf."};
+
+    private final Map<MethodInfo, int[]> toThrow = new HashMap<>();
+    private final Map<MethodInfo, int[]> toReturn = new HashMap<>();
+    /** Methods whose distances are being computed; recursive calls into them count as unknown. */
+    private final Set<MethodInfo> inProgress = new HashSet<>();
+
+    /** Bit of a reachable-set meaning "depends on a callee that could not be analysed". */
+    private static final int UNKNOWN = 0;
+    private final Map<MethodInfo, BitSet[]> reachable = new HashMap<>();
+    private final Set<MethodInfo> reachableInProgress = new HashSet<>();
+    private final Map<String, Integer> siteIndex = new HashMap<>();
+    private final List<String> siteNames = new ArrayList<>(Collections.singletonList("?"));
+    private final Function<JVMInvokeInstruction, MethodInfo> resolver;
+
+    ThrowDistance() {
+        this(ThrowDistance::resolve);
+    }
+
+    /** Uses resolver to find the statically invoked method of a call (null if unknown). */
+    ThrowDistance(Function<JVMInvokeInstruction, MethodInfo> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Distance from the current point of ti to the nearest throw, across its whole call stack: a
+     * throw in a caller frame is reached by returning from every frame above it first.
+     */
+    int fromStack(ThreadInfo ti) {
+        int best = UNREACHABLE;
+        int acc = 0;
+        boolean top = true;
+        for (StackFrame f = ti.getTopFrame(); f != null && acc < UNREACHABLE; f = f.getPrevious()) {
+            MethodInfo mi = f.getMethodInfo();
+            Instruction pc = f.getPC();
+            if (mi == null || pc == null || mi.getInstructions() == null) break;
+            // caller frames sit on their invoke instruction; they resume at the next one
+            int index = top ? pc.getInstructionIndex() : pc.getInstructionIndex() + 1;
+            top = false;
+            if (index >= mi.getNumberOfInstructions()) break;
+            best = Math.min(best, acc + throwDistances(mi)[index]);
+            acc += returnDistances(mi)[index] + 1;
+        }
+        return best;
+    }
+
+    /**
+     * Throw locations (see {@link #siteId}) reachable from the current point of ti, across its call
+     * stack; next is the instruction the top frame continues with. Returns null when the answer
+     * depends on code that could not be analysed (recursion, unresolvable callees, library calls).
+     */
+    Set<String> reachableSites(ThreadInfo ti, Instruction next) {
+        BitSet all = new BitSet();
+        boolean top = true;
+        for (StackFrame f = ti.getTopFrame(); f != null; f = f.getPrevious()) {
+            MethodInfo mi = f.getMethodInfo();
+            Instruction pc = top && next != null && next.getMethodInfo() == mi ? next : f.getPC();
+            if (mi == null || pc == null || mi.getInstructions() == null) break;
+            int index = top ? pc.getInstructionIndex() : pc.getInstructionIndex() + 1;
+            top = false;
+            if (index >= mi.getNumberOfInstructions()) continue;
+            all.or(reachableThrows(mi)[index]);
+        }
+        return siteNames(all);
+    }
+
+    /**
+     * True if every frame of ti, from the top down to the first frame accepted by last (inclusive),
+     * can still reach a return instruction; next is the instruction the top frame continues with.
+     * Callees are assumed to return.
+     */
+    boolean canReturn(ThreadInfo ti, Instruction next, Predicate<StackFrame> last) {
+        boolean top = true;
+        for (StackFrame f = ti.getTopFrame(); f != null; f = f.getPrevious()) {
+            MethodInfo mi = f.getMethodInfo();
+            Instruction pc = top && next != null && next.getMethodInfo() == mi ? next : f.getPC();
+            if (mi == null || pc == null || mi.getInstructions() == null) return true;
+            int index = top ? pc.getInstructionIndex() : pc.getInstructionIndex() + 1;
+            top = false;
+            if (index < mi.getNumberOfInstructions() && returnDistances(mi)[index] >= UNREACHABLE) return false;
+            if (last.test(f)) return true;
+        }
+        return true;
+    }
+
+    /** Identifies a throw location; matches the method and line reported for a thrown exception. */
+    static String siteId(MethodInfo mi, int line) {
+        return mi.getFullName() + ":" + line;
+    }
+
+    BitSet[] reachableThrows(MethodInfo mi) {
+        BitSet[] r = reachable.get(mi);
+        if (r != null) return r;
+        Instruction[] code = mi.getInstructions();
+        if (!reachableInProgress.add(mi)) {
+            BitSet[] unknown = new BitSet[code.length];
+            for (int i = 0; i < code.length; i++) {
+                unknown[i] = new BitSet();
+                unknown[i].set(UNKNOWN);
+            }
+            return unknown;
+        }
+        try {
+            BitSet[] own = new BitSet[code.length];
+            for (int i = 0; i < code.length; i++) {
+                own[i] = new BitSet();
+                if (code[i] instanceof ATHROW || canThrowImplicitly(mi, code, i)) {
+                    own[i].set(index(siteId(mi, mi.getLineNumber(code[i]))));
+                }
+                if (code[i] instanceof JVMInvokeInstruction) {
+                    JVMInvokeInstruction call = (JVMInvokeInstruction) code[i];
+                    if (isLibrary(call.getInvokedMethodClassName())) {
+                        if (!isSafeLibraryCall(call)) own[i].set(UNKNOWN);
+                    } else {
+                        MethodInfo callee = call instanceof INVOKEINTERFACE ? null : resolver.apply(call);
+                        if (callee == null || callee.getInstructions() == null || callee.getNumberOfInstructions() == 0
+                                || call instanceof INVOKEVIRTUAL && !isExactTarget(callee)) {
+                            own[i].set(UNKNOWN);
+                        } else {
+                            own[i].or(reachableThrows(callee)[0]);
+                        }
+                    }
+                }
+            }
+            r = propagate(successors(mi), own);
+        } finally {
+            reachableInProgress.remove(mi);
+        }
+        reachable.put(mi, r);
+        return r;
+    }
+
+    /**
+     * Throw locations reachable from instruction index of mi, or null when that depends on code
+     * that could not be analysed.
+     */
+    Set<String> reachableSites(MethodInfo mi, int index) {
+        return siteNames(reachableThrows(mi)[index]);
+    }
+
+    private Set<String> siteNames(BitSet bits) {
+        if (bits.get(UNKNOWN)) return null;
+        Set<String> sites = new HashSet<>();
+        for (int i = bits.nextSetBit(1); i >= 0; i = bits.nextSetBit(i + 1)) {
+            sites.add(siteNames.get(i));
+        }
+        return sites;
+    }
+
+    /**
+     * True if code[i] can raise a runtime exception by itself: ArithmeticException, null
+     * dereference, array bounds or store, negative array size, ClassCastException or an illegal
+     * monitor state. A field read right after loading this (local 0 of an instance method that
+     * never overwrites it) cannot fail and is skipped. Linkage and class initialization errors of
+     * static accesses are not considered.
+     */
+    static boolean canThrowImplicitly(MethodInfo mi, Instruction[] code, int i) {
+        int op = code[i].getByteCode();
+        switch (op) {
+            case 0x6c: case 0x6d: case 0x70: case 0x71:  // idiv, ldiv, irem, lrem
+            case 0xb5:                                    // putfield
+            case 0xb6: case 0xb9:                         // invokevirtual, invokeinterface
+            case 0xbc: case 0xbd: case 0xc5:              // newarray, anewarray, multianewarray
+            case 0xbe: case 0xc0:                         // arraylength, checkcast
+            case 0xc2: case 0xc3:                         // monitorenter, monitorexit
+                return true;
+            case 0xb4:                                    // getfield
+                return !(i > 0 && isLoadOfLocal0(code[i - 1]) && readsThis(mi, code));
+            case 0xb7:                                    // invokespecial
+                return !"<init>".equals(methodName((JVMInvokeInstruction) code[i]));
+            default:
+                return (op >= 0x2e && op <= 0x35) || (op >= 0x4f && op <= 0x56);  // array loads, stores
+        }
+    }
+
+    private static boolean isLoadOfLocal0(Instruction insn) {
+        return insn instanceof ALOAD && ((ALOAD) insn).getLocalVariableIndex() == 0;
+    }
+
+    /** True if local 0 of mi always holds this: an instance method that never stores into it. */
+    private static boolean readsThis(MethodInfo mi, Instruction[] code) {
+        if (mi.isStatic()) return false;
+        for (Instruction insn : code) {
+            if (insn instanceof ASTORE && ((ASTORE) insn).getLocalVariableIndex() == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Library calls that only build the exception about to be thrown or its message: constructors
+     * of Object and of throwables, and StringBuilder or String.valueOf on values that do not run
+     * application code. Any other library call may throw inside the JDK.
+     */
+    private static boolean isSafeLibraryCall(JVMInvokeInstruction call) {
+        String cls = call.getInvokedMethodClassName();
+        String name = methodName(call);
+        String sig = call.getInvokedMethodSignature();
+        if ("<init>".equals(name)) {
+            if ("java.lang.Object".equals(cls) || isThrowable(cls)) return true;
+        }
+        boolean plainArgs = !sig.contains("Ljava/lang/Object;") && !sig.contains("Ljava/lang/CharSequence;")
+            && !sig.contains("[");
+        if ("java.lang.StringBuilder".equals(cls)) {
+            // new StringBuilder(int) rejects a negative capacity
+            return ("<init>".equals(name) && !"(I)V".equals(sig) || "append".equals(name) || "toString".equals(name))
+                && plainArgs;
+        }
+        return "java.lang.String".equals(cls) && "valueOf".equals(name) && plainArgs;
+    }
+
+    private static boolean isThrowable(String cls) {
+        return cls.equals("java.lang.Throwable") || cls.endsWith("Exception") || cls.endsWith("Error");
+    }
+
+    private int index(String site) {
+        Integer i = siteIndex.get(site);
+        if (i == null) {
+            i = siteNames.size();
+            siteNames.add(site);
+            siteIndex.put(site, i);
+        }
+        return i;
+    }
+
+    /** Backward union of own sets over control-flow edges, to a fixpoint. */
+    static BitSet[] propagate(int[][] successors, BitSet[] own) {
+        int n = own.length;
+        List<List<Integer>> predecessors = predecessors(successors);
+        BitSet[] reach = new BitSet[n];
+        Deque<Integer> work = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            reach[i] = (BitSet) own[i].clone();
+            work.add(i);
+        }
+        while (!work.isEmpty()) {
+            int node = work.poll();
+            for (int p : predecessors.get(node)) {
+                BitSet before = (BitSet) reach[p].clone();
+                reach[p].or(reach[node]);
+                if (!reach[p].equals(before)) work.add(p);
+            }
+        }
+        return reach;
+    }
+
+    int[] throwDistances(MethodInfo mi) {
+        int[] d = toThrow.get(mi);
+        if (d != null) return d;
+        if (!inProgress.add(mi)) return unreachable(mi);
+        try {
+            Instruction[] code = mi.getInstructions();
+            int[] base = new int[code.length];
+            for (int i = 0; i < code.length; i++) {
+                if (code[i] instanceof ATHROW) {
+                    base[i] = 0;
+                } else if (code[i] instanceof JVMInvokeInstruction) {
+                    int callee = calleeEntryDistance((JVMInvokeInstruction) code[i]);
+                    base[i] = callee < UNREACHABLE ? callee + 1 : UNREACHABLE;
+                } else {
+                    base[i] = UNREACHABLE;
+                }
+            }
+            d = shortestDistances(successors(mi), base);
+        } finally {
+            inProgress.remove(mi);
+        }
+        toThrow.put(mi, d);
+        return d;
+    }
+
+    int[] returnDistances(MethodInfo mi) {
+        int[] d = toReturn.get(mi);
+        if (d != null) return d;
+        Instruction[] code = mi.getInstructions();
+        int[] base = new int[code.length];
+        for (int i = 0; i < code.length; i++) {
+            base[i] = code[i] instanceof ReturnInstruction ? 0 : UNREACHABLE;
+        }
+        d = shortestDistances(successors(mi), base);
+        toReturn.put(mi, d);
+        return d;
+    }
+
+    private int calleeEntryDistance(JVMInvokeInstruction call) {
+        if (isLibrary(call.getInvokedMethodClassName())) return UNREACHABLE;
+        MethodInfo callee = resolver.apply(call);
+        if (callee == null || callee.getInstructions() == null || callee.getNumberOfInstructions() == 0) {
+            return UNREACHABLE;
+        }
+        return throwDistances(callee)[0];
+    }
+
+    private static boolean isLibrary(String cls) {
+        for (String prefix : LIBRARY_PREFIXES) {
+            if (cls.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /** True if a virtual call of m always runs m itself: m is final or private, or its class is final. */
+    private static boolean isExactTarget(MethodInfo m) {
+        ClassInfo ci = m.getClassInfo();
+        return Modifier.isFinal(m.getModifiers()) || m.isPrivate()
+            || (ci != null && Modifier.isFinal(ci.getModifiers()));
+    }
+
+    /** The statically invoked method, or null if its class cannot be resolved. */
+    private static MethodInfo resolve(JVMInvokeInstruction call) {
+        try {
+            ClassInfo ci = ClassLoaderInfo.getCurrentResolvedClassInfo(call.getInvokedMethodClassName());
+            if (ci == null) return null;
+            return ci.getMethod(call.getInvokedMethodName(), true);
+        } catch (ClassInfoException e) {
+            return null;
+        }
+    }
+
+    /** Name of the invoked method; JPF's getInvokedMethodName() includes the signature. */
+    private static String methodName(JVMInvokeInstruction call) {
+        String name = call.getInvokedMethodName();
+        int paren = name.indexOf('(');
+        return paren < 0 ? name : name.substring(0, paren);
+    }
+
+    private static int[] unreachable(MethodInfo mi) {
+        int[] d = new int[mi.getNumberOfInstructions()];
+        Arrays.fill(d, UNREACHABLE);
+        return d;
+    }
+
+    /** Control-flow successors of every instruction, by instruction index. */
+    static int[][] successors(MethodInfo mi) {
+        Instruction[] code = mi.getInstructions();
+        List<List<Integer>> succ = new ArrayList<>(code.length);
+        for (int i = 0; i < code.length; i++) {
+            List<Integer> s = new ArrayList<>(2);
+            Instruction insn = code[i];
+            if (insn instanceof GOTO) {
+                s.add(((GOTO) insn).getTarget().getInstructionIndex());
+            } else if (insn instanceof IfInstruction) {
+                s.add(((IfInstruction) insn).getTarget().getInstructionIndex());
+                if (i + 1 < code.length) s.add(i + 1);
+            } else if (insn instanceof SwitchInstruction) {
+                SwitchInstruction sw = (SwitchInstruction) insn;
+                addPosition(mi, sw.getTarget(), s);
+                for (int target : sw.getTargets()) {
+                    addPosition(mi, target, s);
+                }
+            } else if (!(insn instanceof ReturnInstruction) && !(insn instanceof ATHROW) && i + 1 < code.length) {
+                s.add(i + 1);
+            }
+            succ.add(s);
+        }
+        ExceptionHandler[] handlers = mi.getExceptions();
+        if (handlers != null) {
+            for (ExceptionHandler h : handlers) {
+                Instruction handler = mi.getInstructionAt(h.getHandler());
+                if (handler == null) continue;
+                for (int i = 0; i < code.length; i++) {
+                    int pos = code[i].getPosition();
+                    if (pos >= h.getBegin() && pos < h.getEnd()) {
+                        succ.get(i).add(handler.getInstructionIndex());
+                    }
+                }
+            }
+        }
+        int[][] result = new int[code.length][];
+        for (int i = 0; i < code.length; i++) {
+            List<Integer> s = succ.get(i);
+            result[i] = new int[s.size()];
+            for (int k = 0; k < s.size(); k++) {
+                result[i][k] = s.get(k);
+            }
+        }
+        return result;
+    }
+
+    private static void addPosition(MethodInfo mi, int position, List<Integer> successors) {
+        Instruction target = mi.getInstructionAt(position);
+        if (target != null) successors.add(target.getInstructionIndex());
+    }
+
+    /**
+     * Multi-source shortest paths to the goals: base[i] is the cost of finishing at instruction i
+     * (0 at a goal, UNREACHABLE if it is none) and every control-flow edge costs one step.
+     */
+    static int[] shortestDistances(int[][] successors, int[] base) {
+        int n = base.length;
+        List<List<Integer>> predecessors = predecessors(successors);
+        int[] dist = base.clone();
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[1], b[1]));
+        for (int i = 0; i < n; i++) {
+            if (dist[i] < UNREACHABLE) queue.add(new int[] {i, dist[i]});
+        }
+        while (!queue.isEmpty()) {
+            int[] e = queue.poll();
+            if (e[1] > dist[e[0]]) continue;
+            for (int p : predecessors.get(e[0])) {
+                int candidate = e[1] + 1;
+                if (candidate < dist[p]) {
+                    dist[p] = candidate;
+                    queue.add(new int[] {p, candidate});
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static List<List<Integer>> predecessors(int[][] successors) {
+        int n = successors.length;
+        List<List<Integer>> predecessors = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            predecessors.add(new ArrayList<Integer>(2));
+        }
+        for (int i = 0; i < n; i++) {
+            for (int s : successors[i]) {
+                predecessors.get(s).add(i);
+            }
+        }
+        return predecessors;
+    }
+}
@@ -0,0 +1,196 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Decides, before any path condition lookup, whether a throw event is worth recording. The class
+ * of the throwing method and the exception type are matched against include/exclude prefixes
+ * (package or class names, e.g. "java." or "com.acme.Parser") held in a prefix trie; the longest
+ * matching prefix wins, and without a match a name is kept unless include prefixes are given.
+ * Verdicts are memoized per ClassInfo, so a repeated origin or type is rejected with one identity
+ * lookup. With escaping_only, throws caught before they leave the symbolic target method
+ * (symbolic.method, or the main method of target) are dropped as well.
+ *
+ * <pre>
+ * witup.filter.include =              # class/package prefixes of the throwing class to keep
+ * witup.filter.exclude =              # class/package prefixes of the throwing class to drop
+ * witup.filter.exception.include =    # exception type prefixes to keep
+ * witup.filter.exception.exclude =    # exception type prefixes to drop
+ * witup.filter.escaping_only = false  # only record exceptions that escape the target method
+ * </pre>
+ */
+final class ThrowFilter {
+
+    /** Throw events seen and rejected, by reason. */
+    static final class Stats {
+        long events;
+        long rejectedOrigin;
+        long rejectedType;
+        long rejectedCaught;
+
+        long rejected() {
+            return rejectedOrigin + rejectedType + rejectedCaught;
+        }
+    }
+
+    /** Prefix trie of include (true) and exclude (false) verdicts. */
+    static final class PrefixTrie {
+        private static final class Node {
+            final Map<Character, Node> next = new HashMap<>();
+            Boolean verdict;
+        }
+
+        private final Node root = new Node();
+        private boolean hasIncludes;
+
+        void add(String prefix, boolean include) {
+            Node n = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                n = n.next.computeIfAbsent(prefix.charAt(i), c -> new Node());
+            }
+            n.verdict = include;
+            hasIncludes |= include;
+        }
+
+        boolean isEmpty() {
+            return root.next.isEmpty() && root.verdict == null;
+        }
+
+        /** Verdict of the longest prefix of name in the trie; without one, true unless includes exist. */
+        boolean accepts(String name) {
+            Boolean verdict = root.verdict;
+            Node n = root;
+            for (int i = 0; i < name.length() && n != null; i++) {
+                n = n.next.get(name.charAt(i));
+                if (n != null && n.verdict != null) verdict = n.verdict;
+            }
+            return verdict != null ? verdict : !hasIncludes;
+        }
+    }
+
+    private final PrefixTrie origins;
+    private final PrefixTrie types;
+    private final boolean escapingOnly;
+    /** Names ("pkg.Class.method") of the target methods a recorded exception must escape. */
+    private final Set<String> targets;
+    private final Map<ClassInfo, Boolean> originVerdicts = new IdentityHashMap<>();
+    private final Map<ClassInfo, Boolean> typeVerdicts = new IdentityHashMap<>();
+    private final Map<MethodInfo, Boolean> targetMethods = new IdentityHashMap<>();
+    private final Stats stats = new Stats();
+
+    ThrowFilter(PrefixTrie origins, PrefixTrie types, boolean escapingOnly, Set<String> targets) {
+        this.origins = origins;
+        this.types = types;
+        this.escapingOnly = escapingOnly;
+        this.targets = targets;
+    }
+
+    /** Returns the filter configured in conf, or null when no filter option is set. */
+    static ThrowFilter fromConfig(Config conf) {
+        PrefixTrie origins = trie(conf, "witup.filter.include", "witup.filter.exclude");
+        PrefixTrie types = trie(conf, "witup.filter.exception.include", "witup.filter.exception.exclude");
+        boolean escapingOnly = conf.getBoolean("witup.filter.escaping_only", false);
+        if (origins.isEmpty() && types.isEmpty() && !escapingOnly) return null;
+        Set<String> targets = new HashSet<>();
+        for (String method : conf.getStringArray("symbolic.method", new String[0])) {
+            int paren = method.indexOf('(');
+            targets.add(paren >= 0 ? method.substring(0, paren) : method);
+        }
+        String target = conf.getString("target");
+        if (targets.isEmpty() && target != null) {
+            targets.add(target + ".main");
+        }
+        return new ThrowFilter(origins, types, escapingOnly, targets);
+    }
+
+    private static PrefixTrie trie(Config conf, String includeKey, String excludeKey) {
+        PrefixTrie trie = new PrefixTrie();
+        for (String prefix : conf.getStringArray(includeKey, new String[0])) {
+            trie.add(prefix, true);
+        }
+        for (String prefix : conf.getStringArray(excludeKey, new String[0])) {
+            trie.add(prefix, false);
+        }
+        return trie;
+    }
+
+    /** True if the throw of exceptionClass by the top frame of ti should be recorded. */
+    boolean accepts(ThreadInfo ti, ClassInfo exceptionClass) {
+        stats.events++;
+        MethodInfo thrower = ti.getTopFrameMethodInfo();
+        if (thrower != null && !verdict(originVerdicts, origins, thrower.getClassInfo())) {
+            stats.rejectedOrigin++;
+            return false;
+        }
+        if (exceptionClass != null && !verdict(typeVerdicts, types, exceptionClass)) {
+            stats.rejectedType++;
+            return false;
+        }
+        if (escapingOnly && exceptionClass != null && isCaughtInTarget(ti, exceptionClass)) {
+            stats.rejectedCaught++;
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean verdict(Map<ClassInfo, Boolean> verdicts, PrefixTrie trie, ClassInfo ci) {
+        Boolean v = verdicts.get(ci);
+        if (v == null) {
+            v = trie.accepts(ci.getName());
+            verdicts.put(ci, v);
+        }
+        return v;
+    }
+
+    /**
+     * True if a handler between the throwing frame and the innermost target method frame (both
+     * included) catches the exception. Without a target frame on the stack nothing is caught.
+     */
+    private boolean isCaughtInTarget(ThreadInfo ti, ClassInfo exceptionClass) {
+        return isCaughtBelow(ti, exceptionClass, this::isTarget);
+    }
+
+    /**
+     * True if a handler between the top frame of ti and the innermost frame accepted by target
+     * (both included) catches exceptionClass; false if no frame is accepted.
+     */
+    static boolean isCaughtBelow(ThreadInfo ti, ClassInfo exceptionClass, Predicate<MethodInfo> target) {
+        for (StackFrame f = ti.getTopFrame(); f != null; f = f.getPrevious()) {
+            MethodInfo mi = f.getMethodInfo();
+            if (mi == null) continue;
+            if (f.getPC() != null && mi.getHandlerFor(exceptionClass, f.getPC()) != null) return true;
+            if (target.test(mi)) return false;
+        }
+        return false;
+    }
+
+    private boolean isTarget(MethodInfo mi) {
+        Boolean t = targetMethods.get(mi);
+        if (t == null) {
+            t = targets.contains(mi.getClassName() + "." + mi.getName());
+            targetMethods.put(mi, t);
+        }
+        return t;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        return String.format("Filter: %d of %d throw event(s) rejected (origin %d, type %d, caught %d)",
+            stats.rejected(), stats.events, stats.rejectedOrigin, stats.rejectedType, stats.rejectedCaught);
+    }
+}
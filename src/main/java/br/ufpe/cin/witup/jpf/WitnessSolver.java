@@ -0,0 +1,346 @@
+package br.ufpe.cin.witup.jpf;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.Types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Concrete inputs that reach each exception site, so a condition can be checked by a plain unit
+ * test (see TestGenerator) instead of another symbolic run. On entry of the run's symbolic.method
+ * the listener records how each argument and receiver field is bound: to a symbolic variable or
+ * to a concrete value; concrete receiver fields (numbers, booleans, Strings and null) are kept as
+ * literals, so a generated test sets the same receiver state that was analyzed. The path
+ * condition of every new site is kept, and at search end all of
+ * them are solved in one batch (through the SolverCache when it is on, so equivalent conditions
+ * share one model); each model is rendered as Java literals in the witness of its site.
+ * Unconstrained variables get the default value of their type.
+ *
+ * Only numeric and boolean symbolic inputs can be solved for; an entry with a symbolic String or
+ * a non-null reference argument yields no witnesses; non-null object fields other than Strings
+ * are left as the test's receiver constructor sets them. Sites instantiated from method summaries
+ * have no path condition of their own and get none either, and neither do exceptions caught by a
+ * handler before they leave the symbolic method: calling it with such inputs does not throw.
+ *
+ * <pre>
+ * witup.witness = false   # solve each site's path condition for concrete inputs at search end
+ * </pre>
+ */
+final class WitnessSolver {
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    /** Witness counters, reported alongside the exception conditions. */
+    static final class Stats {
+        long solved;
+        /** Sites whose path condition the solver found unsatisfiable or could not solve. */
+        long unsolved;
+        /** Sites without a usable entry: not under the symbolic method, or inputs that cannot be rendered. */
+        long unsupported;
+        /** Sites whose exception is caught inside the symbolic method, so no call throws it. */
+        long handled;
+        long solverMillis;
+    }
+
+    /** Call that throws at a site: the symbolic method and Java literals for its inputs. */
+    static final class Witness {
+        /** Binary name of the class declaring the method. */
+        String className;
+        String method;
+        boolean isStatic;
+        /** Source names of the parameter types, e.g. "double", "java.lang.String". */
+        List<String> parameterTypes = new ArrayList<>();
+        /** One Java literal per parameter, e.g. "1.0", "(byte) -1", "null". */
+        List<String> arguments = new ArrayList<>();
+        /** Receiver fields with the literal to set them to (solved or concrete on entry); empty for static methods. */
+        Map<String, String> fields = new LinkedHashMap<>();
+    }
+
+    /**
+     * How the inputs of the symbolic method were bound on entry: per parameter the symbolic
+     * variable (null if concrete) or the concrete literal, and likewise per receiver field.
+     */
+    static final class Entry {
+        final String className;
+        final String method;
+        final boolean isStatic;
+        final List<String> types = new ArrayList<>();
+        final List<String> symbols = new ArrayList<>();
+        final List<String> literals = new ArrayList<>();
+        final Map<String, String> fieldSymbols = new LinkedHashMap<>();
+        final Map<String, String> fieldLiterals = new LinkedHashMap<>();
+        final Map<String, String> fieldTypes = new LinkedHashMap<>();
+        /** Why no witness can be built from this entry; null if it is usable. */
+        String unsupported;
+
+        Entry(String className, String method, boolean isStatic) {
+            this.className = className;
+            this.method = method;
+            this.isStatic = isStatic;
+        }
+
+        void parameter(String type, String symbol, String literal) {
+            types.add(type);
+            symbols.add(symbol);
+            literals.add(literal);
+        }
+
+        void field(String name, String type, String symbol) {
+            fieldSymbols.put(name, symbol);
+            fieldTypes.put(name, type);
+        }
+
+        void concreteField(String name, String type, String literal) {
+            fieldLiterals.put(name, literal);
+            fieldTypes.put(name, type);
+        }
+
+        /** Renders model (symbolic variable name to value) as a witness; absent variables get defaults. */
+        Witness witness(Map<String, Object> model) {
+            Witness w = new Witness();
+            w.className = className;
+            w.method = method;
+            w.isStatic = isStatic;
+            for (int i = 0; i < types.size(); i++) {
+                w.parameterTypes.add(types.get(i));
+                String symbol = symbols.get(i);
+                w.arguments.add(symbol != null ? literal(types.get(i), model.get(symbol)) : literals.get(i));
+            }
+            for (Map.Entry<String, String> f : fieldTypes.entrySet()) {
+                String symbol = fieldSymbols.get(f.getKey());
+                w.fields.put(f.getKey(),
+                    symbol != null ? literal(f.getValue(), model.get(symbol)) : fieldLiterals.get(f.getKey()));
+            }
+            return w;
+        }
+    }
+
+    /** Class.method names of this run's symbolic.method entries. */
+    private final Set<String> roots = new LinkedHashSet<>();
+    /** Path condition of each new site, by SiteTable record. */
+    private final Map<Integer, PathCondition> conditions = new HashMap<>();
+    /** Sites (SiteTable records) whose exception does not escape the symbolic method. */
+    private final Set<Integer> handled = new HashSet<>();
+    private final Stats stats = new Stats();
+    private Entry entry;
+
+    WitnessSolver(String[] symbolicMethods) {
+        for (String m : symbolicMethods) {
+            int paren = m.indexOf('(');
+            roots.add(paren >= 0 ? m.substring(0, paren) : m);
+        }
+    }
+
+    /** Returns the solver configured in conf, or null when witup.witness is off. */
+    static WitnessSolver fromConfig(Config conf) {
+        if (!conf.getBoolean("witup.witness", false)) return null;
+        return new WitnessSolver(conf.getStringArray("symbolic.method", new String[0]));
+    }
+
+    /** On the first entry of a symbolic method, records how its arguments and receiver fields are bound. */
+    void methodEntered(ThreadInfo ti, MethodInfo mi) {
+        if (entry != null || !roots.contains(mi.getClassName() + "." + mi.getName())) return;
+        entered(entry(ti, mi));
+    }
+
+    /** Sets the bindings witnesses are rendered from; only the first entry counts. */
+    void entered(Entry e) {
+        if (entry == null) entry = e;
+    }
+
+    private static Entry entry(ThreadInfo ti, MethodInfo mi) {
+        Entry e = new Entry(mi.getClassName(), mi.getName(), mi.isStatic());
+        StackFrame frame = ti.getTopFrame();
+        String[] types = Types.getArgumentTypeNames(mi.getSignature());
+        int slot = mi.isStatic() ? 0 : 1;
+        for (String type : types) {
+            String sourceType = type.replace('$', '.');
+            Object attr = frame.getLocalAttr(slot);
+            String symbol = symbolName(attr);
+            if (symbol != null) {
+                e.parameter(sourceType, symbol, null);
+            } else if (attr != null) {
+                e.parameter(sourceType, null, null);
+                e.unsupported = "symbolic " + type + " argument";
+            } else {
+                String literal = concreteLiteral(ti, frame, slot, type);
+                if (literal == null) e.unsupported = "non-null " + type + " argument";
+                e.parameter(sourceType, null, literal);
+            }
+            slot += "long".equals(type) || "double".equals(type) ? 2 : 1;
+        }
+        ElementInfo receiver = mi.isStatic() ? null : ti.getElementInfo(frame.getThis());
+        if (receiver != null) {
+            for (ClassInfo ci = receiver.getClassInfo(); ci != null; ci = ci.getSuperClass()) {
+                for (FieldInfo fi : ci.getDeclaredInstanceFields()) {
+                    // a field hidden by a subclass field of the same name is not set by the test
+                    if (e.fieldTypes.containsKey(fi.getName())) continue;
+                    Object attr = receiver.getFieldAttr(fi);
+                    String symbol = symbolName(attr);
+                    if (symbol != null) {
+                        e.field(fi.getName(), fi.getType(), symbol);
+                    } else if (attr != null) {
+                        e.unsupported = "symbolic " + fi.getType() + " field " + fi.getName();
+                    } else {
+                        String literal = concreteFieldLiteral(ti, receiver, fi);
+                        if (literal != null) e.concreteField(fi.getName(), fi.getType(), literal);
+                    }
+                }
+            }
+        }
+        return e;
+    }
+
+    /** Name of a plain numeric symbolic variable (the solver's model key), or null for anything else. */
+    private static String symbolName(Object attr) {
+        if (attr instanceof SymbolicInteger) return ((SymbolicInteger) attr).getName();
+        if (attr instanceof SymbolicReal) return ((SymbolicReal) attr).getName();
+        return null;
+    }
+
+    /** Literal for the concrete value in slot, or null for a non-null reference (other than a String). */
+    private static String concreteLiteral(ThreadInfo ti, StackFrame frame, int slot, String type) {
+        switch (type) {
+            case "double": return literal(type, frame.getDoubleLocalVariable(slot));
+            case "float": return literal(type, frame.getFloatLocalVariable(slot));
+            case "long": return literal(type, frame.getLongLocalVariable(slot));
+            case "int": case "short": case "byte": case "char": case "boolean":
+                return literal(type, frame.getLocalVariable(slot));
+            default:
+                int ref = frame.getLocalVariable(slot);
+                if (ref == 0) return "null";
+                ElementInfo ei = ti.getElementInfo(ref);
+                return ei != null && ei.isStringObject() ? GSON.toJson(ei.asString()) : null;
+        }
+    }
+
+    /** Literal for the value of field fi of receiver, or null for a non-null reference (other than a String). */
+    private static String concreteFieldLiteral(ThreadInfo ti, ElementInfo receiver, FieldInfo fi) {
+        String type = fi.getType();
+        switch (type) {
+            case "double": return literal(type, receiver.getDoubleField(fi));
+            case "float": return literal(type, receiver.getFloatField(fi));
+            case "long": return literal(type, receiver.getLongField(fi));
+            case "boolean": return literal(type, receiver.getBooleanField(fi));
+            case "char": return literal(type, (int) receiver.getCharField(fi));
+            case "short": return literal(type, receiver.getShortField(fi));
+            case "byte": return literal(type, receiver.getByteField(fi));
+            case "int": return literal(type, receiver.getIntField(fi));
+            default:
+                int ref = receiver.getReferenceField(fi);
+                if (ref == 0) return "null";
+                ElementInfo ei = ti.getElementInfo(ref);
+                return ei != null && ei.isStringObject() ? GSON.toJson(ei.asString()) : null;
+        }
+    }
+
+    /** Keeps the path condition of a newly recorded site (its SiteTable record) for solving at search end. */
+    void add(int record, PathCondition pc) {
+        conditions.put(record, pc);
+    }
+
+    /** Marks a newly recorded site whose exception is caught before it leaves the symbolic method. */
+    void addHandled(int record) {
+        handled.add(record);
+    }
+
+    /**
+     * True if the exception being thrown by the top frame of ti is caught by a handler at or below
+     * the innermost symbolic method frame, so the witness call would return normally.
+     */
+    boolean isHandled(ThreadInfo ti, ClassInfo exceptionClass) {
+        return exceptionClass != null
+            && ThrowFilter.isCaughtBelow(ti, exceptionClass, mi -> roots.contains(mi.getClassName() + "." + mi.getName()));
+    }
+
+    /**
+     * Solves the kept path conditions of the sites still in sites, in their order, with solver and
+     * attaches the witnesses. A model that is null means the solver gave no solution.
+     */
+    void solveAll(SiteTable sites, Function<PathCondition, Map<String, Object>> solver) {
+        long t0 = System.nanoTime();
+        for (int site : sites.records()) {
+            if (handled.contains(site)) {
+                stats.handled++;
+                continue;
+            }
+            PathCondition pc = conditions.get(site);
+            if (pc == null || entry == null || entry.unsupported != null) {
+                stats.unsupported++;
+                continue;
+            }
+            Map<String, Object> model = solver.apply(pc);
+            if (model == null) {
+                stats.unsolved++;
+                continue;
+            }
+            sites.setWitness(site, entry.witness(model));
+            stats.solved++;
+        }
+        conditions.clear();
+        handled.clear();
+        stats.solverMillis += (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    /**
+     * Java literal of type for a model value (Long, Double or, from a reloaded cache, any Number);
+     * null stands for an unconstrained variable and gives the type's default value.
+     */
+    static String literal(String type, Object value) {
+        Number n = value instanceof Number ? (Number) value : value instanceof Boolean ? ((Boolean) value ? 1 : 0) : 0;
+        switch (type) {
+            case "boolean": return n.longValue() != 0 ? "true" : "false";
+            case "int": return Integer.toString(n.intValue());
+            case "long": return n.longValue() + "L";
+            case "short": case "byte": case "char": return "(" + type + ") " + n.intValue();
+            case "double": {
+                double d = n.doubleValue();
+                if (Double.isNaN(d)) return "Double.NaN";
+                if (Double.isInfinite(d)) return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+                return Double.toString(d);
+            }
+            case "float": {
+                float f = n.floatValue();
+                if (Float.isNaN(f)) return "Float.NaN";
+                if (Float.isInfinite(f)) return f > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+                return Float.toString(f) + "f";
+            }
+            default: return value == null ? "null" : GSON.toJson(value.toString());
+        }
+    }
+
+    Entry getEntry() {
+        return entry;
+    }
+
+    Stats getStats() {
+        return stats;
+    }
+
+    /** One-line summary for the EXCEPTION CONDITIONS block. */
+    String summary() {
+        String reason = entry == null ? "symbolic method not entered" : entry.unsupported;
+        return String.format("Witnesses: %d solved, %d unsolved, %d unsupported%s, %d handled, %d ms", stats.solved,
+            stats.unsolved, stats.unsupported, stats.unsupported > 0 && reason != null ? " (" + reason + ")" : "",
+            stats.handled, stats.solverMillis);
+    }
+}
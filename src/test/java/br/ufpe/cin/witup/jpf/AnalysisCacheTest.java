@@ -0,0 +1,99 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AnalysisCacheTest {
+
+    private static Config config(String... extra) {
+        String[] args = new String[extra.length + 3];
+        args[0] = "+target=br.ufpe.cin.witup.jpf.AccountJPFDriverSymbolic";
+        args[1] = "+classpath=target/test-classes";
+        args[2] = "+symbolic.method=br.ufpe.cin.witup.jpf.AccountJPFDriverSymbolic.run(sym#sym)";
+        System.arraycopy(extra, 0, args, 3, extra.length);
+        return new Config(args);
+    }
+
+    @Test
+    public void testClosureFollowsProjectClassesOnly() {
+        AnalysisCache.ClassPath cp = new AnalysisCache.ClassPath(new String[] {"target/test-classes"});
+        cp.addClosure("br.ufpe.cin.witup.jpf.AccountJPFDriverSymbolic");
+        cp.close();
+
+        assertTrue(cp.bytes.containsKey("br/ufpe/cin/witup/jpf/Account"));
+        assertTrue(cp.visited.contains("java/lang/Object"));
+        assertFalse(cp.bytes.containsKey("java/lang/Object"));
+    }
+
+    @Test
+    public void testKeyIgnoresOutputOptionsButNotBounds() {
+        String base = AnalysisCache.key(config());
+
+        assertEquals(base, AnalysisCache.key(config("+witup.output=x.ndjson", "+witup.report.stdout=false")));
+        assertNotEquals(base, AnalysisCache.key(config("+symbolic.max_double=10.0")));
+    }
+
+    @Test
+    public void testKeySeparatesRunsWithSummaries() {
+        String base = AnalysisCache.key(config());
+        String summaries = AnalysisCache.key(config("+witup.summaries.dir=a"));
+
+        assertNotEquals(base, summaries);
+        assertEquals(summaries, AnalysisCache.key(config("+witup.summaries.dir=b")));
+        assertNotEquals(summaries, AnalysisCache.key(config("+witup.summaries.dir=a", "+witup.summaries.apply=false")));
+        assertNotEquals(summaries, AnalysisCache.key(config("+witup.summaries.dir=a", "+witup.summaries.record=false")));
+    }
+
+    @Test
+    public void testToolCodeIsPartOfTheKey(@TempDir Path dir) throws Exception {
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve("br/ufpe"));
+        Files.write(classes.resolve("br/ufpe/Listener.class"), new byte[] {1, 2, 3});
+        String before = AnalysisCache.codeDigest(classes);
+        Files.write(classes.resolve("br/ufpe/Listener.class"), new byte[] {1, 2, 4});
+        Path jar = dir.resolve("jpf.jar");
+        Files.write(jar, new byte[] {1, 2, 4});
+
+        assertNotEquals(before, AnalysisCache.codeDigest(classes));
+        assertNotEquals(AnalysisCache.codeDigest(classes), AnalysisCache.codeDigest(jar));
+        // this test run's own classes and jars; stable within the JVM
+        String tool = AnalysisCache.toolDigest();
+        assertEquals(64, tool.length());
+        assertEquals(tool, AnalysisCache.toolDigest());
+    }
+
+    @Test
+    public void testPutGetAndEvictLeastRecentlyUsed(@TempDir Path dir) throws Exception {
+        List<ExceptionSite> sites = Collections.singletonList(
+            new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"));
+        AnalysisCache cache = new AnalysisCache(dir, 1 << 20);
+        cache.put("a", sites);
+        cache.put("b", sites);
+
+        assertEquals(1, cache.get("a").size());
+        assertTrue(cache.get("a").get(0).toJson().contains("\"value <= 0\""));
+        assertNull(cache.get("missing"));
+
+        Files.setLastModifiedTime(dir.resolve("a.json"), FileTime.fromMillis(1000));
+        long oneEntry = Files.size(dir.resolve("b.json"));
+        new AnalysisCache(dir, oneEntry).evict();
+
+        assertEquals(Arrays.asList(false, true),
+            Arrays.asList(Files.exists(dir.resolve("a.json")), Files.exists(dir.resolve("b.json"))));
+    }
+}
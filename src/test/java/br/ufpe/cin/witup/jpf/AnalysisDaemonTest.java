@@ -0,0 +1,130 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AnalysisDaemonTest {
+
+    @Test
+    public void testParseTargetRequest() {
+        AnalysisDaemon.Request r = AnalysisDaemon.parseRequest(
+            "{\"id\":\"r2\",\"target\":\"app.Driver\",\"method\":\"app.Driver.run(sym)\",\"classpath\":\"build/classes\","
+                + "\"properties\":{\"symbolic.min_int\":\"-10\"}}",
+            Paths.get("."), "tools/jpf-bundled.properties");
+
+        assertEquals("r2", r.id);
+        assertEquals("tools/jpf-bundled.properties", r.job.config);
+        assertEquals(Arrays.asList("+target=app.Driver", "+symbolic.method=app.Driver.run(sym)",
+            "+classpath=build/classes", "+symbolic.min_int=-10"), r.job.overrides);
+    }
+
+    @Test
+    public void testParseConfigRequestAndRejectIncompleteOnes() {
+        AnalysisDaemon.Request r = AnalysisDaemon.parseRequest("{\"config\":\"/abs/Account.jpf\"}", Paths.get("/work"), "base.jpf");
+        assertEquals(null, r.id);
+        assertEquals("/abs/Account.jpf", r.job.config);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> AnalysisDaemon.parseRequest("{\"id\":\"x\",\"target\":\"app.Driver\"}", Paths.get("."), "base.jpf"));
+    }
+
+    @Test
+    public void testRequestPropertiesAreRestricted() {
+        AnalysisDaemon.Request r = AnalysisDaemon.parseRequest(
+            "{\"config\":\"/abs/A.jpf\",\"properties\":{\"search.depth_limit\":\"20\",\"witup.budget.paths\":\"5\"}}",
+            Paths.get("/work"), "base.jpf");
+        assertEquals(Arrays.asList("+search.depth_limit=20", "+witup.budget.paths=5"), r.job.overrides);
+
+        assertThrows(IllegalArgumentException.class, () -> AnalysisDaemon.parseRequest(
+            "{\"config\":\"/abs/A.jpf\",\"properties\":{\"witup.output\":\"/home/u/.bashrc\"}}", Paths.get("/work"), "base.jpf"));
+        assertThrows(IllegalArgumentException.class, () -> AnalysisDaemon.parseRequest(
+            "{\"target\":\"app.Driver\",\"method\":\"app.Driver.run()\",\"properties\":{\"listener\":\"evil.Listener\"}}",
+            Paths.get("."), "base.jpf"));
+    }
+
+    @Test
+    public void testTokenFileIsPrivate(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("token");
+        String token = AnalysisDaemon.writeToken(file);
+
+        assertEquals(64, token.length());
+        assertEquals(token, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+        assertNotEquals(token, AnalysisDaemon.writeToken(file));
+    }
+
+    @Test
+    public void testSocketClientsNeedTokenAndStopAtFirstInvalidLine() throws Exception {
+        AnalysisDaemon daemon = new AnalysisDaemon(1, 4, 1, 0, "64m", Paths.get("target"), "base.jpf",
+            Collections.<String>emptyList());
+        StringWriter out = new StringWriter();
+        boolean[] closed = {false};
+        AnalysisDaemon.Responder responder = new AnalysisDaemon.Responder(out, () -> closed[0] = true);
+
+        // a browser's cross-origin POST: header lines first, the JSON request in the body
+        daemon.read(new BufferedReader(new StringReader("{\"id\":\"a\",\"config\":\"A.jpf\",\"token\":\"t0k\"}\n"
+            + "POST / HTTP/1.1\nHost: 127.0.0.1:7878\n\n{\"id\":\"b\",\"config\":\"B.jpf\",\"token\":\"t0k\"}\n")),
+            responder, "t0k");
+
+        assertTrue(out.toString().contains("\"status\":\"invalid\""), out.toString());
+        responder.answer(Collections.singletonList("{\"id\":\"a\",\"status\":\"ok\"}"), true);
+        assertTrue(closed[0], "request b must not have been accepted");
+
+        StringWriter rejected = new StringWriter();
+        daemon.read(new BufferedReader(new StringReader("{\"id\":\"c\",\"config\":\"C.jpf\",\"token\":\"guess\"}\n")),
+            new AnalysisDaemon.Responder(rejected, () -> { }), "t0k");
+        assertTrue(rejected.toString().contains("missing or wrong"), rejected.toString());
+    }
+
+    @Test
+    public void testAnswerStreamsSitesThenStatus() {
+        BatchRunner.ConfigResult result = new BatchRunner.ConfigResult();
+        result.status = "ok";
+        result.elapsedMillis = 12;
+        result.sites.add(new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"));
+
+        List<String> lines = AnalysisDaemon.answerLines("r1", result, 3);
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"id\":\"r1\",\"site\":{\"thrownException\":\"java.lang.RuntimeException\""), lines.get(0));
+        assertEquals("{\"id\":\"r1\",\"status\":\"ok\",\"sites\":1,\"elapsedMillis\":12,\"worker\":3}", lines.get(1));
+    }
+
+    @Test
+    public void testResponderWaitsForOutstandingAnswers() throws Exception {
+        AnalysisDaemon daemon = new AnalysisDaemon(1, 4, 1, 0, "64m", Paths.get("target"), "base.jpf",
+            Collections.<String>emptyList());
+        StringWriter out = new StringWriter();
+        boolean[] closed = {false};
+        AnalysisDaemon.Responder responder = new AnalysisDaemon.Responder(out, () -> closed[0] = true);
+
+        daemon.read(new BufferedReader(new StringReader("{\"id\":\"a\",\"config\":\"A.jpf\"}\nnot json\n")), responder);
+
+        assertTrue(out.toString().contains("\"status\":\"invalid\""), out.toString());
+        assertEquals(false, closed[0]);
+        responder.answer(Collections.singletonList("{\"id\":\"a\",\"status\":\"ok\"}"), true);
+        assertTrue(closed[0]);
+        responder.awaitDone();
+    }
+}
@@ -0,0 +1,54 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void testExpandDirectoryListsConfigsSorted() throws Exception {
+        List<BatchRunner.Job> jobs = BatchRunner.expand(Paths.get("src/test/resources/jpf"));
+        assertEquals(9, jobs.size());
+        assertEquals("AccountTest.jpf", Paths.get(jobs.get(0).config).getFileName().toString());
+    }
+
+    @Test
+    public void testExpandManifest(@TempDir Path dir) throws Exception {
+        Path manifest = dir.resolve("drivers.jsonl");
+        Files.write(manifest, Arrays.asList(
+            "# comment",
+            "{\"config\": \"Math.jpf\", \"properties\": {\"symbolic.max_int\": \"50\"}}",
+            "",
+            "{\"config\": \"Account.jpf\"}"));
+
+        List<BatchRunner.Job> jobs = BatchRunner.expand(manifest);
+
+        assertEquals(2, jobs.size());
+        assertEquals(dir.resolve("Math.jpf").toString(), jobs.get(0).config);
+        assertEquals(Arrays.asList("+symbolic.max_int=50"), jobs.get(0).overrides);
+        assertEquals(0, jobs.get(1).overrides.size());
+    }
+
+    @Test
+    public void testCompareSitesIgnoresHitsAndConjunctOrder() {
+        ExceptionSite a = new ExceptionSite("E", "m(int)", 3, "x < 0 && y > 1");
+        ExceptionSite b = new ExceptionSite("E", "m(int)", 3, "y > 1 && x < 0");
+        b.addHits(4);
+        ExceptionSite c = new ExceptionSite("E", "m(int)", 5, "x < 0");
+
+        assertNull(BatchRunner.compareSites(Arrays.asList(a), Arrays.asList(b)));
+        assertEquals("1 site(s) missing and 0 extra with state matching",
+            BatchRunner.compareSites(Arrays.asList(a, c), Arrays.asList(b)));
+    }
+}
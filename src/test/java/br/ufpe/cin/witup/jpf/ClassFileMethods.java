@@ -0,0 +1,96 @@
+package br.ufpe.cin.witup.jpf;
+
+import gov.nasa.jpf.jvm.ClassFile;
+import gov.nasa.jpf.jvm.ClassFileReaderAdapter;
+import gov.nasa.jpf.jvm.JVMCodeBuilder;
+import gov.nasa.jpf.jvm.bytecode.InstructionFactory;
+import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.ExceptionHandler;
+import gov.nasa.jpf.vm.MethodInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the methods of a compiled test class as JPF MethodInfos (instructions, line numbers and
+ * exception handlers) without starting a VM, so static analyses can be tested on real bytecode.
+ * The methods have no ClassInfo; their full name is just name and descriptor.
+ */
+final class ClassFileMethods {
+
+    private ClassFileMethods() {
+    }
+
+    /** Methods of cls by name and descriptor, e.g. "ratio(II)I". */
+    static Map<String, MethodInfo> load(Class<?> cls) throws IOException, ClassParseException {
+        byte[] bytes = Files.readAllBytes(Paths.get("target/test-classes", cls.getName().replace('.', '/') + ".class"));
+        ClassFile cf = new ClassFile(bytes);
+        JVMCodeBuilder code = new JVMCodeBuilder(new InstructionFactory()) {
+        };
+        Map<String, MethodInfo> methods = new LinkedHashMap<>();
+        cf.parse(new ClassFileReaderAdapter() {
+            MethodInfo mi;
+            int[] lines;
+            int[] positions;
+            final List<ExceptionHandler> handlers = new ArrayList<>();
+
+            @Override
+            public void setMethod(ClassFile cf, int index, int flags, String name, String descriptor) {
+                mi = new MethodInfo(name, descriptor, flags);
+                methods.put(name + descriptor, mi);
+            }
+
+            @Override
+            public void setMethodAttribute(ClassFile cf, int methodIndex, int attrIndex, String name, int length) {
+                if ("Code".equals(name)) cf.parseCodeAttr(this, mi);
+            }
+
+            @Override
+            public void setCode(ClassFile cf, Object tag, int maxStack, int maxLocals, int length) {
+                code.reset(cf, mi);
+                cf.parseBytecode(code, tag, length);
+                code.installCode();
+            }
+
+            @Override
+            public void setExceptionHandler(ClassFile cf, Object tag, int index, int start, int end, int handler,
+                    String type) {
+                handlers.add(new ExceptionHandler(type, start, end, handler));
+            }
+
+            @Override
+            public void setExceptionHandlerTableDone(ClassFile cf, Object tag) {
+                mi.setExceptionHandlers(handlers.toArray(new ExceptionHandler[0]));
+                handlers.clear();
+            }
+
+            @Override
+            public void setCodeAttribute(ClassFile cf, Object tag, int index, String name, int length) {
+                if ("LineNumberTable".equals(name)) cf.parseLineNumberTableAttr(this, tag);
+            }
+
+            @Override
+            public void setLineNumberTableCount(ClassFile cf, Object tag, int count) {
+                lines = new int[count];
+                positions = new int[count];
+            }
+
+            @Override
+            public void setLineNumber(ClassFile cf, Object tag, int index, int line, int position) {
+                lines[index] = line;
+                positions[index] = position;
+            }
+
+            @Override
+            public void setLineNumberTableDone(ClassFile cf, Object tag) {
+                mi.setLineNumbers(lines, positions);
+            }
+        });
+        return methods;
+    }
+}
@@ -0,0 +1,179 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ConditionSimplifierTest {
+
+    private static final String EXC = "java.lang.RuntimeException";
+    private static final String METHOD = "Math.requireBothNonNegativeNested(int, int)";
+
+    private static Set<String> d(String... conjuncts) {
+        return new TreeSet<>(Arrays.asList(conjuncts));
+    }
+
+    @SafeVarargs
+    private static List<Set<String>> dnf(Set<String>... disjuncts) {
+        return Arrays.asList(disjuncts);
+    }
+
+    @Test
+    public void testResolvesBothSidesOfABranch() {
+        assertEquals(dnf(d("b < 0")), ConditionSimplifier.simplify(dnf(d("a < 0", "b < 0"), d("a >= 0", "b < 0"))));
+    }
+
+    @Test
+    public void testResolvesNestedBranches() {
+        assertEquals(dnf(d("a < 0"), d("b < 0")),
+            ConditionSimplifier.simplify(dnf(d("a < 0"), d("a >= 0", "b < 0"))));
+        assertEquals(dnf(d("a < 0"), d("b < 0"), d("c == 1")),
+            ConditionSimplifier.simplify(dnf(d("a < 0"), d("a >= 0", "b < 0"), d("a >= 0", "b >= 0", "c == 1"))));
+    }
+
+    @Test
+    public void testDropsDuplicateAndSubsumedDisjuncts() {
+        assertEquals(dnf(d("a < 0", "b < 0"), d("c > 1")), ConditionSimplifier.simplify(
+            dnf(d("a < 0", "b < 0"), d("c > 1"), d("b < 0", "a < 0"), d("a < 0", "b < 0", "x != 2"))));
+    }
+
+    @Test
+    public void testComplementaryDisjunctsAreTrue() {
+        assertEquals(dnf(d()), ConditionSimplifier.simplify(dnf(d("x > 5"), d("x <= 5"))));
+        assertEquals(dnf(d()), ConditionSimplifier.simplify(dnf(d("x > 5"), d())));
+    }
+
+    @Test
+    public void testNegatesTopLevelComparatorOnly() {
+        assertEquals("(a+b) >= 0", ConditionSimplifier.negate("(a+b) < 0"));
+        assertEquals("this.balance == value", ConditionSimplifier.negate("this.balance != value"));
+        assertNull(ConditionSimplifier.negate("(a < 0 || b < 0)"));
+    }
+
+    @Test
+    public void testRenderedConditionSplitsBack() {
+        List<Set<String>> dnf = dnf(d("a < 0", "b < 0"), d("(x < 1 || y < 1)"));
+        String rendered = ConditionSimplifier.render(dnf);
+
+        assertEquals("(a < 0 && b < 0)" + ConditionSimplifier.OR + "((x < 1 || y < 1))", rendered);
+        assertEquals(dnf, ConditionSimplifier.disjuncts(rendered));
+        assertEquals(dnf(d("(x < 1 || y < 1)", "z > 0")), ConditionSimplifier.disjuncts("(x < 1 || y < 1) &&\nz > 0"));
+        assertEquals("a < 0" + PathConditionFormatter.AND + "b < 0", ConditionSimplifier.render(dnf(d("b < 0", "a < 0"))));
+    }
+
+    @Test
+    public void testMergesSitesPerLocation() {
+        SiteTable table = new SiteTable();
+        table.add(new ExceptionSite(EXC, METHOD, 59, "a < 0 &&\nb < 0"));
+        ExceptionSite other = new ExceptionSite("java.lang.ArithmeticException", "Math.divide(int, int)", 10, "b == 0 &&\na > 1");
+        other.addHits(2);
+        table.add(other);
+        table.add(new ExceptionSite(EXC, METHOD, 59, "a >= 0 &&\nb < 0"));
+
+        ConditionSimplifier simplifier = new ConditionSimplifier();
+        simplifier.simplify(table);
+
+        List<ExceptionSite> sites = table.sites();
+        assertEquals(2, sites.size());
+        assertEquals("b < 0", sites.get(0).getCondition());
+        assertEquals(2, sites.get(0).getHits());
+        assertEquals("b == 0 &&\na > 1", sites.get(1).getCondition());
+        assertEquals(3, sites.get(1).getHits());
+        assertEquals(3, simplifier.getStats().sitesIn);
+        assertEquals(2, simplifier.getStats().sitesOut);
+        assertEquals(6, simplifier.getStats().conjunctsIn);
+        assertEquals(3, simplifier.getStats().conjunctsOut);
+    }
+
+    @Test
+    public void testMergesInstantiatedSummarySitesWithNestedDisjunctions(@TempDir Path dir) {
+        MethodSummaries summaries = new MethodSummaries(dir, new String[0], new Config(new String[0]), true, true);
+        MethodSummaries.Summary summary = new MethodSummaries.Summary();
+        summary.method = "br.ufpe.cin.witup.jpf.Math.check(III)V";
+        summary.sites.add(new ExceptionSite(EXC, "Math.check(int, int, int)", 7,
+            "(a < 0 && b < 0)" + ConditionSimplifier.OR + "c < 0"));
+        String nested = "((a < 0 && b < 0) || c < 0)";
+
+        SiteTable table = new SiteTable();
+        summaries.instantiate(summary, Collections.emptyMap(), "z > 5").forEach(table::add);
+        summaries.instantiate(summary, Collections.emptyMap(), "z <= 5").forEach(table::add);
+        new ConditionSimplifier().simplify(table);
+
+        // the caller's branch on z resolves; the callee's disjunction stays one conjunct
+        assertEquals(1, table.sites().size());
+        assertEquals(nested, table.sites().get(0).getCondition());
+
+        table = new SiteTable();
+        summaries.instantiate(summary, Collections.emptyMap(), "z > 5").forEach(table::add);
+        summaries.instantiate(summary, Collections.emptyMap(), "w == 1").forEach(table::add);
+        new ConditionSimplifier().simplify(table);
+
+        String merged = table.sites().get(0).getCondition();
+        assertEquals("(" + nested + " && z > 5)" + ConditionSimplifier.OR + "(" + nested + " && w == 1)", merged);
+        assertEquals(dnf(d(nested, "z > 5"), d(nested, "w == 1")), ConditionSimplifier.disjuncts(merged));
+    }
+
+    @Test
+    public void testKeepsFirstWitnessAndMemoizesDisjunctions() {
+        List<ExceptionSite> input = new ArrayList<>();
+        input.add(new ExceptionSite(EXC, METHOD, 58, "q < 0"));
+        input.add(new ExceptionSite(EXC, METHOD, 58, "q >= 0 &&\nr < 7"));
+        WitnessSolver.Witness witness = new WitnessSolver.Witness();
+        input.get(1).setWitness(witness);
+
+        ConditionSimplifier simplifier = new ConditionSimplifier();
+        for (int run = 0; run < 2; run++) {
+            SiteTable table = new SiteTable();
+            input.forEach(table::add);
+            simplifier.simplify(table);
+
+            ExceptionSite merged = table.sites().get(0);
+            assertEquals("q < 0" + ConditionSimplifier.OR + "r < 7", merged.getCondition());
+            assertSame(witness, merged.getWitness());
+        }
+        assertTrue(simplifier.getStats().cacheHits >= 1);
+    }
+
+    @Test
+    public void testFormatterDropsConstraintsImpliedByBounds() {
+        SymbolicInteger a = new SymbolicInteger("a_1_SYMINT", 0, 100);
+        SymbolicReal v = new SymbolicReal("v_2_SYMREAL", -1000, 1000);
+        LinearIntegerConstraint lower = new LinearIntegerConstraint(a, Comparator.GE, new IntegerConstant(0));
+        LinearIntegerConstraint negative = new LinearIntegerConstraint(a, Comparator.LT, new IntegerConstant(10));
+        RealConstraint upper = new RealConstraint(new RealConstant(5000.0), Comparator.GT, v);
+        lower.and = negative;
+        negative.and = upper;
+        PathCondition pc = new PathCondition();
+        pc.header = lower;
+
+        assertTrue(ConditionSimplifier.impliedByBounds(lower));
+        assertFalse(ConditionSimplifier.impliedByBounds(negative));
+        assertTrue(ConditionSimplifier.impliedByBounds(upper));
+        assertEquals("a < 10", new PathConditionFormatter(true).format(pc, null));
+        assertEquals(Collections.singletonList("a >= 0"),
+            Arrays.asList(new PathConditionFormatter().format(pc, null).split(PathConditionFormatter.AND)).subList(0, 1));
+    }
+}
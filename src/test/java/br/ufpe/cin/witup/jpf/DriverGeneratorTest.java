@@ -0,0 +1,77 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DriverGeneratorTest {
+
+    private static DriverGenerator generator(Path out, String... includes) {
+        ThrowFilter.PrefixTrie filter = new ThrowFilter.PrefixTrie();
+        for (String prefix : includes) {
+            filter.add(prefix, true);
+        }
+        return new DriverGenerator(out, filter, "/bundled.properties", Collections.singletonList("symbolic.max_int=100"));
+    }
+
+    @Test
+    public void testInstanceMethodsUseReceiverAndSymbolicFields(@TempDir Path dir) {
+        List<DriverGenerator.Target> targets = generator(dir).targets(Account.class);
+
+        assertEquals(2, targets.size());
+        DriverGenerator.Target debit = targets.get(0);
+        assertEquals("debit", debit.method.getName());
+        assertEquals("sym", debit.symbolicSpec());
+        assertEquals("con#sym", targets.get(1).symbolicSpec());
+
+        String source = DriverGenerator.driverSource(Account.class, targets);
+        assertTrue(source.contains("public class AccountGeneratedJPFDriver {"));
+        assertTrue(source.contains("new br.ufpe.cin.witup.jpf.Account(0.0).debit(0.0);"));
+        assertTrue(source.contains("new br.ufpe.cin.witup.jpf.Account(0.0).transfer((br.ufpe.cin.witup.jpf.Account) null, 0.0);"));
+
+        String config = DriverGenerator.config(Account.class, debit, "/bundled.properties",
+            Arrays.asList("/cp"), Collections.singletonList("symbolic.max_int=100"));
+        assertTrue(config.contains("target = br.ufpe.cin.witup.jpf.AccountGeneratedJPFDriver\ntarget.args = 0\n"));
+        assertTrue(config.contains("symbolic.method = br.ufpe.cin.witup.jpf.Account.debit(sym)\n"));
+        assertTrue(config.contains("symbolic.fields = instance\n"));
+        assertTrue(config.endsWith("symbolic.max_int = 100\n"));
+    }
+
+    @Test
+    public void testStaticMethodsAndStringParameters(@TempDir Path dir) {
+        DriverGenerator.Target requireEmpty = generator(dir).targets(StringUtils.class).get(0);
+        String config = DriverGenerator.config(StringUtils.class, requireEmpty, "/b", Arrays.asList("/cp"),
+            Collections.<String>emptyList());
+
+        assertEquals("requireEmpty", requireEmpty.method.getName());
+        assertTrue(config.contains("symbolic.method = br.ufpe.cin.witup.jpf.StringUtils.requireEmpty(sym)\n"));
+        assertTrue(config.contains("symbolic.string_dp = automata\n"));
+        assertFalse(config.contains("symbolic.fields"));
+    }
+
+    @Test
+    public void testGeneratesCompilableDriversAndManifest(@TempDir Path dir) throws Exception {
+        DriverGenerator generator = generator(dir, "br.ufpe.cin.witup.jpf.Math");
+        List<Path> classpath = Collections.singletonList(Paths.get("target/test-classes").toAbsolutePath());
+
+        List<Path> sources = generator.generate(classpath);
+
+        assertTrue(sources.contains(dir.resolve("src/br/ufpe/cin/witup/jpf/MathGeneratedJPFDriver.java")));
+        List<String> manifest = Files.readAllLines(dir.resolve("drivers.jsonl"));
+        assertTrue(manifest.contains("{\"config\":\"jpf/br.ufpe.cin.witup.jpf.Math.sqrt.3.jpf\"}"));
+        assertEquals(5, BatchRunner.expand(dir.resolve("drivers.jsonl")).stream()
+            .filter(j -> j.config.contains("witup.jpf.Math.")).count());
+        assertTrue(DriverGenerator.compile(sources, classpath, dir.resolve("classes")));
+        assertTrue(Files.isRegularFile(dir.resolve("classes/br/ufpe/cin/witup/jpf/MathGeneratedJPFDriver.class")));
+    }
+}
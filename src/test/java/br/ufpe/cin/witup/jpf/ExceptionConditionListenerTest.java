@@ -0,0 +1,109 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.PendingSite;
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExceptionConditionListenerTest {
+
+    @Test
+    public void testFormatConditionStripsSymbcNaming() {
+        String raw = "constraint # = 1\nvalue_2_SYMINT <= CONST_0";
+        assertEquals("value <= 0", ExceptionConditionListener.formatConditionForUser(raw, null));
+    }
+
+    @Test
+    public void testQualifyInstanceFieldsSkipsParameters() {
+        ExceptionConditionListener.MethodFormatInfo info = new ExceptionConditionListener.MethodFormatInfo(
+            new HashSet<>(Arrays.asList("value", "limit")),
+            new HashSet<>(Arrays.asList("balance", "limit", "bal")));
+        assertEquals("value > this.balance && limit < this.bal",
+            ExceptionConditionListener.qualifyInstanceFields("value > balance && limit < bal", info));
+    }
+
+    @Test
+    public void testNormalizeConditionIgnoresOrderAndWhitespace() {
+        assertEquals(
+            ExceptionConditionListener.normalizeCondition("a < 0 &&\nb < 0"),
+            ExceptionConditionListener.normalizeCondition("b  <  0 && a < 0 && a < 0"));
+    }
+
+    @Test
+    public void testNormalizeConditionKeepsParenthesizedConjunctionsWhole() {
+        assertEquals("((a < 0 && b < 0) || c < 0) && z > 5",
+            ExceptionConditionListener.normalizeCondition("z > 5 &&\n((a < 0 && b < 0) ||\nc < 0)"));
+    }
+
+    @Test
+    public void testAddSiteMergesEquivalentSites() {
+        ExceptionConditionListener listener = new ExceptionConditionListener();
+        assertTrue(listener.addSite(site("a_1_SYMINT < CONST_0 &&\nb_2_SYMINT < CONST_0", 10)));
+        assertFalse(listener.addSite(site("b_2_SYMINT < CONST_0 &&\na_1_SYMINT < CONST_0", 10)));
+        assertTrue(listener.addSite(site("a_1_SYMINT < CONST_0 &&\nb_2_SYMINT < CONST_0", 11)));
+
+        assertEquals(2, listener.getExceptionSites().size());
+        assertEquals(2, listener.getExceptionSites().iterator().next().getHits());
+    }
+
+    @Test
+    public void testLazySitesAreFormattedAndMergedOnFinalize() {
+        ExceptionConditionListener listener = new ExceptionConditionListener(new Config(new String[] {
+            "+witup.lazy_conditions=true", "+witup.finalize_threads=4"}));
+        for (int i = 0; i < 3; i++) {
+            listener.addPendingSite(pending("a_1_SYMINT", 10));
+        }
+        listener.addPendingSite(pending("b_2_SYMINT", 10));
+        listener.addPendingSite(pending("a_1_SYMINT", 12));
+        assertTrue(listener.getExceptionSites().isEmpty());
+
+        listener.finalizePendingSites();
+
+        assertEquals(3, listener.getExceptionSites().size());
+        ExceptionSite first = listener.getExceptionSites().iterator().next();
+        assertEquals(3, first.getHits());
+        assertTrue(first.toJson().contains("\"condition\":\"a < 0\""));
+    }
+
+    @Test
+    public void testOutputSinkWritesOneLinePerDistinctSite(@TempDir Path dir) throws Exception {
+        Path out = dir.resolve("sites.ndjson");
+        ExceptionConditionListener listener = new ExceptionConditionListener(new Config(new String[] {
+            "+witup.output=" + out, "+witup.report.stdout=false"}));
+        listener.addSite(site("a_1_SYMINT < CONST_0", 10));
+        listener.addSite(site("a_1_SYMINT < CONST_0", 10));
+        listener.addSite(site("b_2_SYMINT < CONST_0", 10));
+        listener.searchFinished(null);
+
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains("\"condition\":\"b < 0\""));
+    }
+
+    private static PendingSite pending(String var, int line) {
+        PathCondition pc = new PathCondition();
+        pc.header = new LinearIntegerConstraint(new SymbolicInteger(var, -100, 100), Comparator.LT, new IntegerConstant(0));
+        return new PendingSite("java.lang.RuntimeException", null, line, pc);
+    }
+
+    private static ExceptionSite site(String rawCondition, int line) {
+        return new ExceptionSite("java.lang.RuntimeException", "Math.requireBothNonNegative(int, int)", line,
+            "constraint # = 2\n" + rawCondition, null);
+    }
+}
@@ -0,0 +1,43 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.jvm.bytecode.IfInstruction;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+
+import org.junit.jupiter.api.Test;
+
+public class ExceptionDirectedSearchTest {
+
+    @Test
+    public void testCloserThrowsFirstThenDeeperPaths() {
+        assertTrue(ExceptionDirectedSearch.priority(2, 1) < ExceptionDirectedSearch.priority(3, 50));
+        assertTrue(ExceptionDirectedSearch.priority(2, 10) < ExceptionDirectedSearch.priority(2, 9));
+        assertTrue(ExceptionDirectedSearch.priority(ExceptionDirectedSearch.MAX_DISTANCE, 0)
+            <= ExceptionDirectedSearch.priority(ThrowDistance.UNREACHABLE, 0));
+        assertTrue(ExceptionDirectedSearch.priority(ThrowDistance.UNREACHABLE, Integer.MAX_VALUE) > 0);
+    }
+
+    @Test
+    public void testBranchTowardsThrowGetsBetterPriority() throws Exception {
+        MethodInfo nested = ClassFileMethods.load(Math.class).get("requireBothNonNegativeNested(II)V");
+        int[] distances = new ThrowDistance().throwDistances(nested);
+        Instruction[] code = nested.getInstructions();
+        int branch = 3;  // if (b < 0): falls through to the throw, jumps to the return
+        assertTrue(code[branch] instanceof IfInstruction);
+        int jump = ((IfInstruction) code[branch]).getTarget().getInstructionIndex();
+        int fallThrough = branch + 1;
+        assertArrayEquals(new int[] {jump, fallThrough}, ThrowDistance.successors(nested)[branch]);
+
+        int depth = 4;
+        int towardsThrow = ExceptionDirectedSearch.priority(distances[fallThrough], depth);
+        int towardsReturn = ExceptionDirectedSearch.priority(distances[jump], depth);
+
+        assertTrue(towardsThrow < towardsReturn);
+        assertEquals(ThrowDistance.UNREACHABLE, distances[jump]);
+        assertTrue(distances[0] < ThrowDistance.UNREACHABLE);
+    }
+}
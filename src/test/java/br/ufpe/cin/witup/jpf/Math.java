@@ -60,4 +60,20 @@ public class Math {
             }
         }
     }
+
+    /**
+     * Returns the ratio of a non-negative value to a divisor.
+     *
+     * @param a a non-negative dividend
+     * @param b the divisor
+     * @return a / b
+     * @throws RuntimeException if a is negative (a < 0)
+     * @throws ArithmeticException if b is zero
+     */
+    public static int ratio(int a, int b) {
+        if (a < 0) {
+            throw new RuntimeException("Value must be non-negative");
+        }
+        return a / b;
+    }
 }
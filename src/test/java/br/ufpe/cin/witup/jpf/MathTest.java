@@ -54,4 +54,11 @@ public class MathTest {
     public void testRequireBothNonNegativeNestedThrows() {
         assertThrows(RuntimeException.class, () -> Math.requireBothNonNegativeNested(-1, -1));
     }
+
+    @Test
+    public void testRatio() {
+        assertEquals(3, Math.ratio(7, 2));
+        assertThrows(RuntimeException.class, () -> Math.ratio(-1, 2));
+        assertThrows(ArithmeticException.class, () -> Math.ratio(1, 0));
+    }
 }
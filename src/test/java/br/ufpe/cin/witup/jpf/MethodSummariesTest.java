@@ -0,0 +1,141 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class MethodSummariesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSubstituteReplacesParametersAndFields() {
+        Map<String, String> actuals = new HashMap<>();
+        actuals.put("value", "amount_1_SYMREAL * 2.0");
+        actuals.put("this.balance", "100.0");
+
+        String condition = MethodSummaries.substitute("value > this.balance && value > 0.0", actuals);
+
+        assertEquals("(amount_1_SYMREAL * 2.0) > (100.0) && (amount_1_SYMREAL * 2.0) > 0.0", condition);
+    }
+
+    @Test
+    public void testSubstituteLeavesMemberAccessesAlone() {
+        Map<String, String> actuals = Collections.singletonMap("length", "n");
+
+        assertEquals("s.length() > (n)", MethodSummaries.substitute("s.length() > length", actuals));
+    }
+
+    @Test
+    public void testRecordsOnlyRunsWithAllInputsSymbolic() {
+        String debit = "br.ufpe.cin.witup.jpf.Account.debit";
+
+        assertTrue(summaries("+symbolic.method=" + debit + "(sym)", "+symbolic.fields=instance").isRecordedRoot(debit, false));
+        assertFalse(summaries("+symbolic.method=" + debit + "(con)", "+symbolic.fields=instance").isRecordedRoot(debit, false));
+        // the receiver's fields keep the driver's concrete values
+        assertFalse(summaries("+symbolic.method=" + debit + "(sym)").isRecordedRoot(debit, false));
+        assertTrue(summaries("+symbolic.method=br.ufpe.cin.witup.jpf.Math.ratio(sym#sym)")
+            .isRecordedRoot("br.ufpe.cin.witup.jpf.Math.ratio", true));
+        assertFalse(summaries("+symbolic.method=br.ufpe.cin.witup.jpf.Math.ratio(sym#con)")
+            .isRecordedRoot("br.ufpe.cin.witup.jpf.Math.ratio", true));
+    }
+
+    @Test
+    public void testReferencesNameParametersAndFields() {
+        MethodSummaries.Summary summary = new MethodSummaries.Summary();
+        summary.parameters.addAll(Arrays.asList("s", "n"));
+        summary.sites.add(new ExceptionSite("java.lang.NullPointerException", "StringUtils.f(String, int)", 3,
+            "s == null && n > this.limit && s.length() > 0"));
+
+        assertEquals(new TreeSet<>(Arrays.asList("n", "s", "this.limit")), summary.references());
+    }
+
+    private MethodSummaries summaries(String... overrides) {
+        return new MethodSummaries(dir, new String[0], new Config(overrides), true, true);
+    }
+
+    @Test
+    public void testInstantiateConjoinsCallerCondition() {
+        MethodSummaries summaries = new MethodSummaries(dir, new String[0],
+            new Config(new String[]{"+symbolic.dp=z3"}), true, true);
+        MethodSummaries.Summary summary = new MethodSummaries.Summary();
+        summary.method = "br.ufpe.cin.witup.jpf.Account.debit(D)V";
+        summary.sites.add(new ExceptionSite("java.lang.IllegalArgumentException", "Account.debit(double)", 12, "value > this.balance"));
+
+        List<ExceptionSite> sites = summaries.instantiate(summary, Collections.singletonMap("value", "x"), "x > 10.0");
+
+        assertEquals(1, sites.size());
+        assertEquals("x > 10.0" + PathConditionFormatter.AND + "(x) > this.balance", sites.get(0).getCondition());
+        assertEquals(summary.method, sites.get(0).getSummaryOf());
+        assertEquals(1, summaries.getStats().applied);
+    }
+
+    @Test
+    public void testInstantiateParenthesizesMergedCondition() {
+        MethodSummaries summaries = new MethodSummaries(dir, new String[0],
+            new Config(new String[]{"+symbolic.dp=z3"}), true, true);
+        MethodSummaries.Summary summary = new MethodSummaries.Summary();
+        summary.method = "br.ufpe.cin.witup.jpf.Math.requireBothNonNegativeNested(II)V";
+        summary.sites.add(new ExceptionSite("java.lang.RuntimeException", "Math.requireBothNonNegativeNested(int, int)", 58,
+            "a < 0" + ConditionSimplifier.OR + "b < 0"));
+
+        List<ExceptionSite> sites = summaries.instantiate(summary, Collections.singletonMap("a", "x"), "x < 10");
+
+        assertEquals("x < 10" + PathConditionFormatter.AND + "((x) < 0" + ConditionSimplifier.OR + "b < 0)",
+            sites.get(0).getCondition());
+    }
+
+    @Test
+    public void testInstantiateDropsContradictorySites() {
+        MethodSummaries summaries = new MethodSummaries(dir, new String[0],
+            new Config(new String[]{"+symbolic.dp=z3"}), true, true);
+        MethodSummaries.Summary summary = new MethodSummaries.Summary();
+        summary.method = "br.ufpe.cin.witup.jpf.Math.requireBothNonNegativeNested(II)V";
+        String method = "Math.requireBothNonNegativeNested(int, int)";
+        summary.sites.add(new ExceptionSite("java.lang.RuntimeException", method, 58, "a < 0 && b < 0"));
+        summary.sites.add(new ExceptionSite("java.lang.RuntimeException", method, 59, "a < 0" + ConditionSimplifier.OR + "b < 0"));
+        Map<String, String> actuals = new HashMap<>();
+        actuals.put("a", "x");
+        actuals.put("b", "7");
+
+        List<ExceptionSite> sites = summaries.instantiate(summary, actuals, "x > 10");
+
+        // (7) < 0 is false, and x < 0 contradicts x > 10 in the first disjunct of line 59
+        assertEquals(Collections.emptyList(), sites);
+        assertEquals(2, summaries.getStats().sitesDropped);
+        actuals.put("b", "y");
+        sites = summaries.instantiate(summary, actuals, "x > 10");
+        assertEquals(1, sites.size());
+        assertEquals("x > 10" + PathConditionFormatter.AND + "(y) < 0", sites.get(0).getCondition());
+    }
+
+    @Test
+    public void testContradictory() {
+        assertTrue(MethodSummaries.contradictory(set("x > 10", "x <= 10")));
+        assertTrue(MethodSummaries.contradictory(set("x > 10", "(x) < 0")));
+        assertTrue(MethodSummaries.contradictory(set("a + b == 3", "a + b != 3")));
+        assertTrue(MethodSummaries.contradictory(set("x >= 2", "x <= 2", "x != 2")));
+        assertTrue(MethodSummaries.contradictory(set("(5) < 0")));
+        assertFalse(MethodSummaries.contradictory(set("x >= 2", "x <= 2")));
+        assertFalse(MethodSummaries.contradictory(set("x > 10", "y < 0", "abs(x) < 0")));
+    }
+
+    private static Set<String> set(String... conjuncts) {
+        return new TreeSet<>(Arrays.asList(conjuncts));
+    }
+}
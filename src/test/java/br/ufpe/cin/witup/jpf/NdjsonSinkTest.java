@@ -0,0 +1,29 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class NdjsonSinkTest {
+
+    @Test
+    public void testRerunReplacesPreviousLines(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("out/sites.ndjson");
+        try (NdjsonSink sink = new NdjsonSink(file, 0)) {
+            sink.writeLine("{\"run\":1}");
+            sink.writeLine("{\"run\":1,\"n\":2}");
+        }
+
+        try (NdjsonSink sink = new NdjsonSink(file, 0)) {
+            sink.writeLine("{\"run\":2}");
+        }
+
+        assertEquals(Arrays.asList("{\"run\":2}"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+}
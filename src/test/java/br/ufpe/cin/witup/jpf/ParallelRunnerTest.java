@@ -0,0 +1,90 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelRunnerTest {
+
+    @Test
+    public void testGroupByMethod() {
+        List<ExceptionSite> sites = Arrays.asList(
+            new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"),
+            new ExceptionSite("java.lang.RuntimeException", "Account.debit(double)", 13, "value > this.balance"),
+            new ExceptionSite("java.lang.IllegalStateException", "Math.sqrt(int)", 15, "value > 100"));
+        Map<String, List<ExceptionSite>> byMethod = new LinkedHashMap<>();
+
+        ParallelRunner.groupByMethod(sites, byMethod);
+
+        assertEquals(Arrays.asList("Math.sqrt(int)", "Account.debit(double)"), Arrays.asList(byMethod.keySet().toArray()));
+        assertEquals(2, byMethod.get("Math.sqrt(int)").size());
+    }
+
+    @Test
+    public void testMergePartitionsSumsHitsAndKeepsWorstStatus() {
+        BatchRunner.ConfigResult a = new BatchRunner.ConfigResult();
+        a.status = "ok";
+        a.elapsedMillis = 40;
+        a.sites.add(new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"));
+        BatchRunner.ConfigResult b = new BatchRunner.ConfigResult();
+        b.status = "timeout";
+        b.error = "killed";
+        b.elapsedMillis = 90;
+        b.sites.add(new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"));
+        b.sites.add(new ExceptionSite("java.lang.IllegalStateException", "Math.sqrt(int)", 15, "value > 100"));
+
+        ParallelRunner.MergedResult merged = ParallelRunner.merge(Arrays.asList(a, b));
+
+        assertEquals("timeout", merged.status);
+        assertEquals(90, merged.elapsedMillis);
+        List<ExceptionSite> sites = merged.methods.get("Math.sqrt(int)");
+        assertEquals(2, sites.size());
+        assertEquals(2, sites.get(0).getHits());
+    }
+
+    @Test
+    public void testMergeReportsFailuresBeforeIncompleteParts() {
+        BatchRunner.ConfigResult a = new BatchRunner.ConfigResult();
+        a.status = BatchRunner.INCOMPLETE;
+        BatchRunner.ConfigResult b = new BatchRunner.ConfigResult();
+        b.status = "crashed";
+        BatchRunner.ConfigResult c = new BatchRunner.ConfigResult();
+        c.status = "ok";
+
+        assertEquals("crashed", ParallelRunner.merge(Arrays.asList(a, b)).status);
+        assertEquals(BatchRunner.INCOMPLETE, ParallelRunner.merge(Arrays.asList(c, a)).status);
+    }
+
+    @Test
+    public void testPartitionRunsWriteSeparateFiles(@TempDir Path dir) throws Exception {
+        Path config = dir.resolve("Account.jpf");
+        Files.write(config, Arrays.asList("target=app.Driver", "symbolic.method=app.Account.debit(sym)",
+            "witup.output=out/sites.ndjson", "witup.metrics.dir=out/metrics"));
+        ParallelRunner runner = new ParallelRunner(2, "64m", 0, dir, Collections.singletonList("+witup.result=out/result"));
+        runner.setPartitions(4, 0);
+
+        BatchRunner.Job child = runner.partitionJob(new BatchRunner.Job(config.toString(),
+            Collections.singletonList("+witup.prune.log=prune.ndjson")), 3);
+
+        assertEquals(Arrays.asList("+witup.prune.log=prune.ndjson", "+witup.partition.count=4", "+witup.partition.id=3",
+            "+witup.output=out/sites.part3.ndjson", "+witup.result=out/result.part3", "+witup.prune.log=prune.part3.ndjson",
+            "+witup.metrics.name=app.Driver.debit.part3"), child.overrides);
+    }
+
+    @Test
+    public void testPartPath() {
+        assertEquals("out/sites.part0.ndjson", ParallelRunner.partPath("out/sites.ndjson", 0));
+        assertEquals("out.d/result.part1", ParallelRunner.partPath("out.d/result", 1));
+        assertEquals(".witup.part2", ParallelRunner.partPath(".witup", 2));
+    }
+}
@@ -0,0 +1,76 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.MethodFormatInfo;
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import org.junit.jupiter.api.Test;
+
+public class PathConditionFormatterTest {
+
+    private final PathConditionFormatter formatter = new PathConditionFormatter();
+
+    @Test
+    public void testMatchesFormattedToString() {
+        SymbolicInteger a = new SymbolicInteger("a_1_SYMINT", -100, 100);
+        SymbolicInteger b = new SymbolicInteger("b_2_SYMINT", -100, 100);
+        LinearIntegerConstraint sum = new LinearIntegerConstraint(
+            new BinaryLinearIntegerExpression(a, Operator.PLUS, b), Comparator.LT, new IntegerConstant(0));
+        LinearIntegerConstraint first = new LinearIntegerConstraint(a, Comparator.GE, new IntegerConstant(-5));
+        sum.and = first;
+        PathCondition pc = new PathCondition();
+        pc.header = sum;
+
+        String expected = ExceptionConditionListener.formatConditionForUser(pc.toString(), null);
+        assertEquals(expected, formatter.format(pc, null));
+    }
+
+    @Test
+    public void testQualifiesInstanceFields() {
+        PathCondition pc = new PathCondition();
+        pc.header = new RealConstraint(new SymbolicReal("value_2_SYMREAL", -1000, 1000), Comparator.GT,
+            new SymbolicReal("balance_1_SYMREAL", -1000, 1000));
+        MethodFormatInfo info = new MethodFormatInfo(Collections.singleton("value"),
+            new HashSet<>(Arrays.asList("balance")));
+
+        assertEquals("value > this.balance", formatter.format(pc, info));
+    }
+
+    @Test
+    public void testKeepSuffixesSeparatesVariablesWithTheSameName() {
+        // x of two different calls, e.g. a recursive method
+        SymbolicInteger outer = new SymbolicInteger("x_1_SYMINT", -100, 100);
+        SymbolicInteger inner = new SymbolicInteger("x_4_SYMINT", -100, 100);
+        PathCondition pc = new PathCondition();
+        pc.header = new LinearIntegerConstraint(outer, Comparator.GT, new IntegerConstant(0));
+        pc.header.and = new LinearIntegerConstraint(inner, Comparator.LT, new IntegerConstant(0));
+
+        assertEquals("x > 0" + PathConditionFormatter.AND + "x < 0", formatter.format(pc, null));
+        assertEquals("x_1_SYMINT > 0" + PathConditionFormatter.AND + "x_4_SYMINT < 0",
+            new PathConditionFormatter(false, true).format(pc, null));
+    }
+
+    @Test
+    public void testEmptyPathCondition() {
+        assertEquals("", formatter.format(new PathCondition(), null));
+    }
+
+    @Test
+    public void testStripSymSuffix() {
+        assertEquals(5, PathConditionFormatter.stripSymSuffix("value_12_SYMREAL"));
+        assertEquals(5, PathConditionFormatter.stripSymSuffix("value"));
+        assertEquals(9, PathConditionFormatter.stripSymSuffix("value_SYM"));
+    }
+}
@@ -0,0 +1,91 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResultFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static ExceptionSite site() {
+        return new ExceptionSite("java.lang.IllegalArgumentException", "Account.debit(double)", 12, "value > this.balance");
+    }
+
+    @Test
+    public void testWritesVersionedDocument() throws IOException {
+        Path path = dir.resolve("out/result.json");
+        RunBudget.Stats budget = new RunBudget.Stats();
+        budget.exhausted = "time";
+        budget.states = 42;
+
+        new ResultFile(path).write(Collections.singletonList(site()), budget, Arrays.asList("Budget: INCOMPLETE"), false);
+
+        ResultFile.Document doc = ResultFile.read(path);
+        assertEquals(ResultFile.FORMAT, doc.format);
+        assertEquals(ResultFile.VERSION, doc.version);
+        assertEquals(BatchRunner.INCOMPLETE, doc.status);
+        assertFalse(doc.cached);
+        assertEquals(42, doc.budget.states);
+        assertEquals(Arrays.asList("Budget: INCOMPLETE"), doc.summary);
+        assertEquals(1, doc.sites.size());
+        assertEquals("value > this.balance", doc.sites.get(0).getCondition());
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testCachedRunWithoutBudgetIsOk() throws IOException {
+        Path path = dir.resolve("result.json");
+        ResultFile result = ResultFile.fromConfig(new Config(new String[]{"+witup.result=" + path}));
+
+        result.write(Collections.singletonList(site()), null, Collections.emptyList(), true);
+
+        ResultFile.Document doc = ResultFile.read(path);
+        assertEquals("ok", doc.status);
+        assertTrue(doc.cached);
+        assertNull(doc.budget);
+        assertNull(ResultFile.fromConfig(new Config(new String[0])));
+    }
+
+    @Test
+    public void testWritesThroughLinkInPlace() throws IOException {
+        Path target = dir.resolve("fd3.json");
+        Files.createFile(target);
+        Path link = Files.createSymbolicLink(dir.resolve("link.json"), target);
+
+        new ResultFile(link).write(Collections.singletonList(site()), null, Collections.emptyList(), false);
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(1, ResultFile.read(target).sites.size());
+    }
+
+    @Test
+    public void testRejectsOtherVersionsAndFormats() throws IOException {
+        Path newer = dir.resolve("newer.json");
+        Files.write(newer, "{\"format\":\"witup-result\",\"version\":2,\"sites\":[]}".getBytes(StandardCharsets.UTF_8));
+        Path other = dir.resolve("other.json");
+        Files.write(other, "[{\"exception\":\"x\"}]".getBytes(StandardCharsets.UTF_8));
+
+        IOException e = assertThrows(IOException.class, () -> ResultFile.read(newer));
+        assertTrue(e.getMessage().contains("version 2"));
+        assertThrows(IOException.class, () -> ResultFile.read(other));
+    }
+}
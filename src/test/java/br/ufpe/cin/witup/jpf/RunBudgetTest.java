@@ -0,0 +1,58 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+
+public class RunBudgetTest {
+
+    @Test
+    public void testFromConfigIsOffWithoutLimits() {
+        assertNull(RunBudget.fromConfig(new Config(new String[0])));
+        assertNotNull(RunBudget.fromConfig(new Config(new String[]{"+witup.budget.states=10"})));
+    }
+
+    @Test
+    public void testStateBudgetCountsOnlyNewStates() {
+        RunBudget budget = new RunBudget(0, 2, 0, 0);
+        budget.searchStarted();
+
+        assertNull(budget.stateAdvanced(true, 1));
+        assertNull(budget.stateAdvanced(false, 2));
+        assertEquals("states", budget.stateAdvanced(true, 3));
+        assertEquals(3, budget.getStats().maxDepth);
+    }
+
+    @Test
+    public void testDepthBudgetCutsPathsAndMarksIncomplete() {
+        RunBudget budget = new RunBudget(0, 0, 5, 0);
+        budget.searchStarted();
+
+        assertFalse(budget.cutsAt(4));
+        assertTrue(budget.getStats().isComplete());
+        assertTrue(budget.cutsAt(5));
+        assertTrue(budget.cutsAt(5));
+
+        assertEquals("depth", budget.getStats().exhausted);
+        assertEquals(2, budget.getStats().pathsCut);
+        assertTrue(budget.summary().startsWith("Budget: INCOMPLETE (depth budget exhausted)"), budget.summary());
+    }
+
+    @Test
+    public void testTimeBudgetIsCheckedEveryIntervalOfInstructions() throws Exception {
+        RunBudget budget = new RunBudget(1, 0, 0, 0);
+        budget.searchStarted();
+        assertNull(budget.check());
+        Thread.sleep(1_050);
+
+        for (int i = 1; i < RunBudget.CHECK_INTERVAL; i++) {
+            assertNull(budget.instruction());
+        }
+        assertEquals("time", budget.instruction());
+    }
+}
@@ -0,0 +1,72 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RunMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDefaultNameUsesTargetAndMethod() {
+        assertEquals("br.ufpe.cin.witup.jpf.MathJPFDriverSymbolic.run",
+            RunMetrics.defaultName("br.ufpe.cin.witup.jpf.MathJPFDriverSymbolic",
+                new String[]{"br.ufpe.cin.witup.jpf.MathJPFDriverSymbolic.run(sym)"}));
+        assertEquals("app.Driver.debit", RunMetrics.defaultName("app.Driver", new String[]{"app.Account.debit(sym#sym)"}));
+        assertEquals("app.Driver", RunMetrics.defaultName("app.Driver", new String[0]));
+    }
+
+    @Test
+    public void testSolverHistogramIsCumulativeInPrometheusText() {
+        RunMetrics metrics = new RunMetrics(dir, "run", 0);
+        metrics.solverCall(5_000);          // 5 us
+        metrics.solverCall(50_000);         // 50 us
+        metrics.solverCall(20_000_000_000L); // 20 s, beyond the last bound
+
+        String text = RunMetrics.prometheus(metrics.getStats(), 20_000_055_000L);
+
+        assertTrue(text.contains("witup_solver_call_seconds_bucket{run=\"run\",le=\"0.000010\"} 1\n"), text);
+        assertTrue(text.contains("witup_solver_call_seconds_bucket{run=\"run\",le=\"0.000100\"} 2\n"), text);
+        assertTrue(text.contains("witup_solver_call_seconds_bucket{run=\"run\",le=\"10\"} 2\n"), text);
+        assertTrue(text.contains("witup_solver_call_seconds_bucket{run=\"run\",le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("witup_solver_call_seconds_count{run=\"run\"} 3\n"), text);
+        assertTrue(text.contains("# TYPE witup_solver_call_seconds histogram\n"), text);
+    }
+
+    @Test
+    public void testSearchWritesJsonAndPrometheusFiles() throws Exception {
+        RunMetrics metrics = new RunMetrics(dir, "app.Driver.run", 0);
+        metrics.searchStarted();
+        metrics.stateAdvanced(true, 1);
+        metrics.stateAdvanced(true, 3);
+        metrics.stateAdvanced(false, 2);
+        metrics.pcChoicePoint();
+        metrics.newSite();
+        metrics.sampleIfDue(1);
+        metrics.searchFinished(1);
+
+        JsonObject json = JsonParser.parseString(new String(
+            Files.readAllBytes(dir.resolve("app.Driver.run.json")), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(2, json.get("states").getAsLong());
+        assertEquals(3, json.get("transitions").getAsLong());
+        assertEquals(3, json.get("maxDepth").getAsInt());
+        assertEquals(1, json.get("pcChoicePoints").getAsLong());
+        assertEquals(1, json.getAsJsonArray("samples").size());
+        assertTrue(json.get("firstSiteMillis").getAsLong() >= 0);
+        assertTrue(json.get("peakHeapBytes").getAsLong() > 0);
+
+        String prom = new String(Files.readAllBytes(dir.resolve("app.Driver.run.prom")), StandardCharsets.UTF_8);
+        assertTrue(prom.contains("witup_states_total{run=\"app.Driver.run\"} 2\n"), prom);
+        assertTrue(prom.contains("witup_max_depth{run=\"app.Driver.run\"} 3\n"), prom);
+    }
+}
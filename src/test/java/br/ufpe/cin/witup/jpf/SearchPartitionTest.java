@@ -0,0 +1,46 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+
+public class SearchPartitionTest {
+
+    @Test
+    public void testDefaultDepthGivesFourPrefixesPerPartition() {
+        assertEquals(3, SearchPartition.defaultDepth(2));
+        assertEquals(6, SearchPartition.defaultDepth(16));
+        assertEquals(20, SearchPartition.defaultDepth(1 << 20));
+    }
+
+    @Test
+    public void testOwnerIsStableAndCoversAllPartitions() {
+        int count = 8;
+        int[] owned = new int[count];
+        for (int i = 0; i < 64; i++) {
+            int[] prefix = new int[6];
+            for (int bit = 0; bit < 6; bit++) {
+                prefix[bit] = (i >> bit) & 1;
+            }
+            int owner = SearchPartition.owner(prefix, count);
+            assertEquals(owner, SearchPartition.owner(prefix.clone(), count));
+            assertTrue(owner >= 0 && owner < count);
+            owned[owner]++;
+        }
+        for (int n : owned) {
+            assertTrue(n > 0);
+        }
+    }
+
+    @Test
+    public void testFromConfig() {
+        assertNull(SearchPartition.fromConfig(new Config(new String[0])));
+        SearchPartition p = SearchPartition.fromConfig(new Config(new String[] {
+            "+witup.partition.count=4", "+witup.partition.id=3"}));
+        assertEquals(3, p.getStats().id);
+        assertEquals(SearchPartition.defaultDepth(4), p.getStats().depth);
+    }
+}
@@ -0,0 +1,111 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.vm.MethodInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SitePrunerTest {
+
+    private static final String DEBIT = "Account.debit(D)V:13";
+    private static final String CHECK = "Account.check(D)V:20";
+
+    private static Set<String> sites(String... s) {
+        return new HashSet<>(Arrays.asList(s));
+    }
+
+    @Test
+    public void testPrunesStrongerConditionsOnlyWhenEveryReachableSiteIsCovered() {
+        SitePruner pruner = new SitePruner(0, 0, null);
+        pruner.recordThrow(DEBIT, "a < 0 &&\nb < 0");
+
+        Map<String, String> reasons = pruner.check(sites(DEBIT), "b < 0 &&\nx > 5 &&\na < 0", 7);
+        assertEquals("subsumed by a < 0 && b < 0", reasons.get(DEBIT));
+
+        assertNull(pruner.check(sites(DEBIT), "a < 0", 3));
+        assertNull(pruner.check(sites(DEBIT, CHECK), "a < 0 && b < 0", 3));
+        assertNull(pruner.check(null, "a < 0 && b < 0", 3));
+        assertEquals(1, pruner.getStats().pathsPruned);
+        assertEquals(4, pruner.getStats().pathsChecked);
+    }
+
+    @Test
+    public void testDivisionBehindSubsumedThrowKeepsPath() throws Exception {
+        MethodInfo ratio = ClassFileMethods.load(Math.class).get("ratio(II)I");
+        Set<String> reachable = new ThrowDistance().reachableSites(ratio, 0);
+        SitePruner pruner = new SitePruner(0, 0, null);
+        pruner.recordThrow("ratio(II)I:75", "a < 0");
+
+        // a < 0 is subsumed at the athrow, but b == 0 can still divide by zero
+        assertNull(pruner.check(reachable, "a < 0 &&\nb == 0", 2));
+        pruner.recordThrow("ratio(II)I:77", "b == 0");
+        assertNotNull(pruner.check(reachable, "a < 0 &&\nb == 0", 3));
+    }
+
+    @Test
+    public void testKeepsOnlyMinimalConditionsPerSite() {
+        SitePruner pruner = new SitePruner(0, 0, null);
+        pruner.recordThrow(DEBIT, "a < 0 && b < 0 && x > 5");
+        pruner.recordThrow(DEBIT, "a < 0 && b < 0");
+
+        assertNotNull(pruner.check(sites(DEBIT), "a < 0 && b < 0 && y == 1", 4));
+    }
+
+    @Test
+    public void testPathBudgetMarksSiteDone() {
+        SitePruner pruner = new SitePruner(2, 0, null);
+        pruner.recordThrow(DEBIT, "a < 0");
+        assertNull(pruner.check(sites(DEBIT), "a >= 0", 2));
+        pruner.recordThrow(DEBIT, "a >= 0 && b < 0");
+
+        assertEquals(SitePruner.PATH_BUDGET, pruner.check(sites(DEBIT), "a >= 0", 2).get(DEBIT));
+        assertEquals(Collections.singletonMap(SitePruner.PATH_BUDGET, 1L), pruner.getStats().reasons.get(DEBIT));
+    }
+
+    @Test
+    public void testLogsPrunedPaths(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("pruned.ndjson");
+        SitePruner pruner = new SitePruner(0, 0, new NdjsonSink(log, 0));
+        pruner.recordThrow(DEBIT, "a < 0");
+        pruner.check(sites(DEBIT), "a < 0 && b > 1", 9);
+        pruner.close();
+
+        List<String> lines = Files.readAllLines(log);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"depth\":9"));
+        assertTrue(lines.get(0).contains("subsumed by a < 0"));
+    }
+
+    @Test
+    public void testKeepWeakestDropsStrongerConditionsOfTheSameLocation() {
+        SiteTable sites = new SiteTable();
+        for (ExceptionSite s : Arrays.asList(
+                new ExceptionSite("E", "m()", 13, "a < 0 && b < 0 && x > 5"),
+                new ExceptionSite("E", "m()", 13, "a < 0 && b < 0"),
+                new ExceptionSite("E", "m()", 14, "a < 0 && b < 0 && x > 5"),
+                new ExceptionSite("E", "m()", 13, "c == 1"))) {
+            sites.add(s);
+        }
+
+        SitePruner.keepWeakest(sites);
+
+        assertEquals(3, sites.size());
+        for (ExceptionSite s : sites.sites()) {
+            assertTrue(s.getLineNumber() == 14 || !s.getCondition().contains("x > 5"));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SiteStoreTest {
+
+    private static final String IAE = "java.lang.IllegalArgumentException";
+    private static final String RTE = "java.lang.RuntimeException";
+
+    private static Path store(Path dir) throws IOException {
+        SiteStore.Builder builder = new SiteStore.Builder();
+        ExceptionSite debit = new ExceptionSite(RTE, "Account.debit(double)", 12,
+            "value > this.balance" + PathConditionFormatter.AND + "value >= 0");
+        WitnessSolver.Witness w = new WitnessSolver.Witness();
+        w.className = "br.ufpe.cin.witup.jpf.Account";
+        w.method = "debit";
+        w.arguments.add("1.0");
+        debit.setWitness(w);
+        builder.add("Account.jpf", debit);
+        builder.add("Account.jpf", new ExceptionSite(RTE, "Account.debit(double)", 12,
+            "value > this.balance" + PathConditionFormatter.AND + "value >= 0"));
+        builder.add("Account.jpf", new ExceptionSite(IAE, "Account(double)", 7, "balance < 0"));
+        builder.add("AccountX.jpf", new ExceptionSite(IAE, "AccountX.open()", 3, ""));
+        builder.add("Math.jpf", new ExceptionSite(IAE, "Math.sqrt(int)", 13, "value <= 0"));
+        assertEquals(4, builder.size());
+        Path file = dir.resolve("sites" + SiteStore.EXTENSION);
+        builder.write(file);
+        return file;
+    }
+
+    @Test
+    public void testIndexedLookupsAndRoundTrip(@TempDir Path dir) throws IOException {
+        try (SiteStore store = SiteStore.open(store(dir))) {
+            assertEquals(4, store.size());
+            assertEquals(Arrays.asList(0, 1), store.query("Account", null, null));
+            assertEquals(Collections.singletonList(1), store.query("Account", null, IAE));
+            assertEquals(Arrays.asList(1, 2, 3), store.byException(IAE));
+            assertEquals(Collections.singletonList(3), store.byMethod("Math.sqrt(int)"));
+            assertEquals(Collections.emptyList(), store.query(null, "Math.sqrt(long)", null));
+
+            SiteStore.StoredSite debit = store.site(0);
+            assertEquals("Account.jpf", debit.source);
+            assertEquals("value > this.balance" + PathConditionFormatter.AND + "value >= 0", debit.site.getCondition());
+            assertEquals(2, debit.site.getHits());
+            assertEquals(12, debit.site.getLineNumber());
+            assertEquals("1.0", debit.site.getWitness().arguments.get(0));
+            assertEquals("", store.site(2).site.getCondition());
+            assertNull(store.site(2).site.getSummaryOf());
+        }
+    }
+
+    @Test
+    public void testMergeReportsAndStoresThenExportJson(@TempDir Path dir) throws IOException {
+        BatchRunner.ConfigResult result = new BatchRunner.ConfigResult();
+        result.status = "ok";
+        result.sites.add(new ExceptionSite(RTE, "Math.sum(int, int)", 30, "a + b < 0"));
+        Map<String, BatchRunner.ConfigResult> report = new LinkedHashMap<>();
+        report.put("Math.jpf", result);
+        Path reportFile = dir.resolve("report.json");
+        BatchRunner.writeReport(reportFile, report);
+
+        SiteStore.Builder builder = new SiteStore.Builder();
+        SiteStore.read(store(dir), builder);
+        SiteStore.read(reportFile, builder);
+        Path merged = dir.resolve("merged" + SiteStore.EXTENSION);
+        builder.write(merged);
+
+        try (SiteStore store = SiteStore.open(merged)) {
+            assertEquals(5, store.size());
+            assertEquals("Math.jpf", store.site(4).source);
+            StringWriter json = new StringWriter();
+            store.export(json, false);
+            Path exported = dir.resolve("sites.json");
+            Files.write(exported, json.toString().getBytes(StandardCharsets.UTF_8));
+
+            List<ExceptionSite> sites = TestGenerator.readSites(exported);
+            assertEquals(5, sites.size());
+            assertEquals("a + b < 0", sites.get(4).getCondition());
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("x" + SiteStore.EXTENSION);
+        Files.write(file, "not a store at all, just text".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> SiteStore.open(file));
+    }
+}
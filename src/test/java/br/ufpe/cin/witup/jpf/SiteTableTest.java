@@ -0,0 +1,72 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.vm.MethodInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class SiteTableTest {
+
+    @Test
+    public void testRepeatedThrowsOnlyCountHits() {
+        SiteTable table = new SiteTable();
+        MethodInfo debit = new MethodInfo("debit", "(D)V", 0);
+        int exception = table.intern("java.lang.RuntimeException");
+        int method = table.method(debit);
+
+        int first = table.add(exception, method, 12, "a < 0 &&\nb < 0", 1);
+        assertEquals(0, first);
+        assertEquals(-1, table.add(exception, table.method(debit), 12, "b < 0 &&\na < 0", 1));
+        assertEquals(-1, table.add(exception, method, 12, "a < 0 &&\nb < 0", 3));
+        assertEquals(1, table.add(exception, method, 13, "a < 0 &&\nb < 0", 1));
+        assertEquals(method, table.method(debit));
+
+        List<ExceptionSite> sites = table.sites();
+        assertEquals(2, table.size());
+        assertEquals(5, sites.get(0).getHits());
+        assertEquals("a < 0 &&\nb < 0", sites.get(0).getCondition());
+        assertEquals("[VM].debit(double)", sites.get(0).getMethodSignature());
+        assertSame(sites.get(0).getThrownException(), sites.get(1).getThrownException());
+        assertSame(sites, table.sites());
+    }
+
+    @Test
+    public void testGrowsAndKeepsAttributesOfSiteObjects() {
+        SiteTable table = new SiteTable();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, table.add(table.intern("E"), table.intern("m(int)"), i % 100, "x == " + (i / 100), 1));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(table.add(table.intern("E"), table.intern("m(int)"), i % 100, "x == " + (i / 100), 1) < 0);
+        }
+        ExceptionSite summarized = new ExceptionSite("E", "m(int)", -1, null);
+        summarized.setSummaryOf("C.m(I)V");
+        int r = table.add(summarized);
+
+        assertEquals(10_001, table.size());
+        assertEquals("C.m(I)V", table.site(r).getSummaryOf());
+        assertNull(table.site(r).getCondition());
+        assertEquals(2, table.site(0).getHits());
+    }
+
+    @Test
+    public void testRemoveIfDropsSitesFromLookups() {
+        SiteTable table = new SiteTable();
+        table.add(new ExceptionSite("E", "m()", 1, "a < 0"));
+        table.add(new ExceptionSite("E", "m()", 2, "a < 0"));
+
+        table.removeIf(s -> s.getLineNumber() == 1);
+
+        assertEquals(1, table.size());
+        assertEquals(2, table.sites().get(0).getLineNumber());
+        assertEquals(1, table.records()[0]);
+        assertTrue(table.add(new ExceptionSite("E", "m()", 1, "a < 0")) >= 0);
+        assertEquals(2, table.size());
+    }
+}
@@ -0,0 +1,117 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+import gov.nasa.jpf.symbc.string.StringComparator;
+import gov.nasa.jpf.symbc.string.StringSymbolic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SolverCacheTest {
+
+    /** value > balance && value >= 0, with the variables named as given and conjuncts in the given order. */
+    private static PathCondition debit(String value, String balance, boolean swap) {
+        SymbolicReal v = new SymbolicReal(value, -1000, 1000);
+        SymbolicReal b = new SymbolicReal(balance, -1000, 1000);
+        RealConstraint gt = new RealConstraint(v, Comparator.GT, b);
+        RealConstraint ge = new RealConstraint(v, Comparator.GE, new RealConstant(0.0));
+        PathCondition pc = new PathCondition();
+        pc.header = swap ? ge : gt;
+        pc.header.and = swap ? gt : ge;
+        return pc;
+    }
+
+    @Test
+    public void testAlphaEquivalentQueriesShareAKey() {
+        SolverCache.Query a = SolverCache.canonicalize(debit("value_2_SYMREAL", "balance_1_SYMREAL", false));
+        SolverCache.Query b = SolverCache.canonicalize(debit("x_7_SYMREAL", "y_8_SYMREAL", true));
+
+        assertEquals(a.key, b.key);
+        assertEquals("x_7_SYMREAL", b.variables.get(a.variables.indexOf("value_2_SYMREAL")));
+    }
+
+    @Test
+    public void testDomainsArePartOfTheKey() {
+        PathCondition narrow = new PathCondition();
+        narrow.header = new LinearIntegerConstraint(new SymbolicInteger("x_1_SYMINT", 0, 10), Comparator.GT,
+            new IntegerConstant(5));
+        PathCondition wide = new PathCondition();
+        wide.header = new LinearIntegerConstraint(new SymbolicInteger("x_1_SYMINT", 0, 100), Comparator.GT,
+            new IntegerConstant(5));
+
+        assertNotEquals(SolverCache.canonicalize(narrow).key, SolverCache.canonicalize(wide).key);
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        SolverCache cache = new SolverCache(100, null);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertTrue(cache.isSatisfiable(debit("value_2_SYMREAL", "balance_1_SYMREAL", false), pc -> calls.incrementAndGet() > 0));
+        assertTrue(cache.isSatisfiable(debit("a_3_SYMREAL", "b_4_SYMREAL", true), pc -> calls.incrementAndGet() > 0));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getStats().hits);
+        assertEquals(1, cache.getStats().misses);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        SolverCache cache = new SolverCache(1, null);
+        PathCondition first = debit("a_1_SYMREAL", "b_2_SYMREAL", false);
+        PathCondition second = new PathCondition();
+        second.header = new LinearIntegerConstraint(new SymbolicInteger("x_1_SYMINT", 0, 10), Comparator.LT,
+            new IntegerConstant(0));
+
+        cache.isSatisfiable(first, pc -> true);
+        cache.isSatisfiable(second, pc -> false);
+        cache.isSatisfiable(first, pc -> true);
+
+        assertEquals(3, cache.getStats().misses);
+        assertEquals(1, cache.getStats().entries);
+    }
+
+    @Test
+    public void testModelsArePersistedAndRenamed(@TempDir Path dir) {
+        Path file = dir.resolve("solver.ndjson");
+        SolverCache cache = new SolverCache(100, file);
+        Map<String, Object> model = cache.solve(debit("value_2_SYMREAL", "balance_1_SYMREAL", false),
+            pc -> Collections.<String, Object>singletonMap("value_2_SYMREAL", 5.0));
+        assertEquals(5.0, model.get("value_2_SYMREAL"));
+        cache.save();
+
+        SolverCache reloaded = new SolverCache(100, file);
+        Map<String, Object> renamed = reloaded.solve(debit("x_7_SYMREAL", "y_8_SYMREAL", false), pc -> null);
+
+        assertEquals(5.0, renamed.get("x_7_SYMREAL"));
+        assertEquals(1, reloaded.getStats().hits);
+    }
+
+    @Test
+    public void testUnsupportedConstraintsBypassTheCache() {
+        PathCondition pc = debit("a_1_SYMREAL", "b_2_SYMREAL", false);
+        pc.spc._addDet(StringComparator.EQUALS, new StringSymbolic("s_3_SYMSTRING"), new StringSymbolic("t_4_SYMSTRING"));
+
+        assertNull(SolverCache.canonicalize(pc));
+        SolverCache cache = new SolverCache(100, null);
+        assertFalse(cache.isSatisfiable(pc, p -> false));
+        assertEquals(1, cache.getStats().uncacheable);
+    }
+}
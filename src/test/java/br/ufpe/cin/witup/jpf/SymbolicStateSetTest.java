@@ -0,0 +1,43 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SymbolicStateSetTest {
+
+    private static Set<String> pc(String... conjuncts) {
+        return new HashSet<>(Arrays.asList(conjuncts));
+    }
+
+    @Test
+    public void testRevisitNeedsSameFingerprintAndPathCondition() {
+        SymbolicStateSet states = new SymbolicStateSet(false);
+
+        assertEquals(0, states.add(1L, pc("a < 0")));
+        assertEquals(1, states.add(2L, pc("a < 0")));
+        assertEquals(2, states.add(1L, pc("a >= 0")));
+        assertEquals(0, states.add(1L, pc("a < 0")));
+        assertEquals(3, states.add(1L, pc("a < 0", "b > 1")));
+
+        assertEquals(4, states.size());
+        assertEquals(1, states.getStats().revisits);
+        assertEquals(0, states.getStats().subsumed);
+    }
+
+    @Test
+    public void testSubsumptionMatchesStrongerPathConditions() {
+        SymbolicStateSet states = new SymbolicStateSet(true);
+
+        assertEquals(0, states.add(1L, pc("a < 0")));
+        assertEquals(0, states.add(1L, pc("a < 0", "b > 1")));
+        assertEquals(1, states.add(1L, pc("b > 1")));
+
+        assertEquals(2, states.size());
+        assertEquals(1, states.getStats().subsumed);
+    }
+}
@@ -0,0 +1,96 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestGeneratorTest {
+
+    private static ExceptionSite site(String className, String method, boolean isStatic, String type, String argument,
+                                      String field, String fieldValue) {
+        WitnessSolver.Witness w = new WitnessSolver.Witness();
+        w.className = className;
+        w.method = method;
+        w.isStatic = isStatic;
+        w.parameterTypes.add(type);
+        w.arguments.add(argument);
+        if (field != null) {
+            w.fields.put(field, fieldValue);
+        }
+        ExceptionSite site = new ExceptionSite("java.lang.RuntimeException", method + "(" + type + ")", 12, "x > 0 &&\ny < 0");
+        site.setWitness(w);
+        return site;
+    }
+
+    @Test
+    public void testGeneratedTestsCompileAndPass(@TempDir Path dir) throws Exception {
+        List<ExceptionSite> sites = Arrays.asList(
+            site("br.ufpe.cin.witup.jpf.Account", "debit", false, "double", "1.0", "balance", "0.0"),
+            site("br.ufpe.cin.witup.jpf.Math", "sqrt", true, "int", "0", null, null),
+            site("br.ufpe.cin.witup.jpf.Math", "sqrt", true, "int", "-1", null, null),
+            site("br.ufpe.cin.witup.jpf.Math", "sqrt", true, "int", "0", null, null),
+            new ExceptionSite("E", "m(int)", 3, "x < 0"));
+        TestGenerator generator = new TestGenerator(getClass().getClassLoader());
+        List<Path> written = generator.generate(sites, dir.resolve("src"));
+
+        assertEquals(2, written.size());
+        assertEquals(3, generator.getStats().tests);
+        assertEquals(1, generator.getStats().duplicates);
+        assertEquals(1, generator.getStats().withoutWitness);
+        String account = new String(Files.readAllBytes(written.get(0)), StandardCharsets.UTF_8);
+        assertTrue(account.contains("public class AccountWitnessTest {"));
+        assertTrue(account.contains("        Account receiver = new Account(0.0);\n"
+            + "        setField(receiver, \"balance\", 0.0);\n"
+            + "        assertThrows(RuntimeException.class, () -> receiver.debit(1.0));\n"));
+        String math = new String(Files.readAllBytes(written.get(1)), StandardCharsets.UTF_8);
+        assertTrue(math.contains("public void testSqrtThrowsRuntimeException_2() {"));
+        assertTrue(math.contains("        //   x > 0 &&\n        //   y < 0\n"));
+
+        List<Path> classpath = Arrays.asList(location(Test.class), location(Account.class));
+        Path classes = dir.resolve("classes");
+        assertTrue(DriverGenerator.compile(written, classpath, classes));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            for (String name : Arrays.asList("br.ufpe.cin.witup.jpf.AccountWitnessTest", "br.ufpe.cin.witup.jpf.MathWitnessTest")) {
+                Class<?> test = loader.loadClass(name);
+                for (Method m : test.getDeclaredMethods()) {
+                    if (m.isAnnotationPresent(Test.class)) {
+                        m.invoke(test.getDeclaredConstructor().newInstance());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadSitesFromBatchReport(@TempDir Path dir) throws Exception {
+        BatchRunner.ConfigResult result = new BatchRunner.ConfigResult();
+        result.sites.add(site("br.ufpe.cin.witup.jpf.Math", "sqrt", true, "int", "0", null, null));
+        Path report = dir.resolve("report.json");
+        BatchRunner.writeReport(report, Collections.singletonMap("Math.jpf", result));
+
+        List<ExceptionSite> sites = TestGenerator.readSites(report);
+
+        assertEquals(1, sites.size());
+        assertEquals(Collections.singletonList("0"), sites.get(0).getWitness().arguments);
+        assertEquals("Math", TestGenerator.sourceName("br.ufpe.cin.witup.jpf.Math", "br.ufpe.cin.witup.jpf"));
+        assertEquals("a.B.C", TestGenerator.sourceName("a.B$C", "x"));
+    }
+
+    private static Path location(Class<?> type) throws Exception {
+        return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+}
@@ -0,0 +1,144 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import gov.nasa.jpf.vm.MethodInfo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ThrowDistanceTest {
+
+    interface Check {
+        void check(int x);
+    }
+
+    static class Lenient implements Check {
+        @Override
+        public void check(int x) {
+        }
+
+        final void checkExactly(int x) {
+            if (x < 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    static class Strict extends Lenient {
+        @Override
+        public void check(int x) {
+            if (x < 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    static class Callers {
+        static void viaInterface(Check c, int x) {
+            c.check(x);
+        }
+
+        static void viaOverridable(Lenient l, int x) {
+            l.check(x);
+        }
+
+        static void viaFinal(Lenient l, int x) {
+            l.checkExactly(x);
+        }
+    }
+
+    private static final int U = ThrowDistance.UNREACHABLE;
+
+    /**
+     * 0: if -> 3 | 1
+     * 1: goto 5
+     * 2: (dead)
+     * 3: new
+     * 4: athrow
+     * 5: return
+     */
+    private static final int[][] DEBIT = {{3, 1}, {5}, {3}, {4}, {}, {}};
+
+    @Test
+    public void testDistanceFollowsTheShorterBranch() {
+        int[] base = {U, U, U, U, 0, U};
+
+        assertArrayEquals(new int[] {2, U, 2, 1, 0, U}, ThrowDistance.shortestDistances(DEBIT, base));
+    }
+
+    @Test
+    public void testCallCostIsAddedAtTheCallSite() {
+        // instruction 1 calls a method whose entry is 3 steps from a throw
+        int[] base = {U, 4, U, U, 0, U};
+
+        assertArrayEquals(new int[] {2, 4, 2, 1, 0, U}, ThrowDistance.shortestDistances(DEBIT, base));
+        base[4] = U;
+        assertArrayEquals(new int[] {5, 4, U, U, U, U}, ThrowDistance.shortestDistances(DEBIT, base));
+    }
+
+    @Test
+    public void testReachableThrowsAreUnionedBackwards() {
+        BitSet[] own = new BitSet[DEBIT.length];
+        for (int i = 0; i < own.length; i++) {
+            own[i] = new BitSet();
+        }
+        own[4].set(1);
+        own[1].set(2);
+
+        BitSet[] reach = ThrowDistance.propagate(DEBIT, own);
+
+        assertEquals("{1, 2}", reach[0].toString());
+        assertEquals("{2}", reach[1].toString());
+        assertEquals("{}", reach[5].toString());
+    }
+
+    @Test
+    public void testImplicitThrowsAreSites() throws Exception {
+        Map<String, MethodInfo> math = ClassFileMethods.load(Math.class);
+        MethodInfo ratio = math.get("ratio(II)I");
+        ThrowDistance distance = new ThrowDistance();
+
+        // the athrow for a < 0 and the division by b; building the exception is not a library risk
+        assertEquals(new HashSet<>(Arrays.asList("ratio(II)I:75", "ratio(II)I:77")),
+            distance.reachableSites(ratio, 0));
+        MethodInfo nested = math.get("requireBothNonNegativeNested(II)V");
+        assertEquals(new HashSet<>(Arrays.asList("requireBothNonNegativeNested(II)V:59")),
+            distance.reachableSites(nested, 0));
+    }
+
+    @Test
+    public void testLibraryCallsMakeSitesUnknown() throws Exception {
+        MethodInfo sqrt = ClassFileMethods.load(Math.class).get("sqrt(I)D");
+
+        // java.lang.Math.sqrt is not analysed
+        assertNull(new ThrowDistance().reachableSites(sqrt, 0));
+    }
+
+    @Test
+    public void testCallsThatCanDispatchElsewhereMakeSitesUnknown() throws Exception {
+        Map<String, MethodInfo> methods = new HashMap<>();
+        for (Class<?> cls : Arrays.asList(Check.class, Lenient.class, Strict.class)) {
+            ClassFileMethods.load(cls).forEach((name, mi) -> methods.put(cls.getName() + "." + name, mi));
+        }
+        Map<String, MethodInfo> callers = ClassFileMethods.load(Callers.class);
+        ThrowDistance distance = new ThrowDistance(
+            call -> methods.get(call.getInvokedMethodClassName() + "." + call.getInvokedMethodName()));
+
+        String viaFinal = "viaFinal(Lbr/ufpe/cin/witup/jpf/ThrowDistanceTest$Lenient;I)V";
+
+        // Check.check has no code, and Lenient.check is overridden by a throwing Strict.check
+        assertNull(distance.reachableSites(callers.get("viaInterface(Lbr/ufpe/cin/witup/jpf/ThrowDistanceTest$Check;I)V"), 0));
+        assertNull(distance.reachableSites(callers.get("viaOverridable(Lbr/ufpe/cin/witup/jpf/ThrowDistanceTest$Lenient;I)V"), 0));
+        // a final method is the only possible target: its throw plus the call on a null receiver
+        assertEquals(new HashSet<>(Arrays.asList("checkExactly(I)V:30", viaFinal + ":54")),
+            distance.reachableSites(callers.get(viaFinal), 0));
+    }
+}
@@ -0,0 +1,50 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.nasa.jpf.Config;
+import org.junit.jupiter.api.Test;
+
+public class ThrowFilterTest {
+
+    @Test
+    public void testLongestPrefixWins() {
+        ThrowFilter.PrefixTrie trie = new ThrowFilter.PrefixTrie();
+        trie.add("java.", false);
+        trie.add("java.util.Scanner", true);
+
+        assertFalse(trie.accepts("java.lang.Integer"));
+        assertTrue(trie.accepts("java.util.Scanner"));
+    }
+
+    @Test
+    public void testExcludesAloneKeepUnmatchedNames() {
+        ThrowFilter.PrefixTrie trie = new ThrowFilter.PrefixTrie();
+        trie.add("java.", false);
+        trie.add("sun.", false);
+
+        assertFalse(trie.accepts("sun.misc.Unsafe"));
+        assertTrue(trie.accepts("br.ufpe.cin.witup.jpf.Account"));
+    }
+
+    @Test
+    public void testIncludesRejectUnmatchedNames() {
+        ThrowFilter.PrefixTrie trie = new ThrowFilter.PrefixTrie();
+        trie.add("br.ufpe.", true);
+        trie.add("br.ufpe.cin.witup.jpf.Math", false);
+
+        assertTrue(trie.accepts("br.ufpe.cin.witup.jpf.Account"));
+        assertFalse(trie.accepts("br.ufpe.cin.witup.jpf.MathJPFDriverSymbolic"));
+        assertFalse(trie.accepts("java.lang.String"));
+    }
+
+    @Test
+    public void testFromConfigIsOffWithoutFilterOptions() {
+        assertNull(ThrowFilter.fromConfig(new Config(new String[0])));
+        assertNotNull(ThrowFilter.fromConfig(new Config(new String[]{"+witup.filter.exclude=java.,sun."})));
+        assertNotNull(ThrowFilter.fromConfig(new Config(new String[]{"+witup.filter.escaping_only=true"})));
+    }
+}
@@ -0,0 +1,120 @@
+package br.ufpe.cin.witup.jpf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import br.ufpe.cin.witup.jpf.ExceptionConditionListener.ExceptionSite;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class WitnessSolverTest {
+
+    @Test
+    public void testLiteralsPerType() {
+        assertEquals("1.5", WitnessSolver.literal("double", 1.5));
+        assertEquals("Double.NEGATIVE_INFINITY", WitnessSolver.literal("double", Double.NEGATIVE_INFINITY));
+        assertEquals("2.0f", WitnessSolver.literal("float", 2L));
+        assertEquals("-3", WitnessSolver.literal("int", -3L));
+        assertEquals("7", WitnessSolver.literal("int", 7.0));
+        assertEquals("9L", WitnessSolver.literal("long", 9L));
+        assertEquals("(byte) -1", WitnessSolver.literal("byte", -1L));
+        assertEquals("true", WitnessSolver.literal("boolean", 1L));
+        assertEquals("0.0", WitnessSolver.literal("double", null));
+        assertEquals("false", WitnessSolver.literal("boolean", null));
+    }
+
+    @Test
+    public void testSolveAllRendersModelsWithDefaultsForUnconstrainedInputs() {
+        WitnessSolver solver = new WitnessSolver(new String[]{"br.ufpe.cin.witup.jpf.Account.transfer(con#sym)"});
+        WitnessSolver.Entry entry = new WitnessSolver.Entry("br.ufpe.cin.witup.jpf.Account", "transfer", false);
+        entry.parameter("br.ufpe.cin.witup.jpf.Account", null, "null");
+        entry.parameter("double", "value_2_SYMREAL", null);
+        entry.field("balance", "double", "balance_1_SYMREAL");
+        solver.entered(entry);
+        solver.entered(new WitnessSolver.Entry("Other", "ignored", true));
+
+        SiteTable sites = new SiteTable();
+        int site = sites.add(new ExceptionSite("java.lang.RuntimeException", "Account.debit(double)", 12, "value > this.balance"));
+        int unsolved = sites.add(new ExceptionSite("java.lang.RuntimeException", "Account.debit(double)", 12, "false"));
+        PathCondition pc = new PathCondition();
+        PathCondition unsat = new PathCondition();
+        solver.add(site, pc);
+        solver.add(unsolved, unsat);
+        Map<String, Object> model = new HashMap<>();
+        model.put("value_2_SYMREAL", 1.0);
+        solver.solveAll(sites, p -> p == pc ? model : null);
+
+        WitnessSolver.Witness w = sites.sites().get(0).getWitness();
+        assertEquals("transfer", w.method);
+        assertEquals(Arrays.asList("null", "1.0"), w.arguments);
+        assertEquals(Collections.singletonMap("balance", "0.0"), w.fields);
+        assertNull(sites.sites().get(1).getWitness());
+        assertEquals(1, solver.getStats().solved);
+        assertEquals(1, solver.getStats().unsolved);
+    }
+
+    @Test
+    public void testWitnessSetsConcreteReceiverFields() {
+        WitnessSolver.Entry entry = new WitnessSolver.Entry("br.ufpe.cin.witup.jpf.Account", "debit", false);
+        entry.parameter("double", "value_2_SYMREAL", null);
+        entry.concreteField("owner", "java.lang.String", "\"ana\"");
+        entry.field("balance", "double", "balance_1_SYMREAL");
+        entry.concreteField("limit", "int", "-50");
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("balance_1_SYMREAL", 10.0);
+        WitnessSolver.Witness w = entry.witness(model);
+
+        // in field order, so the generated test builds the receiver that was analyzed
+        assertEquals(Arrays.asList("owner", "balance", "limit"), new ArrayList<>(w.fields.keySet()));
+        assertEquals(Arrays.asList("\"ana\"", "10.0", "-50"), new ArrayList<>(w.fields.values()));
+    }
+
+    @Test
+    public void testHandledSitesYieldNoWitnesses() {
+        WitnessSolver solver = new WitnessSolver(new String[]{"br.ufpe.cin.witup.jpf.Math.sqrt(sym)"});
+        WitnessSolver.Entry entry = new WitnessSolver.Entry("br.ufpe.cin.witup.jpf.Math", "sqrt", true);
+        entry.parameter("int", "value_1_SYMINT", null);
+        solver.entered(entry);
+        SiteTable sites = new SiteTable();
+        int escaping = sites.add(new ExceptionSite("java.lang.RuntimeException", "Math.sqrt(int)", 13, "value <= 0"));
+        int caught = sites.add(new ExceptionSite("java.lang.ArithmeticException", "Math.sqrt(int)", 16, "value > 0"));
+        solver.add(escaping, new PathCondition());
+        solver.addHandled(caught);
+
+        solver.solveAll(sites, p -> Collections.singletonMap("value_1_SYMINT", 0L));
+
+        assertEquals(Collections.singletonList("0"), sites.sites().get(0).getWitness().arguments);
+        assertNull(sites.sites().get(1).getWitness());
+        assertEquals(1, solver.getStats().solved);
+        assertEquals(1, solver.getStats().handled);
+    }
+
+    @Test
+    public void testUnsupportedEntriesYieldNoWitnesses() {
+        WitnessSolver solver = new WitnessSolver(new String[0]);
+        SiteTable sites = new SiteTable();
+        int site = sites.add(new ExceptionSite("E", "m(int)", 3, "x < 0"));
+        solver.add(site, new PathCondition());
+        solver.solveAll(sites, p -> Collections.emptyMap());
+        assertNull(sites.sites().get(0).getWitness());
+
+        WitnessSolver.Entry entry = new WitnessSolver.Entry("C", "m", true);
+        entry.parameter("java.lang.String", null, null);
+        entry.unsupported = "symbolic java.lang.String argument";
+        solver.entered(entry);
+        solver.add(site, new PathCondition());
+        solver.solveAll(sites, p -> Collections.emptyMap());
+
+        assertNull(sites.sites().get(0).getWitness());
+        assertEquals(2, solver.getStats().unsupported);
+        assertEquals("Witnesses: 0 solved, 0 unsolved, 2 unsupported (symbolic java.lang.String argument), 0 handled, 0 ms",
+            solver.summary().replaceAll("\\d+ ms$", "0 ms"));
+    }
+}
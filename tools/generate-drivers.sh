@@ -0,0 +1,34 @@
+#!/bin/bash
+# Generates symbolic drivers and .jpf configs for the public methods of compiled classes
+# (see br.ufpe.cin.witup.jpf.DriverGenerator).
+# Usage: ./tools/generate-drivers.sh [-o dir] [--include prefix]... [--exclude prefix]... [--no-compile]
+#                                    [<classes dir | jar>...] [+key=value ...]
+# Examples:
+#   ./tools/generate-drivers.sh                                          # target/classes
+#   ./tools/generate-drivers.sh --include com.acme. lib/acme.jar +symbolic.max_int=100
+#   ./tools/run-jpf-parallel.sh target/witup/generated/drivers.jsonl     # analyze them all
+# Output (default target/witup/generated): src/, classes/, jpf/ and the drivers.jsonl manifest.
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+# Default input: the project's compiled classes
+HAS_INPUT=0
+PREV=""
+for a in "$@"; do
+  case "$PREV" in
+    -o|--output|--include|--exclude|--bundled) PREV="$a"; continue ;;
+  esac
+  case "$a" in
+    +*|-*) ;;
+    *) HAS_INPUT=1 ;;
+  esac
+  PREV="$a"
+done
+if [ "$HAS_INPUT" = 0 ]; then
+  set -- "$@" "target/classes"
+fi
+
+exec java -cp "$CP" br.ufpe.cin.witup.jpf.DriverGenerator "$@"
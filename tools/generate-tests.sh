@@ -0,0 +1,15 @@
+#!/bin/bash
+# Writes JUnit 5 regression tests from the exception witnesses of a report
+# (see br.ufpe.cin.witup.jpf.TestGenerator; runs must have witup.witness=true).
+# Usage: ./tools/generate-tests.sh [-o dir] [--classpath path]... <batch report | sites .json | .jsonl>...
+# Examples:
+#   ./tools/run-jpf-batch.sh +witup.witness=true                       # target/witup/batch-report.json
+#   ./tools/generate-tests.sh -o src/test/java target/witup/batch-report.json
+# Default output: target/witup/generated-tests; default classpath: target/classes.
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+exec java -cp "$CP" br.ufpe.cin.witup.jpf.TestGenerator "$@"
@@ -0,0 +1,50 @@
+#!/bin/bash
+# Shared environment for the JPF launch scripts; source it, do not execute it.
+# Sets PROJECT_ROOT, LIB_DIR and CP (RunJPF launcher + jpf + symbc + solver libs + project classes + gson),
+# selects Java 8 and adds native solver libs when available.
+# CACHE_ARGS holds the +witup.cache.dir override for the analysis cache: WITUP_CACHE_DIR picks the
+# directory (default target/witup/cache), WITUP_CACHE=0 turns caching off.
+
+PROJECT_ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+LIB_DIR="$PROJECT_ROOT/tools/jpf/lib"
+
+if [ ! -f "$LIB_DIR/jpf.jar" ]; then
+  echo "JPF jars not found. Run: ./tools/copy-jpf.sh"
+  exit 1
+fi
+
+CP="$LIB_DIR/RunJPF.jar"
+CP="$CP:$LIB_DIR/jpf.jar"
+CP="$CP:$LIB_DIR/jpf-annotations.jar"
+CP="$CP:$LIB_DIR/jpf-symbc.jar"
+CP="$CP:$LIB_DIR/choco-1_2_04.jar"
+CP="$CP:$LIB_DIR/choco-solver-2.1.1-20100709.142532-2.jar"
+CP="$CP:$LIB_DIR/automaton.jar"
+CP="$CP:$LIB_DIR/string.jar"
+CP="$CP:$LIB_DIR/solver.jar"
+CP="$CP:$LIB_DIR/commons-lang-2.4.jar"
+CP="$CP:$LIB_DIR/commons-math-1.2.jar"
+CP="$CP:$PROJECT_ROOT/target/classes"
+CP="$CP:$PROJECT_ROOT/target/test-classes"
+CP="$CP:${HOME}/.m2/repository/com/google/code/gson/gson/2.10.1/gson-2.10.1.jar"
+
+# Use Java 8 (JPF requires it). Prefer JAVA_HOME from nix develop; else SDKMAN if available
+if [ -z "$JAVA_HOME" ]; then
+  SDK_JAVA8="$HOME/.sdkman/candidates/java/8.0.422-amzn"
+  if [ -d "$SDK_JAVA8" ]; then
+    export JAVA_HOME="$SDK_JAVA8"
+    export PATH="$JAVA_HOME/bin:$PATH"
+  fi
+fi
+
+# Native libs for Choco (macOS)
+if [ -d "$PROJECT_ROOT/../jpf-symbc/lib" ]; then
+  export DYLD_LIBRARY_PATH="${DYLD_LIBRARY_PATH:+$DYLD_LIBRARY_PATH:}$PROJECT_ROOT/../jpf-symbc/lib"
+  export LD_LIBRARY_PATH="${LD_LIBRARY_PATH:+$LD_LIBRARY_PATH:}$PROJECT_ROOT/../jpf-symbc/lib"
+fi
+
+# Analysis cache (see br.ufpe.cin.witup.jpf.AnalysisCache)
+CACHE_ARGS=()
+if [ "${WITUP_CACHE:-1}" != 0 ]; then
+  CACHE_ARGS=("+witup.cache.dir=${WITUP_CACHE_DIR:-target/witup/cache}")
+fi
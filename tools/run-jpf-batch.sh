@@ -0,0 +1,30 @@
+#!/bin/bash
+# Runs many JPF configs back to back in one JVM (see br.ufpe.cin.witup.jpf.BatchRunner).
+# Usage: ./tools/run-jpf-batch.sh [-o report.json] [--check-state-matching] [<dir | manifest.jsonl | config.jpf>...] [+key=value ...]
+# Examples:
+#   ./tools/run-jpf-batch.sh                                   # all configs in src/test/resources/jpf/
+#   ./tools/run-jpf-batch.sh -o target/witup/ci.json drivers.jsonl
+# Per-config results go to the JSON report (default target/witup/batch-report.json).
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+# Default input: every config in src/test/resources/jpf/
+HAS_INPUT=0
+PREV=""
+for a in "$@"; do
+  case "$a" in
+    +*) ;;
+    -o|--output) ;;
+    --check-state-matching) ;;
+    *) [ "$PREV" != "-o" ] && [ "$PREV" != "--output" ] && HAS_INPUT=1 ;;
+  esac
+  PREV="$a"
+done
+if [ "$HAS_INPUT" = 0 ]; then
+  set -- "$@" "src/test/resources/jpf"
+fi
+
+exec java -Xmx${JPF_XMX:-1024m} -cp "$CP" br.ufpe.cin.witup.jpf.BatchRunner "$@" "${CACHE_ARGS[@]}"
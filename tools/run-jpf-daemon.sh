@@ -0,0 +1,17 @@
+#!/bin/bash
+# Serves JSONL analysis requests from warm worker JVMs (see br.ufpe.cin.witup.jpf.AnalysisDaemon).
+# Usage: ./tools/run-jpf-daemon.sh [--port n] [-j workers] [--queue n] [--recycle runs] [--timeout seconds]
+#                                  [--xmx 1024m] [--base config.jpf] [+key=value ...]
+# Examples:
+#   echo '{"id":"r1","config":"src/test/resources/jpf/AccountTestSymbolic.jpf"}' | ./tools/run-jpf-daemon.sh
+#   ./tools/run-jpf-daemon.sh --port 7878 -j 4 --recycle 100 --timeout 600 &
+# Without --port, requests come from stdin and answers go to stdout; the daemon exits when stdin ends.
+# With --port, each request must carry "token" with the contents of target/witup/daemon/token.
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+# The coordinator only queues requests; each worker gets its own -Xmx via --xmx.
+exec java -Xmx256m -cp "$CP" br.ufpe.cin.witup.jpf.AnalysisDaemon "$@" "${CACHE_ARGS[@]}"
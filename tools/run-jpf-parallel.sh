@@ -0,0 +1,34 @@
+#!/bin/bash
+# Runs JPF configs in parallel, one worker JVM per config (see br.ufpe.cin.witup.jpf.ParallelRunner).
+# Usage: ./tools/run-jpf-parallel.sh [-j jobs] [--xmx 1024m] [--timeout seconds] [--partitions n] [-o report.json]
+#                                    [<dir | manifest.jsonl | config.jpf>...] [+key=value ...]
+# Examples:
+#   ./tools/run-jpf-parallel.sh                                # all configs, one worker per core
+#   ./tools/run-jpf-parallel.sh -j 32 --xmx 2g --timeout 900 drivers.jsonl
+#   ./tools/run-jpf-parallel.sh --partitions 16 AccountTestSymbolic.jpf   # split one method 16 ways
+# The merged report (default target/witup/parallel-report.json) is keyed by config and method signature.
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+# Default input: every config in src/test/resources/jpf/
+HAS_INPUT=0
+PREV=""
+for a in "$@"; do
+  case "$PREV" in
+    -j|--jobs|--xmx|--timeout|--work-dir|--partitions|--partition-depth|-o|--output) PREV="$a"; continue ;;
+  esac
+  case "$a" in
+    +*|-*) ;;
+    *) HAS_INPUT=1 ;;
+  esac
+  PREV="$a"
+done
+if [ "$HAS_INPUT" = 0 ]; then
+  set -- "$@" "src/test/resources/jpf"
+fi
+
+# The coordinator only schedules workers; each worker gets its own -Xmx via --xmx.
+exec java -Xmx256m -cp "$CP" br.ufpe.cin.witup.jpf.ParallelRunner "$@" "${CACHE_ARGS[@]}"
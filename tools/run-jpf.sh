@@ -5,58 +5,27 @@
 #   ./tools/run-jpf.sh AccountTestSymbolic.jpf   # symbolic → EXCEPTION CONDITIONS
 #   ./tools/run-jpf.sh AccountTest.jpf          # concrete  → no path conditions
 #   ./tools/run-jpf.sh --verbose AccountTestSymbolic.jpf   # full JPF output
+#   ./tools/run-jpf.sh --result out.json AccountTestSymbolic.jpf   # sites as a witup-result document, no block
+#   WITUP_CACHE=0 ./tools/run-jpf.sh AccountTestSymbolic.jpf  # bypass the analysis cache
+# Unless --verbose, unchanged configs are answered from the analysis cache (target/witup/cache).
 
 set -e
-SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
-PROJECT_ROOT="$(cd "$SCRIPT_DIR/.." && pwd)"
-LIB_DIR="$PROJECT_ROOT/tools/jpf/lib"
-
-if [ ! -f "$LIB_DIR/jpf.jar" ]; then
-  echo "JPF jars not found. Run: ./tools/copy-jpf.sh"
-  exit 1
-fi
-
-# Build classpath: RunJPF launcher + jpf + symbc + solver libs + project classes + gson
-CP="$LIB_DIR/RunJPF.jar"
-CP="$CP:$LIB_DIR/jpf.jar"
-CP="$CP:$LIB_DIR/jpf-annotations.jar"
-CP="$CP:$LIB_DIR/jpf-symbc.jar"
-CP="$CP:$LIB_DIR/choco-1_2_04.jar"
-CP="$CP:$LIB_DIR/choco-solver-2.1.1-20100709.142532-2.jar"
-CP="$CP:$LIB_DIR/automaton.jar"
-CP="$CP:$LIB_DIR/string.jar"
-CP="$CP:$LIB_DIR/solver.jar"
-CP="$CP:$LIB_DIR/commons-lang-2.4.jar"
-CP="$CP:$LIB_DIR/commons-math-1.2.jar"
-CP="$CP:$PROJECT_ROOT/target/classes"
-CP="$CP:$PROJECT_ROOT/target/test-classes"
-CP="$CP:${HOME}/.m2/repository/com/google/code/gson/gson/2.10.1/gson-2.10.1.jar"
-
-# Use Java 8 (JPF requires it). Prefer JAVA_HOME from nix develop; else SDKMAN if available
-if [ -z "$JAVA_HOME" ]; then
-  SDK_JAVA8="$HOME/.sdkman/candidates/java/8.0.422-amzn"
-  if [ -d "$SDK_JAVA8" ]; then
-    export JAVA_HOME="$SDK_JAVA8"
-    export PATH="$JAVA_HOME/bin:$PATH"
-  fi
-fi
-
-# Native libs for Choco (macOS)
-if [ -d "$PROJECT_ROOT/../jpf-symbc/lib" ]; then
-  export DYLD_LIBRARY_PATH="${DYLD_LIBRARY_PATH:+$DYLD_LIBRARY_PATH:}$PROJECT_ROOT/../jpf-symbc/lib"
-  export LD_LIBRARY_PATH="${LD_LIBRARY_PATH:+$LD_LIBRARY_PATH:}$PROJECT_ROOT/../jpf-symbc/lib"
-fi
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
 
 cd "$PROJECT_ROOT"
 
-# Strip --verbose / -V first (show full output; default is quiet = EXCEPTION CONDITIONS only)
+# Strip --verbose / -V (show full output; default is quiet = EXCEPTION CONDITIONS only) and
+# --result FILE (write the sites as a versioned JSON document, see ResultFile, instead of the block)
 VERBOSE=0
+RESULT_ARGS=()
 NEW_ARGS=()
-for a in "$@"; do
-  case "$a" in
+while [ $# -gt 0 ]; do
+  case "$1" in
     --verbose|-V) VERBOSE=1 ;;
-    *) NEW_ARGS+=("$a") ;;
+    --result) RESULT_ARGS=("+witup.result=$2" "+witup.report.stdout=false"); shift ;;
+    *) NEW_ARGS+=("$1") ;;
   esac
+  shift
 done
 set -- "${NEW_ARGS[@]}"
 
@@ -69,15 +38,22 @@ if [ -n "$CONFIG" ] && [ "${CONFIG#*/*}" = "$CONFIG" ]; then
   fi
 fi
 
-# Run JPF; filter output to EXCEPTION CONDITIONS block unless --verbose
-if [ "$VERBOSE" = 1 ]; then
-  exec java -Xmx1024m -cp "$CP" gov.nasa.jpf.tool.RunJPF "$@"
-else
-  java -Xmx1024m -cp "$CP" gov.nasa.jpf.tool.RunJPF "$@" 2>&1 | awk '
-    /^=+$/ { if (inblock) { print; inblock=0 }; prev=$0; next }
-    /EXCEPTION CONDITIONS \(symbolic path conditions\)/ { inblock=1; print prev; print; next }
-    inblock { print }
-    { prev=$0 }
-  '
-  exit "${PIPESTATUS[0]}"
+# Cache hit: print the stored EXCEPTION CONDITIONS block without exploring (exit 3 = miss)
+if [ "$VERBOSE" = 0 ] && [ ${#CACHE_ARGS[@]} -gt 0 ]; then
+  set +e
+  java -cp "$CP" br.ufpe.cin.witup.jpf.AnalysisCache "$@" "${CACHE_ARGS[@]}" "${RESULT_ARGS[@]}" 2>/dev/null
+  STATUS=$?
+  set -e
+  [ "$STATUS" = 0 ] && exit 0
+fi
+
+# Run JPF (the listener stores the result in the cache). Unless --verbose, JPF's console publisher
+# only reports errors; the listener prints the EXCEPTION CONDITIONS block or writes the --result file.
+QUIET_ARGS=()
+if [ "$VERBOSE" = 0 ]; then
+  QUIET_ARGS=(
+    "+report.console.start=none" "+report.console.transition=none" "+report.console.constraint=none"
+    "+report.console.probe=none" "+report.console.property_violation=error" "+report.console.finished=none"
+  )
 fi
+exec java -Xmx1024m -cp "$CP" gov.nasa.jpf.tool.RunJPF "$@" "${CACHE_ARGS[@]}" "${QUIET_ARGS[@]}" "${RESULT_ARGS[@]}"
@@ -0,0 +1,15 @@
+#!/bin/bash
+# Merges, queries and exports indexed binary site stores (see br.ufpe.cin.witup.jpf.SiteStore).
+# Usage: ./tools/site-store.sh merge -o out.wsites <batch report | sites .json | .jsonl | .wsites>...
+#        ./tools/site-store.sh query <store> [--class name] [--method signature] [--exception type]
+#        ./tools/site-store.sh export <store> [-o sites.json] [--compact]
+# Examples:
+#   ./tools/site-store.sh merge -o target/witup/sites.wsites target/witup/parallel-report.json
+#   ./tools/site-store.sh query target/witup/sites.wsites --class Account --exception java.lang.IllegalArgumentException
+
+set -e
+source "$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)/jpf-env.sh"
+
+cd "$PROJECT_ROOT"
+
+exec java -cp "$CP" br.ufpe.cin.witup.jpf.SiteStore "$@"